@@ -156,6 +156,14 @@ public class AgentChatter {
                 "Mining... mining... mining...",
                 "Satu blok lagi buat koleksi!"
         ));
+
+        STATE_CHAT_MESSAGES.put(AgentEntity.AgentState.SHARE_RESOURCE_LOCATION, Arrays.asList(
+                "Guys, gue nemu spot resource nih, catet ya!",
+                "Info loker: ada blok bagus deket sini.",
+                "Sharing is caring, ini lokasinya...",
+                "Jangan bilang siapa-siapa... eh, bilang semua deh.",
+                "Udah gue tandain di papan, ambil aja!"
+        ));
     }
 
     private static final List<String> DAMAGE_TAKEN_MESSAGES = Arrays.asList(
@@ -19,7 +19,6 @@ import net.minecraft.world.item.Items;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.phys.Vec3;
 import net.minecraft.world.entity.LivingEntity;
-import net.minecraft.world.entity.monster.Monster;
 import net.minecraft.world.entity.ai.attributes.AttributeSupplier;
 import net.minecraft.world.entity.ai.attributes.Attributes;
 import net.minecraft.world.damagesource.DamageSource;
@@ -36,12 +35,14 @@ import net.minecraft.network.syncher.SynchedEntityData;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.core.BlockPos;
 import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.level.block.Blocks; // For default target block
-import net.minecraft.world.phys.AABB;
 
 import java.util.Random;
 import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import com.mas.masonry.agent.states.IAgentStateHandler;
 import com.mas.masonry.agent.states.IdleStateHandler;
@@ -56,6 +57,20 @@ import com.mas.masonry.agent.states.HarvestBlockStateHandler;
 import com.mas.masonry.agent.states.GreetAgentStateHandler;
 import com.mas.masonry.agent.states.ChatWithAgentStateHandler;
 import com.mas.masonry.agent.states.PlaceConstructionBlockStateHandler;
+import com.mas.masonry.agent.states.ShareResourceLocationStateHandler;
+import com.mas.masonry.agent.states.TravelToTaskLocationStateHandler;
+import com.mas.masonry.agent.states.ReturnToBaseStateHandler;
+import com.mas.masonry.agent.fsm.AgentDecisionSnapshot;
+import com.mas.masonry.agent.construction.ConstructionProject;
+import com.mas.masonry.agent.construction.MaterialTrip;
+import com.mas.masonry.agent.movement.MovementController;
+import com.mas.masonry.agent.movement.UnreachableTargets;
+import com.mas.masonry.agent.perception.AgentSpatialIndex;
+import com.mas.masonry.agent.world.AsyncBlockScanService;
+import com.mas.masonry.agent.perception.PerceptionPass;
+import com.mas.masonry.agent.perception.ThreatRegistry;
+import com.mas.masonry.agent.perception.PerceptionSnapshot;
+import com.mas.masonry.agent.schedule.AgentScheduler;
 
 /**
  * Base entity class for intelligent agents that use Finite State Machine (FSM)
@@ -95,7 +110,6 @@ public class AgentEntity extends PathfinderMob implements InventoryCarrier {
     private static final int AGENT_CONTAINER_SLOTS = 36; // Number of slots in the agent's main inventory
     private final SimpleContainer inventory = new SimpleContainer(AGENT_CONTAINER_SLOTS);
     private LazyOptional<IItemHandler> inventoryCapability;
-    private static final int MAX_TICKS_TO_REACH_BLOCK = 500; // Max ticks to reach block before giving up
 
 
 
@@ -104,6 +118,10 @@ public class AgentEntity extends PathfinderMob implements InventoryCarrier {
     private int findBlockScanRadius = 8; // How far out to scan for the target block
     private int findBlockAttempts = 0; // Counter for attempts to find the block
     private static final int MAX_FIND_BLOCK_ATTEMPTS = 5; // Max attempts before giving up
+    private static final int MAX_UNSHARED_DISCOVERIES = 16; // Resource finds held before they are shared
+    @Nullable
+    private AsyncBlockScanService.ScanTicket pendingBlockScan; // Off-thread search still in flight, if any
+    private final UnreachableTargets unreachableTargets = new UnreachableTargets(); // Targets recently given up on
 
     /**
      * Possible states for the Agent's FSM
@@ -160,6 +178,9 @@ public class AgentEntity extends PathfinderMob implements InventoryCarrier {
         private boolean dangerNearby = false;
         private boolean resourceNearby = false;
         private boolean allyNearby = false;
+        private PerceptionSnapshot perception = PerceptionSnapshot.EMPTY;
+        // Resource blocks this agent found but has not shared with the colony yet
+        private final Map<BlockPos, Block> unsharedDiscoveries = new LinkedHashMap<>();
         
         // Target tracking
         private Optional<LivingEntity> targetEntity = Optional.empty();
@@ -202,7 +223,35 @@ public class AgentEntity extends PathfinderMob implements InventoryCarrier {
         
         public boolean isAllyNearby() { return allyNearby; }
         public void setAllyNearby(boolean allyNearby) { this.allyNearby = allyNearby; }
+
+        public PerceptionSnapshot getPerception() { return perception; }
+
+        /**
+         * Publishes the result of a perception pass and refreshes the awareness flags derived from it
+         */
+        public void publishPerception(PerceptionSnapshot snapshot) {
+            this.perception = snapshot;
+            this.dangerNearby = snapshot.isDangerNearby();
+            this.allyNearby = snapshot.isAllyNearby();
+            this.resourceNearby = snapshot.isResourceNearby();
+        }
         
+        public void recordDiscovery(Block block, BlockPos pos) {
+            if (unsharedDiscoveries.size() < MAX_UNSHARED_DISCOVERIES) {
+                unsharedDiscoveries.put(pos.immutable(), block);
+            }
+        }
+        public boolean hasUnsharedDiscoveries() { return !unsharedDiscoveries.isEmpty(); }
+
+        /**
+         * Returns the discoveries not yet shared and forgets them.
+         */
+        public Map<BlockPos, Block> drainDiscoveries() {
+            Map<BlockPos, Block> discoveries = new LinkedHashMap<>(unsharedDiscoveries);
+            unsharedDiscoveries.clear();
+            return discoveries;
+        }
+
         public Optional<LivingEntity> getTargetEntity() { return targetEntity; }
         public void setTargetEntity(LivingEntity entity) { this.targetEntity = Optional.ofNullable(entity); }
         public void clearTargetEntity() { this.targetEntity = Optional.empty(); }
@@ -229,39 +278,12 @@ public class AgentEntity extends PathfinderMob implements InventoryCarrier {
         public int getLastStateChangeTime() { return lastStateChangeTime; }
         
         /**
-         * Finds and returns the nearest dangerous entity within perception radius.
+         * Returns the nearest dangerous entity seen by the last perception pass.
          * @return The nearest dangerous LivingEntity, or null if none found.
          */
         public LivingEntity getNearestDanger() {
-            // Get all entities within perception radius
-            AABB searchArea = new AABB(
-                AgentEntity.this.getX() - AgentEntity.this.perceptionRadius, 
-                AgentEntity.this.getY() - AgentEntity.this.perceptionRadius, 
-                AgentEntity.this.getZ() - AgentEntity.this.perceptionRadius,
-                AgentEntity.this.getX() + AgentEntity.this.perceptionRadius, 
-                AgentEntity.this.getY() + AgentEntity.this.perceptionRadius, 
-                AgentEntity.this.getZ() + AgentEntity.this.perceptionRadius
-            );
-            
-            List<LivingEntity> nearbyEntities = AgentEntity.this.level().getEntitiesOfClass(
-                LivingEntity.class, 
-                searchArea,
-                entity -> entity != AgentEntity.this && AgentEntity.this.isEntityDangerous(entity)
-            );
-            
-            // Find the closest dangerous entity
-            LivingEntity nearestDanger = null;
-            double closestDistanceSq = Double.MAX_VALUE;
-            
-            for (LivingEntity entity : nearbyEntities) {
-                double distanceSq = AgentEntity.this.distanceToSqr(entity);
-                if (distanceSq < closestDistanceSq) {
-                    nearestDanger = entity;
-                    closestDistanceSq = distanceSq;
-                }
-            }
-            
-            return nearestDanger;
+            LivingEntity nearestThreat = perception.nearestThreat();
+            return nearestThreat != null && nearestThreat.isAlive() ? nearestThreat : null;
         }
 
         
@@ -288,18 +310,32 @@ public class AgentEntity extends PathfinderMob implements InventoryCarrier {
     
     // Current state in the FSM
     private AgentState currentState = AgentState.IDLE;
+    // Whether the current state's handler has had its onEnter; false until the first FSM tick
+    private boolean stateEntered = false;
+    // State change asked for by the running handler, applied after its tick
+    private boolean inStateTick = false;
+    private AgentState requestedState = null;
     
     // Agent's memory
     private final AgentMemory memory;
 
+    // Keeps the current path between FSM ticks
+    private final MovementController movement;
+
     // Target block for resource gathering
     private Block targetBlockType; 
     private BlockPos targetBlockPos;
 
     // Construction related fields
-    private BlockPos constructionOrigin = null; // Starting point for construction blueprints
-    private int currentBlueprintIndex = 0;    // Current step in the active blueprint
+    private ConstructionProject constructionProject = null; // Shared structure this agent is helping build
+    private int claimedBlueprintIndex = -1;   // Blueprint block this agent holds a claim on, or -1
+    private MaterialTrip materialTrip = null; // Gathering run for construction materials under way, if any
     private Vec3 targetPos = null; // For general movement targets, and construction site sub-targets
+
+    // Long-range travel
+    private BlockPos homePos = null; // Where the agent first found itself; RETURN_TO_BASE heads here
+    private BlockPos taskLocation = null; // Destination of TRAVEL_TO_TASK_LOCATION
+    private AgentState taskArrivalState = AgentState.IDLE; // State to pick up once the task location is reached
     
     // Map of behaviors for each state
     private final EnumMap<AgentState, IAgentStateHandler> stateBehaviors;
@@ -307,6 +343,7 @@ public class AgentEntity extends PathfinderMob implements InventoryCarrier {
     // Perception radius 
     private final double perceptionRadius = 16.0;
     private double attackRange = 2.0D;
+    private long lastPerceptionTime = Long.MIN_VALUE;
     private Random random; // Added for random behaviors
     
     /**
@@ -320,6 +357,7 @@ public class AgentEntity extends PathfinderMob implements InventoryCarrier {
 
         // Initialize memory
         this.memory = new AgentMemory();
+        this.movement = new MovementController(this);
 
         // Initialize state behaviors map
         this.stateBehaviors = new EnumMap<>(AgentState.class);
@@ -360,10 +398,19 @@ public class AgentEntity extends PathfinderMob implements InventoryCarrier {
         return this.inventory;
     }
 
+    public MovementController getMovement() { return this.movement; }
+
     public AgentMemory getMemory() {
         return memory;
     }
 
+    /**
+     * Shared entity index for this agent's level. Only valid on the server side.
+     */
+    public AgentSpatialIndex getSpatialIndex() {
+        return AgentSpatialIndex.get((ServerLevel) this.level());
+    }
+
     /**
      * Checks if the agent has any type of pickaxe in its inventory.
      * @return true if a pickaxe is found, false otherwise.
@@ -402,19 +449,60 @@ public class AgentEntity extends PathfinderMob implements InventoryCarrier {
     public void incrementFindBlockAttempts() { this.findBlockAttempts++; }
     public void resetFindBlockAttempts() { this.findBlockAttempts = 0; }
     public int getMaxFindBlockAttempts() { return MAX_FIND_BLOCK_ATTEMPTS; }
+    @Nullable
+    public AsyncBlockScanService.ScanTicket getPendingBlockScan() { return this.pendingBlockScan; }
+    public void setPendingBlockScan(@Nullable AsyncBlockScanService.ScanTicket ticket) { this.pendingBlockScan = ticket; }
     public Vec3 getTargetPos() { return this.targetPos; }
     public void setTargetPos(Vec3 pos) { this.targetPos = pos; }
-    public int getMaxTicksToReachBlock() { return MAX_TICKS_TO_REACH_BLOCK; }
+    public UnreachableTargets getUnreachableTargets() { return this.unreachableTargets; }
 
     // --- Construction Getters/Setters ---
-    public BlockPos getConstructionOrigin() { return this.constructionOrigin; }
-    public void setConstructionOrigin(BlockPos origin) { this.constructionOrigin = origin; }
-    public int getCurrentBlueprintIndex() { return this.currentBlueprintIndex; }
-    public void setCurrentBlueprintIndex(int index) { this.currentBlueprintIndex = index; }
-    public void incrementCurrentBlueprintIndex() { this.currentBlueprintIndex++; }
+    @Nullable
+    public ConstructionProject getConstructionProject() { return this.constructionProject; }
+    public void setConstructionProject(@Nullable ConstructionProject project) { this.constructionProject = project; }
+    public int getClaimedBlueprintIndex() { return this.claimedBlueprintIndex; }
+    public void setClaimedBlueprintIndex(int index) { this.claimedBlueprintIndex = index; }
+    @Nullable
+    public MaterialTrip getMaterialTrip() { return this.materialTrip; }
+    public void setMaterialTrip(@Nullable MaterialTrip trip) { this.materialTrip = trip; }
     // --- End Construction Getters/Setters ---
+
+    // --- Travel Getters/Setters ---
+    @Nullable
+    public BlockPos getHomePos() { return this.homePos; }
+    public void setHomePos(@Nullable BlockPos pos) { this.homePos = pos; }
+    @Nullable
+    public BlockPos getTaskLocation() { return this.taskLocation; }
+    public AgentState getTaskArrivalState() { return this.taskArrivalState; }
+
+    /**
+     * Whether the agent has strayed further than {@link Config#homeRadius} blocks from home.
+     */
+    public boolean isFarFromHome() {
+        return this.homePos != null && this.homePos.distSqr(this.blockPosition()) > (double) Config.homeRadius * Config.homeRadius;
+    }
+
+    /**
+     * Sends the agent on a long trip to {@code location}, after which it continues in {@code onArrival}.
+     */
+    public void travelTo(BlockPos location, AgentState onArrival) {
+        this.taskLocation = location.immutable();
+        this.taskArrivalState = onArrival;
+        setCurrentState(AgentState.TRAVEL_TO_TASK_LOCATION);
+    }
+    // --- End Travel Getters/Setters ---
     // --- End Block Targeting Getters/Setters ---
-    public void setCurrentState(AgentState state) { this.currentState = state; }
+    /**
+     * Moves the agent to a new state. Requests made by a state handler during its tick are applied once
+     * the handler returns, so its {@code onExit} never runs underneath its own {@code onTick}.
+     */
+    public void setCurrentState(AgentState state) {
+        if (this.inStateTick) {
+            this.requestedState = state;
+        } else if (state != this.currentState) {
+            transitionToState(state);
+        }
+    }
 
     @Override
     public SlotAccess getSlot(int slotIndex) {
@@ -442,6 +530,9 @@ public class AgentEntity extends PathfinderMob implements InventoryCarrier {
             }
         }
         compound.put("Inventory", listTag);
+        if (this.homePos != null) {
+            compound.putLong("HomePos", this.homePos.asLong());
+        }
     }
 
     // Load inventory with the entity
@@ -459,6 +550,9 @@ public class AgentEntity extends PathfinderMob implements InventoryCarrier {
                 }
             }
         }
+        if (compound.contains("HomePos", 4)) { // 4 for TAG_LONG
+            this.homePos = BlockPos.of(compound.getLong("HomePos"));
+        }
     }
     @Override
     protected void dropCustomDeathLoot(DamageSource pSource, int pLooting, boolean pRecentlyHit) {
@@ -491,8 +585,10 @@ public class AgentEntity extends PathfinderMob implements InventoryCarrier {
         // New states for social interaction & communication
         stateBehaviors.put(AgentState.GREET_AGENT, new GreetAgentStateHandler());
         stateBehaviors.put(AgentState.CHAT_WITH_AGENT, new ChatWithAgentStateHandler());
+        stateBehaviors.put(AgentState.SHARE_RESOURCE_LOCATION, new ShareResourceLocationStateHandler());
+        stateBehaviors.put(AgentState.TRAVEL_TO_TASK_LOCATION, new TravelToTaskLocationStateHandler());
+        stateBehaviors.put(AgentState.RETURN_TO_BASE, new ReturnToBaseStateHandler());
         // TODO: Instantiate and put other new state handlers here as they are created
-        // stateBehaviors.put(AgentState.SHARE_RESOURCE_LOCATION, new ShareResourceLocationStateHandler());
         // stateBehaviors.put(AgentState.REQUEST_ITEM_FROM_AGENT, new RequestItemFromAgentStateHandler());
         // stateBehaviors.put(AgentState.GIVE_ITEM_TO_AGENT, new GiveItemToAgentStateHandler());
         // stateBehaviors.put(AgentState.FOLLOW_AGENT, new FollowAgentStateHandler());
@@ -500,9 +596,7 @@ public class AgentEntity extends PathfinderMob implements InventoryCarrier {
 
         // New states for work & task management
         // stateBehaviors.put(AgentState.LOOK_FOR_TASK, new LookForTaskStateHandler());
-        // stateBehaviors.put(AgentState.TRAVEL_TO_TASK_LOCATION, new TravelToTaskLocationStateHandler());
         // stateBehaviors.put(AgentState.PERFORM_TASK, new PerformTaskStateHandler());
-        // stateBehaviors.put(AgentState.RETURN_TO_BASE, new ReturnToBaseStateHandler());
         // stateBehaviors.put(AgentState.DEPOSIT_RESOURCES, new DepositResourcesStateHandler());
         // stateBehaviors.put(AgentState.RETRIEVE_ITEM, new RetrieveItemStateHandler());
         // stateBehaviors.put(AgentState.CRAFT_ITEM, new CraftItemStateHandler());
@@ -539,199 +633,73 @@ public class AgentEntity extends PathfinderMob implements InventoryCarrier {
     @Override
     public void aiStep() {
         super.aiStep();
+
+        // The FSM only drives server-side behaviour; running it on the client just duplicates the work
+        if (this.level().isClientSide) {
+            return;
+        }
         
-        // Update the agent's memory with perceptions
-        updatePerceptions();
-        
-        // Execute the finite state machine logic
-        tickAI();
-        
+        // Perception and the FSM are run by the AgentScheduler within its per-tick budget
+
         // Increment the ticks in current state
         memory.incrementTicksInState();
     }
     
     /**
-     * FSM tick method to handle current state's behavior and transitions
+     * First half of a scheduled FSM tick: refreshes perceptions and runs the current state's behaviour.
+     * Called serially on the server thread by the {@link AgentScheduler}; the transition that follows is
+     * decided from an {@link AgentDecisionSnapshot} and handed back through {@link #applyTransition}.
      */
-    private void tickAI() {
-        MASONRY.LOGGER.debug("{} in tickAI. Current state: {}", this.getName().getString(), currentState);
+    public void perceiveAndAct(long gameTime) {
+        if (this.homePos == null) {
+            this.homePos = this.blockPosition();
+        }
+
+        // Update the agent's memory with perceptions
+        updatePerceptions(gameTime);
+
         // Execute behavior for current state
         IAgentStateHandler handler = stateBehaviors.get(currentState);
-        if (handler != null) {
-            handler.handle(this);
-        } else {
+        if (handler == null) {
             MASONRY.LOGGER.warn("No state handler found for state: {}", currentState);
+            return;
         }
-        
-        // Check for state transitions
-        AgentState nextState = determineNextState();
-        
-        // If state should change, transition to it
+        // The spawn state is never transitioned into, so enter it on the first tick
+        if (!stateEntered) {
+            stateEntered = true;
+            handler.onEnter(this);
+        }
+
+        inStateTick = true;
+        try {
+            handler.onTick(this);
+        } finally {
+            inStateTick = false;
+        }
+
+        if (requestedState != null) {
+            AgentState nextState = requestedState;
+            requestedState = null;
+            if (nextState != currentState) {
+                transitionToState(nextState);
+            }
+        }
+    }
+
+    /**
+     * Second half of a scheduled FSM tick: moves to the state the transition table picked, if it differs.
+     */
+    public void applyTransition(AgentState nextState) {
         if (nextState != currentState) {
             transitionToState(nextState);
         }
     }
+
     /**
-     * Determines what state the agent should transition to based on current perceptions
+     * Whether the agent is part of a construction project that still has blocks left to place
      */
-    private AgentState determineNextState() {
-        // Default is to stay in current state
-        AgentState nextState = currentState;
-        
-        switch (currentState) {
-            case IDLE:
-                if (memory.isDangerNearby() && memory.getFearLevel() > 50) {
-                    nextState = AgentState.FLEE;
-                    MASONRY.LOGGER.debug("{} IDLE deciding to FLEE due to danger.", this.getName().getString());
-                } else if (memory.isResourceNearby() && memory.getHungerLevel() > 30) {
-                    nextState = AgentState.SEEK_RESOURCE;
-                    MASONRY.LOGGER.debug("{} IDLE deciding to SEEK_RESOURCE due to hunger.", this.getName().getString());
-                } else if (this.getTarget() == null) { // Only consider social/construction/wandering if not already targeting something for attack/flee (covered by dangerNearby)
-                    // Check if any nearby allies are fleeing and agent is not too scared
-                    List<AgentEntity> nearbyFleeingAllies = this.level().getEntitiesOfClass(AgentEntity.class,
-                            this.getBoundingBox().inflate(16.0D), // Check in a 16-block radius
-                            ally -> ally != this && ally.isAlive() && ally.getCurrentState() == AgentState.FLEE);
-
-                    if (!nearbyFleeingAllies.isEmpty() && memory.getFearLevel() < 50) {
-                        nextState = AgentState.HELP_ALLY;
-                        MASONRY.LOGGER.debug("{} IDLE deciding to HELP_ALLY.", this.getName().getString());
-                    } 
-                    // Else, check if sociable and opportunity to greet (and not already helping)
-                    else if (memory.isAllyNearby() && memory.getSocialMeter() > 30 && random.nextFloat() < 0.05f) { // Increased chance to greet
-                        nextState = AgentState.GREET_AGENT;
-                        MASONRY.LOGGER.debug("{} IDLE deciding to GREET.", this.getName().getString());
-                    }
-                    // Else, check if there's a construction task (and not already helping or greeting)
-                    else if (this.constructionOrigin != null &&
-                            !MASONRY.SIMPLE_HUT_BLUEPRINT.isEmpty() &&
-                            this.currentBlueprintIndex < MASONRY.SIMPLE_HUT_BLUEPRINT.size()) {
-                        nextState = AgentState.PLACE_CONSTRUCTION_BLOCK;
-                        MASONRY.LOGGER.debug("{} IDLE deciding to PLACE_CONSTRUCTION_BLOCK.", this.getName().getString());
-                    }
-                    // Else, consider wandering (if not doing any of the above)
-                    else if (random.nextFloat() < 0.75f) { // Higher chance to wander from IDLE
-                        nextState = AgentState.WANDER;
-                        MASONRY.LOGGER.debug("{} IDLE deciding to WANDER.", this.getName().getString());
-                    }
-                }
-                MASONRY.LOGGER.debug("{} IDLE determined nextState: {}", this.getName().getString(), nextState);
-                break;
-                
-           case WANDER:
-               if (memory.isDangerNearby() && memory.getFearLevel() > 30) {
-                   nextState = AgentState.FLEE;
-               } else if (memory.isResourceNearby() && memory.getHungerLevel() > 20) {
-                   nextState = AgentState.SEEK_RESOURCE;
-               } else if (this.getTarget() != null) {
-                   nextState = AgentState.ATTACK;
-               } else if (memory.getTicksInCurrentState() > 200 && random.nextFloat() < 0.1f) {
-                   nextState = AgentState.IDLE; // Return to idle after wandering for a while
-               }
-               break;
-               
-           case SEEK_RESOURCE:
-               if (memory.isDangerNearby() && memory.getFearLevel() > 70) {
-                   nextState = AgentState.FLEE;
-               } else if (this.getTarget() != null) {
-                   nextState = AgentState.ATTACK;
-               } else if (!memory.isResourceNearby() || memory.getHungerLevel() < 10) {
-                   nextState = AgentState.IDLE;
-               }
-               break;
-               
-           case FLEE:
-               if (!memory.isDangerNearby() || memory.getFearLevel() < 20) {
-                   nextState = AgentState.IDLE;
-               }
-               break;
-               
-           case ATTACK:
-               if (memory.getHealthPercent() < 30) {
-                   nextState = AgentState.FLEE;
-               } else if (this.getTarget() == null || !this.getTarget().isAlive()) {
-                   nextState = AgentState.IDLE;
-               }
-               break;
-               
-           case HELP_ALLY:
-               if (memory.isDangerNearby() && memory.getHealthPercent() < 20) {
-                   nextState = AgentState.FLEE;
-               } else if (this.getTarget() != null && this.getTarget().isAlive()) { // If it has a target (presumably from helping) and target is alive
-                   nextState = AgentState.ATTACK;
-               } else if (!memory.isAllyNearby() || memory.getTicksInCurrentState() > 200) { // No ally detected or helped for too long (approx 10s)
-                   nextState = AgentState.IDLE;
-               }
-               break;
-
-           case FIND_TARGET_BLOCK:
-               // Transitions from FIND_TARGET_BLOCK are typically handled by its state handler
-               // (e.g., to MOVE_TO_TARGET_BLOCK if found, or IDLE/WANDER if not found after attempts/timeout).
-               // High-priority interrupts like FLEE can still occur based on general conditions.
-               if (memory.isDangerNearby() && memory.getFearLevel() > 60) { // Example flee condition
-                   nextState = AgentState.FLEE;
-               }
-               break;
-
-           case MOVE_TO_TARGET_BLOCK:
-               // Transitions from MOVE_TO_TARGET_BLOCK are typically handled by its state handler
-               // (e.g., to HARVEST_BLOCK or PLACE_CONSTRUCTION_BLOCK on arrival, or FIND_TARGET_BLOCK/IDLE on failure/timeout).
-               if (memory.isDangerNearby() && memory.getFearLevel() > 60) { // Example flee condition
-                   nextState = AgentState.FLEE;
-               }
-               break;
-
-           case HARVEST_BLOCK:
-               // Transitions from HARVEST_BLOCK are typically handled by its state handler
-               // (e.g., to IDLE, FIND_TARGET_BLOCK for more, or a storage-related state when full).
-               if (memory.isDangerNearby() && memory.getFearLevel() > 60) { // Example flee condition
-                   nextState = AgentState.FLEE;
-               }
-               break;
-
-           case PLACE_CONSTRUCTION_BLOCK:
-               // Transitions from PLACE_CONSTRUCTION_BLOCK are primarily handled by its state handler.
-               // It might transition to IDLE, MOVE_TO_TARGET_BLOCK (for next spot), or FIND_TARGET_BLOCK (for materials).
-               // A high-priority interrupt for danger:
-               if (memory.isDangerNearby() && memory.getFearLevel() > 80) { // High threshold to interrupt construction
-                   nextState = AgentState.FLEE;
-               }
-               break;
-
-            // New states - primarily rely on their handlers for transitions, but can be interrupted by Flee.
-           case GREET_AGENT:
-           case CHAT_WITH_AGENT:
-           case SHARE_RESOURCE_LOCATION:
-           case REQUEST_ITEM_FROM_AGENT:
-           case GIVE_ITEM_TO_AGENT:
-           case FOLLOW_AGENT:
-           case WARN_AGENT_OF_DANGER:
-           case LOOK_FOR_TASK:
-           case TRAVEL_TO_TASK_LOCATION:
-           case PERFORM_TASK:
-           case RETURN_TO_BASE:
-           case DEPOSIT_RESOURCES:
-           case RETRIEVE_ITEM:
-           case CRAFT_ITEM:
-           case SEEK_SHELTER:
-           case SEEK_REST:
-           case SEEK_HEALING_ITEM:
-           case REACT_TO_WEATHER:
-           case REACT_TO_TIME_OF_DAY:
-               if (memory.isDangerNearby() && memory.getFearLevel() > 70) { // Generic flee condition for new states
-                   nextState = AgentState.FLEE;
-               }
-               // Otherwise, these states manage their own lifecycle via their handlers.
-               break;
-
-            default:
-                // If current state is unknown or unhandled in this switch, default to IDLE to prevent getting stuck.
-                // However, all AgentState enum members should ideally be covered.
-                MASONRY.LOGGER.warn("Unhandled state in determineNextState switch: {}. Defaulting to IDLE.", currentState);
-                nextState = AgentState.IDLE;
-                break;
-        }
-        
-        return nextState;
+    public boolean hasPendingConstruction() {
+        return this.constructionProject != null && this.constructionProject.hasOpenWork();
     }
 
     /**
@@ -749,9 +717,6 @@ public class AgentEntity extends PathfinderMob implements InventoryCarrier {
      * Handles the transition to a new state
      */
     private void transitionToState(AgentState newState) {
-        String oldStateDebug = this.getName().getString() + " transitioning from " + currentState + " to " + newState;
-        // System.out.println(oldStateDebug); // Keep for debugging if needed, or use LOGGER
-
         // Broadcast chat message for new state using AgentChatter, but not for common states like IDLE or WANDER
         if (!this.level().isClientSide && this.level().getServer() != null && 
             newState != AgentState.IDLE && newState != AgentState.WANDER) {
@@ -765,8 +730,14 @@ public class AgentEntity extends PathfinderMob implements InventoryCarrier {
         }
 
         // Original transition logic continues here
-        System.out.println(oldStateDebug); // You can move this or use a logger if preferred
+        MASONRY.LOGGER.debug("{} transitioning from {} to {}", this.getName().getString(), currentState, newState);
         
+        // Let the old state clean up before anything about the new one is set
+        IAgentStateHandler oldHandler = stateBehaviors.get(currentState);
+        if (oldHandler != null && stateEntered) {
+            oldHandler.onExit(this);
+        }
+
         // Update state and reset counters
         this.currentState = newState;
         this.memory.resetTicksInState();
@@ -780,6 +751,12 @@ public class AgentEntity extends PathfinderMob implements InventoryCarrier {
         
         // Update goals based on new state
         updateGoalsForState(newState);
+
+        IAgentStateHandler newHandler = stateBehaviors.get(newState);
+        this.stateEntered = newHandler != null;
+        if (newHandler != null) {
+            newHandler.onEnter(this);
+        }
     }
     
     /**
@@ -809,41 +786,30 @@ public class AgentEntity extends PathfinderMob implements InventoryCarrier {
     /**
      * Updates the agent's perceptions by scanning the environment
      */
-    private void updatePerceptions() {
-        // Reset perception flags
-        memory.resetPerceptionFlags();
-        
+    private void updatePerceptions(long gameTime) {
+        // Ticks since the previous perception update, so time-based needs keep their pace on slower tiers
+        long elapsedTicks = lastPerceptionTime == Long.MIN_VALUE ? 1 : Math.max(1, gameTime - lastPerceptionTime);
+        lastPerceptionTime = gameTime;
+
         // Update health awareness
         memory.updateHealthAwareness();
         
-        // Scan for entities nearby
-        List<LivingEntity> nearbyEntities = level().getEntitiesOfClass(
-            LivingEntity.class, 
-            this.getBoundingBox().inflate(perceptionRadius),
-            entity -> entity != this
-        );
-        
-        // Process nearby entities
-        for (LivingEntity entity : nearbyEntities) {
-            // Check for danger sources
-            if (isEntityDangerous(entity)) {
-                memory.setDangerNearby(true);
-                adjustFearLevel(entity);
-            }
-            
-            // Check for allies
-            if (isEntityAlly(entity)) {
-                memory.setAllyNearby(true);
-            }
+        // One pass over nearby entities classifies threats, allies and food together
+        PerceptionSnapshot perception = PerceptionPass.scan(this, perceptionRadius);
+        memory.publishPerception(perception);
+
+        // Fear reacts to the closest threat only
+        if (perception.nearestThreat() != null) {
+            adjustFearLevel(perception.nearestThreat());
         }
-        
-        // Use the seek resource goal's detection instead of simulating it
-        // This connects to real game mechanics
-        AgentGoals.checkForDanger(this, perceptionRadius, memory);
-        AgentGoals.checkForAllies(this, perceptionRadius, memory);
-        AgentGoals.checkForResources(this, perceptionRadius, memory);
+
+        // Remember an injured ally so HELP_ALLY has someone to go to
+        if (perception.injuredAlly() != null) {
+            memory.setTargetEntity(perception.injuredAlly());
+        }
+
         // Simulate hunger increasing over time
-        if (random.nextFloat() < 0.01f) {
+        if (random.nextFloat() < 0.01f * elapsedTicks) {
             memory.setHungerLevel(Math.min(100, memory.getHungerLevel() + 1));
         }
     }
@@ -851,32 +817,15 @@ public class AgentEntity extends PathfinderMob implements InventoryCarrier {
     /**
      * Determine if an entity is considered dangerous
      */
-    private boolean isEntityDangerous(LivingEntity entity) {
-        // Check if entity is hostile mob
-        if (entity instanceof Monster) {
-            return true;
-        }
-
-        // Check if it's a player with weapons
-        if (entity instanceof Player player) {
-            ItemStack mainHand = player.getMainHandItem();
-            ItemStack offHand = player.getOffhandItem();
-            return mainHand.isDamageableItem() || offHand.isDamageableItem();
-        }
-
-        // Check if entity has attacked us recently
-        if (entity == this.getLastHurtByMob() &&
-                (level().getGameTime() - this.getLastHurtByMobTimestamp()) < 200) {
-            return true;
-        }
-
-        return false;
+    public boolean isEntityDangerous(LivingEntity entity) {
+        // Hostile mobs, armed players and recent attackers are tracked by the ThreatRegistry
+        return this.level() instanceof ServerLevel serverLevel && ThreatRegistry.get(serverLevel).isThreat(entity);
     }
     
     /**
      * Determine if an entity is an ally
      */
-    private boolean isEntityAlly(LivingEntity entity) {
+    public boolean isEntityAlly(LivingEntity entity) {
         // This is a simple implementation - could be more complex
         return entity.getType() == this.getType();
     }
@@ -1,13 +1,14 @@
 package com.mas.masonry;
 
+import com.mas.masonry.agent.perception.PerceptionSnapshot;
+import com.mas.masonry.agent.world.FoodBlockIndex;
 import net.minecraft.world.entity.ai.targeting.TargetingConditions;
 
 import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.entity.ai.goal.Goal;
 import net.minecraft.world.entity.item.ItemEntity;
-import net.minecraft.world.entity.monster.Monster;
-import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.Items;
 import net.minecraft.world.level.block.Blocks;
@@ -15,126 +16,25 @@ import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.phys.Vec3;
 
 import java.util.EnumSet;
-import java.util.List;
 import java.util.Optional;
 
 public class AgentGoals {
 
     /**
-     * Utility method to check for resources near the agent
+     * Finds the nearest food-providing block around the agent using the level's food block index
      */
-    public static void checkForResources(AgentEntity agent, double radius, AgentEntity.AgentMemory memory) {
-        // Check for dropped food items
-        List<ItemEntity> items = agent.level().getEntitiesOfClass(
-                ItemEntity.class,
-                agent.getBoundingBox().inflate(radius),
-                item -> isFoodItem(item.getItem())
-        );
-
-        if (!items.isEmpty()) {
-            memory.setResourceNearby(true);
-            return;
-        }
-        
-        // Check for food-providing blocks
-        int searchBlockRadius = (int) radius;
-        BlockPos agentPos = agent.blockPosition();
-        
-        for (int x = -searchBlockRadius; x <= searchBlockRadius; x++) {
-            for (int y = -3; y <= 3; y++) {
-                for (int z = -searchBlockRadius; z <= searchBlockRadius; z++) {
-                    BlockPos checkPos = agentPos.offset(x, y, z);
-                    BlockState state = agent.level().getBlockState(checkPos);
-                    
-                    if (isFoodBlock(state)) {
-                        memory.setResourceNearby(true);
-                        return;
-                    }
-                }
-            }
-        }
-    }
-
-    public static void checkForDanger(AgentEntity agent, double radius, AgentEntity.AgentMemory memory) {
-        List<LivingEntity> nearbyEntities = agent.level().getEntitiesOfClass(
-                LivingEntity.class,
-                agent.getBoundingBox().inflate(radius),
-                entity -> entity != agent && isDangerous(entity, agent)
-        );
-
-        if (!nearbyEntities.isEmpty()) {
-            memory.setDangerNearby(true);
-            // Update fear level based on closest threat
-            LivingEntity closestThreat = nearbyEntities.get(0);
-            for (LivingEntity threat : nearbyEntities) {
-                if (agent.distanceToSqr(threat) < agent.distanceToSqr(closestThreat)) {
-                    closestThreat = threat;
-                }
-            }
-            adjustFearLevel(agent, closestThreat, radius, memory);
-        }
-    }
-
-    /**
-     * Utility method to check for allies near the agent
-     */
-    public static void checkForAllies(AgentEntity agent, double radius, AgentEntity.AgentMemory memory) {
-        List<AgentEntity> nearbyAllies = agent.level().getEntitiesOfClass(
-                AgentEntity.class,
-                agent.getBoundingBox().inflate(radius),
-                ally -> ally != agent && ally.getType() == agent.getType()
-        );
-
-        if (!nearbyAllies.isEmpty()) {
-            memory.setAllyNearby(true);
-            // Optionally identify allies that need help
-            for (AgentEntity ally : nearbyAllies) {
-                if (ally.getMemory().getHealthPercent() < 50) {
-                    memory.setTargetEntity(ally);
-                    break;
-                }
-            }
-        }
-    }
-
-    /**
-     * Helper method to determine if an entity is dangerous
-     */
-    private static boolean isDangerous(LivingEntity entity, AgentEntity agent) {
-        // Check if entity is hostile mob
-        if (entity instanceof Monster) {
-            return true;
-        }
-
-        // Check if it's a recent attacker
-        if (entity == agent.getLastHurtByMob() &&
-                (agent.level().getGameTime() - agent.getLastHurtByMobTimestamp()) < 200) {
-            return true;
-        }
-
-        // Check if it's an armed player
-        if (entity instanceof Player player) {
-            return player.getMainHandItem().isDamageableItem() ||
-                    player.getOffhandItem().isDamageableItem();
+    public static Optional<BlockPos> findFoodBlock(AgentEntity agent, int searchBlockRadius) {
+        if (!(agent.level() instanceof ServerLevel serverLevel)) {
+            return Optional.empty();
         }
-
-        return false;
+        return FoodBlockIndex.get(serverLevel).findNearest(agent.blockPosition(), searchBlockRadius, 3);
     }
 
-    /**
-     * Helper method to adjust fear level based on threat proximity
-     */
-    private static void adjustFearLevel(AgentEntity agent, LivingEntity threat,
-                                        double radius, AgentEntity.AgentMemory memory) {
-        double distance = agent.distanceTo(threat);
-        int fearIncrease = (int)((radius - distance) / radius * 20);
-        memory.setFearLevel(Math.min(100, memory.getFearLevel() + fearIncrease));
-    }
     /**
      * Utility method to check if an item is food
      */
 
-    private static boolean isFoodItem(ItemStack stack) {
+    public static boolean isFoodItem(ItemStack stack) {
         return stack.is(Items.WHEAT) ||
                stack.is(Items.CARROT) ||
                stack.is(Items.POTATO) ||
@@ -144,7 +44,7 @@ public class AgentGoals {
     /**
      * Utility method to check if a block is a food source
      */
-    private static boolean isFoodBlock(BlockState state) {
+    public static boolean isFoodBlock(BlockState state) {
         return state.is(Blocks.WHEAT) || 
                state.is(Blocks.CARROTS) || 
                state.is(Blocks.POTATOES) || 
@@ -219,7 +119,7 @@ public class AgentGoals {
             if (targetPos != null && agent.position().distanceTo(targetPos) < 1.5) {
                 // Simulate finding food
                 agent.getMemory().setHungerLevel(Math.max(0, agent.getMemory().getHungerLevel() - 25));
-                System.out.println(agent.getName().getString() + " collected resource, hunger now: " + agent.getMemory().getHungerLevel());
+                MASONRY.LOGGER.debug("{} collected resource, hunger now: {}", agent.getName().getString(), agent.getMemory().getHungerLevel());
                 
                 // Resource collected, clear target
                 stop();
@@ -230,40 +130,16 @@ public class AgentGoals {
         }
 
         private Optional<Vec3> findNearestResource() {
-            // First, check for dropped food items
-            List<ItemEntity> items = agent.level().getEntitiesOfClass(
-                ItemEntity.class,
-                agent.getBoundingBox().inflate(searchRadius),
-                item -> isFoodItem(item.getItem())
-            );
-
-            if (!items.isEmpty()) {
-                ItemEntity nearest = items.getFirst();
-                for (ItemEntity item : items) {
-                    if (agent.distanceToSqr(item) < agent.distanceToSqr(nearest)) {
-                        nearest = item;
-                    }
-                }
-                agent.getMemory().setResourceNearby(true);
-                return Optional.of(nearest.position());
+            // Reuse what the last perception pass saw: dropped food first, then food-providing blocks
+            PerceptionSnapshot perception = agent.getMemory().getPerception();
+            ItemEntity nearestItem = perception.nearestFoodItem();
+            if (nearestItem != null && nearestItem.isAlive() && agent.distanceTo(nearestItem) <= searchRadius) {
+                return Optional.of(nearestItem.position());
             }
 
-            // Next, check for food-providing blocks (crops, etc.)
-            int searchBlockRadius = (int) searchRadius;
-            BlockPos agentPos = agent.blockPosition();
-            
-            for (int x = -searchBlockRadius; x <= searchBlockRadius; x++) {
-                for (int y = -3; y <= 3; y++) {
-                    for (int z = -searchBlockRadius; z <= searchBlockRadius; z++) {
-                        BlockPos checkPos = agentPos.offset(x, y, z);
-                        BlockState state = agent.level().getBlockState(checkPos);
-                        
-                        if (isFoodBlock(state)) {
-                            agent.getMemory().setResourceNearby(true);
-                            return Optional.of(Vec3.atCenterOf(checkPos));
-                        }
-                    }
-                }
+            BlockPos foodBlock = perception.foodBlock();
+            if (foodBlock != null && foodBlock.closerToCenterThan(agent.position(), searchRadius)) {
+                return Optional.of(Vec3.atCenterOf(foodBlock));
             }
             
             return Optional.empty();
@@ -290,16 +166,11 @@ public class AgentGoals {
                 return false;
             }
 
-            // Find nearest hostile entity
-            List<LivingEntity> nearbyEntities = agent.level().getEntitiesOfClass(
-                    LivingEntity.class,
-                    agent.getBoundingBox().inflate(16.0),
-                    entity -> entity != agent && isHostile(entity)
-            );
+            // Nearest threat as classified by the last perception pass
+            LivingEntity threat = agent.getMemory().getNearestDanger();
 
-            if (!nearbyEntities.isEmpty()) {
+            if (threat != null) {
                 // Find escape position away from danger
-                LivingEntity threat = nearbyEntities.get(0);
                 Vec3 awayDir = agent.position().subtract(threat.position()).normalize();
                 escapePos = agent.position().add(awayDir.scale(10.0));
                 return true;
@@ -327,11 +198,6 @@ public class AgentGoals {
             agent.getNavigation().stop();
             escapePos = null;
         }
-
-        private boolean isHostile(LivingEntity entity) {
-            return entity instanceof Monster ||
-                    entity == agent.getLastHurtByMob();
-        }
     }
 
     /**
@@ -359,19 +225,15 @@ public class AgentGoals {
                 return false;
             }
 
-// Find nearby ally that needs help (low health)
-List<AgentEntity> nearbyAllies = agent.level().getEntitiesOfClass(
-AgentEntity.class,
-agent.getBoundingBox().inflate(searchRange),
-ally -> ally != agent &&
-ALLY_PREDICATE.test(agent, ally) &&
-ally.getMemory().getHealthPercent() < 50
-);
-
-if (!nearbyAllies.isEmpty()) {
-targetAlly = nearbyAllies.get(0);
-return true;
-}
+            // Find nearby ally that needs help (low health) among the allies already perceived
+            for (AgentEntity ally : agent.getMemory().getPerception().allies()) {
+                if (ally.getMemory().getHealthPercent() < 50 &&
+                        agent.distanceTo(ally) <= searchRange &&
+                        ALLY_PREDICATE.test(agent, ally)) {
+                    targetAlly = ally;
+                    return true;
+                }
+            }
 
             return false;
         }
@@ -1,5 +1,6 @@
 package com.mas.masonry;
 
+import com.mas.masonry.agent.fsm.TransitionTable;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.item.Item;
 import net.minecraftforge.common.ForgeConfigSpec;
@@ -36,12 +37,132 @@ public class Config
             .comment("A list of items to log on common setup.")
             .defineListAllowEmpty("items", List.of("minecraft:iron_ingot"), Config::validateItemName);
 
+    private static final ForgeConfigSpec.IntValue LOD_NEAR_PLAYER_DISTANCE = BUILDER
+            .comment("Agents within this many blocks of a player think every tick unless idle")
+            .defineInRange("lodNearPlayerDistance", 32, 0, 512);
+
+    private static final ForgeConfigSpec.IntValue LOD_FAR_PLAYER_DISTANCE = BUILDER
+            .comment("Beyond this many blocks from any player, agents drop to the far/dormant perception tiers")
+            .defineInRange("lodFarPlayerDistance", 96, 0, 1024);
+
+    private static final ForgeConfigSpec.IntValue LOD_NEAR_INTERVAL = BUILDER
+            .comment("Ticks between perception updates for agents in the NEAR tier")
+            .defineInRange("lodNearInterval", 4, 1, 200);
+
+    private static final ForgeConfigSpec.IntValue LOD_FAR_INTERVAL = BUILDER
+            .comment("Ticks between perception updates for agents in the FAR tier")
+            .defineInRange("lodFarInterval", 10, 1, 200);
+
+    private static final ForgeConfigSpec.IntValue LOD_DORMANT_INTERVAL = BUILDER
+            .comment("Ticks between perception updates for idle agents far from every player")
+            .defineInRange("lodDormantInterval", 20, 1, 200);
+
+    private static final ForgeConfigSpec.IntValue NEGATIVE_SEARCH_CACHE_TICKS = BUILDER
+            .comment("How long a chunk section that held no usable target block is skipped by block searches")
+            .defineInRange("negativeSearchCacheTicks", 1200, 0, 72000);
+
+    private static final ForgeConfigSpec.IntValue SYNC_BLOCK_SCAN_RADIUS = BUILDER
+            .comment("Target block searches up to this radius run inline; larger ones are handed to the scan threads")
+            .defineInRange("syncBlockScanRadius", 16, 0, 128);
+
+    private static final ForgeConfigSpec.IntValue ASYNC_BLOCK_SCAN_RADIUS = BUILDER
+            .comment("Largest radius an agent will widen its target block search to")
+            .defineInRange("asyncBlockScanRadius", 48, 8, 128);
+
+    private static final ForgeConfigSpec.IntValue ASYNC_SCAN_THREADS = BUILDER
+            .comment("Worker threads for off-thread block searches (takes effect on server restart)")
+            .defineInRange("asyncScanThreads", 2, 1, 16);
+
+    private static final ForgeConfigSpec.IntValue RESOURCE_BLACKBOARD_TICKS = BUILDER
+            .comment("How long a resource location shared between agents stays on the colony blackboard")
+            .defineInRange("resourceBlackboardTicks", 6000, 20, 72000);
+
+    private static final ForgeConfigSpec.DoubleValue AGENT_TICK_BUDGET_MS = BUILDER
+            .comment("Milliseconds per server tick agents may spend thinking; agents that don't fit wait for the next tick.",
+                    "Fighting, fleeing and recently hurt agents, and busy agents right next to a player, always run.")
+            .defineInRange("agentTickBudgetMs", 10.0, 0.5, 50.0);
+
+    private static final ForgeConfigSpec.IntValue DECISION_THREADS = BUILDER
+            .comment("Threads used to evaluate agent state transitions in parallel when many agents think in the same tick",
+                    "(takes effect on server restart)")
+            .defineInRange("decisionThreads", 2, 1, 16);
+
+    private static final ForgeConfigSpec.IntValue FLOW_FIELD_RADIUS = BUILDER
+            .comment("Horizontal radius of the shared flow fields built around busy agent destinations")
+            .defineInRange("flowFieldRadius", 24, 8, 64);
+
+    private static final ForgeConfigSpec.IntValue FLOW_FIELD_MIN_AGENTS = BUILDER
+            .comment("How many agents have to head for the same destination within a few seconds before they share a flow field")
+            .defineInRange("flowFieldMinAgents", 3, 1, 64);
+
+    private static final ForgeConfigSpec.IntValue HOME_RADIUS = BUILDER
+            .comment("Agents further than this many blocks from where they first appeared count as far from home")
+            .defineInRange("homeRadius", 64, 8, 1024);
+
+    private static final ForgeConfigSpec.BooleanValue ASYNC_PATHING = BUILDER
+            .comment("Whether paths to nearby destinations are computed on worker threads instead of the server thread")
+            .define("asyncPathing", true);
+
+    private static final ForgeConfigSpec.IntValue ASYNC_PATH_THREADS = BUILDER
+            .comment("Worker threads used for asynchronous agent pathfinding")
+            .defineInRange("asyncPathThreads", 2, 1, 16);
+
+    private static final ForgeConfigSpec.IntValue ASYNC_PATH_NODE_BUDGET = BUILDER
+            .comment("Cells an asynchronous path search may expand before it settles for a partial path")
+            .defineInRange("asyncPathNodeBudget", 4000, 100, 100000);
+
+    private static final ForgeConfigSpec.IntValue UNREACHABLE_TARGET_COOLDOWN_TICKS = BUILDER
+            .comment("Ticks an agent skips a block it gave up trying to reach")
+            .defineInRange("unreachableTargetCooldownTicks", 1200, 0, 72000);
+
+    private static final ForgeConfigSpec.BooleanValue BATCHED_PLACEMENT = BUILDER
+            .comment("Whether agent block placements are queued and applied in batches at the end of each tick")
+            .define("batchedPlacement", true);
+
+    private static final ForgeConfigSpec.IntValue PLACEMENT_BLOCKS_PER_TICK = BUILDER
+            .comment("Queued agent block placements applied per tick in each dimension; the rest wait for the next tick")
+            .defineInRange("placementBlocksPerTick", 64, 1, 4096);
+
+    private static final ForgeConfigSpec.IntValue MATERIAL_TRIP_MAX_BLOCKS = BUILDER
+            .comment("Most blocks an agent harvests for a construction project before heading back to build")
+            .defineInRange("materialTripMaxBlocks", 16, 1, 256);
+
+    private static final ForgeConfigSpec.ConfigValue<List<? extends String>> FSM_TRANSITIONS = BUILDER
+            .comment("Agent state transitions as \"FROM -> TO when guard & guard\", checked in order; the first match wins.",
+                    "FROM may be a comma separated list of states, or * for every state without rules of its own.",
+                    "Guards: danger, resource, ally, fleeingAlly, hasTarget, targetAlive, unsharedDiscoveries, constructionPending, farFromHome",
+                    "(prefix with ! to negate), fear/hunger/health/social/ticksInState compared to a number, or chance<p.",
+                    "Edits are picked up while the server is running; if any rule is malformed it is logged and the previous rules stay in effect.")
+            .defineListAllowEmpty("fsmTransitions", TransitionTable.DEFAULT_RULES, TransitionTable::isRuleString);
+
     static final ForgeConfigSpec SPEC = BUILDER.build();
 
     public static boolean logDirtBlock;
     public static int magicNumber;
     public static String magicNumberIntroduction;
     public static Set<Item> items;
+    public static int lodNearPlayerDistance = 32;
+    public static int lodFarPlayerDistance = 96;
+    public static int lodNearInterval = 4;
+    public static int lodFarInterval = 10;
+    public static int lodDormantInterval = 20;
+    public static int negativeSearchCacheTicks = 1200;
+    public static int syncBlockScanRadius = 16;
+    public static int asyncBlockScanRadius = 48;
+    public static int asyncScanThreads = 2;
+    public static int resourceBlackboardTicks = 6000;
+    public static double agentTickBudgetMs = 10.0;
+    public static int decisionThreads = 2;
+    public static int flowFieldRadius = 24;
+    public static int flowFieldMinAgents = 3;
+    public static int homeRadius = 64;
+    public static boolean asyncPathing = true;
+    public static int asyncPathThreads = 2;
+    public static int asyncPathNodeBudget = 4000;
+    public static int unreachableTargetCooldownTicks = 1200;
+    public static boolean batchedPlacement = true;
+    public static int placementBlocksPerTick = 64;
+    public static int materialTripMaxBlocks = 16;
 
     private static boolean validateItemName(final Object obj)
     {
@@ -54,6 +175,29 @@ public class Config
         logDirtBlock = LOG_DIRT_BLOCK.get();
         magicNumber = MAGIC_NUMBER.get();
         magicNumberIntroduction = MAGIC_NUMBER_INTRODUCTION.get();
+        lodNearPlayerDistance = LOD_NEAR_PLAYER_DISTANCE.get();
+        lodFarPlayerDistance = LOD_FAR_PLAYER_DISTANCE.get();
+        lodNearInterval = LOD_NEAR_INTERVAL.get();
+        lodFarInterval = LOD_FAR_INTERVAL.get();
+        lodDormantInterval = LOD_DORMANT_INTERVAL.get();
+        negativeSearchCacheTicks = NEGATIVE_SEARCH_CACHE_TICKS.get();
+        syncBlockScanRadius = SYNC_BLOCK_SCAN_RADIUS.get();
+        asyncBlockScanRadius = ASYNC_BLOCK_SCAN_RADIUS.get();
+        asyncScanThreads = ASYNC_SCAN_THREADS.get();
+        resourceBlackboardTicks = RESOURCE_BLACKBOARD_TICKS.get();
+        agentTickBudgetMs = AGENT_TICK_BUDGET_MS.get();
+        decisionThreads = DECISION_THREADS.get();
+        flowFieldRadius = FLOW_FIELD_RADIUS.get();
+        flowFieldMinAgents = FLOW_FIELD_MIN_AGENTS.get();
+        homeRadius = HOME_RADIUS.get();
+        asyncPathing = ASYNC_PATHING.get();
+        asyncPathThreads = ASYNC_PATH_THREADS.get();
+        asyncPathNodeBudget = ASYNC_PATH_NODE_BUDGET.get();
+        unreachableTargetCooldownTicks = UNREACHABLE_TARGET_COOLDOWN_TICKS.get();
+        batchedPlacement = BATCHED_PLACEMENT.get();
+        placementBlocksPerTick = PLACEMENT_BLOCKS_PER_TICK.get();
+        materialTripMaxBlocks = MATERIAL_TRIP_MAX_BLOCKS.get();
+        TransitionTable.reload(FSM_TRANSITIONS.get());
 
         // convert the list of strings into a set of items
         items = ITEM_STRINGS.get().stream()
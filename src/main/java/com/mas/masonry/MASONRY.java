@@ -50,6 +50,14 @@ import net.minecraft.client.model.HumanoidModel;
 import net.minecraft.client.model.geom.ModelLayers;
 import net.minecraft.client.renderer.entity.EntityRendererProvider;
 import com.mas.masonry.items.TaskPaperItem;
+import com.mas.masonry.agent.construction.JobBoard;
+import com.mas.masonry.agent.movement.ChunkPortalGraph;
+import com.mas.masonry.agent.movement.FlowFieldCache;
+import com.mas.masonry.agent.world.AsyncBlockScanService;
+import com.mas.masonry.agent.world.BlockChangeTracker;
+import com.mas.masonry.agent.world.FoodBlockIndex;
+import com.mas.masonry.agent.world.NegativeSearchCache;
+import com.mas.masonry.agent.world.ResourceBlackboard;
 
 // The value here should match an entry in the META-INF/mods.toml file
 @Mod(MASONRY.MODID)
@@ -224,6 +232,15 @@ public class MASONRY
         LOGGER.info(Config.magicNumberIntroduction + Config.magicNumber);
 
         Config.items.forEach((item) -> LOGGER.info("ITEM >> {}", item.toString()));
+
+        // Keep the agent world indices in sync with block changes
+        BlockChangeTracker.addListener(FoodBlockIndex::handleBlockChange);
+        BlockChangeTracker.addListener(NegativeSearchCache::handleBlockChange);
+        BlockChangeTracker.addListener(AsyncBlockScanService::handleBlockChange);
+        BlockChangeTracker.addListener(ResourceBlackboard::handleBlockChange);
+        BlockChangeTracker.addListener(FlowFieldCache::handleBlockChange);
+        BlockChangeTracker.addListener(ChunkPortalGraph::handleBlockChange);
+        BlockChangeTracker.addListener(JobBoard::handleBlockChange);
     }
 
     // Add the example block item to the building blocks tab
@@ -0,0 +1,186 @@
+package com.mas.masonry;
+
+import com.mas.masonry.agent.construction.BlueprintLoader;
+import com.mas.masonry.agent.construction.CompiledBlueprint;
+import com.mas.masonry.agent.construction.JobBoard;
+import com.mas.masonry.agent.construction.MaterialPlanner;
+import com.mas.masonry.agent.construction.PlacementQueue;
+import com.mas.masonry.agent.construction.RecipeGraph;
+import com.mas.masonry.agent.fsm.TransitionTable;
+import com.mas.masonry.agent.movement.AsyncPathService;
+import com.mas.masonry.agent.movement.ChunkPortalGraph;
+import com.mas.masonry.agent.movement.CrowdSteering;
+import com.mas.masonry.agent.movement.FlowFieldCache;
+import com.mas.masonry.agent.movement.HierarchicalPlanner;
+import com.mas.masonry.agent.movement.MovementController;
+import com.mas.masonry.agent.movement.StandingReservations;
+import com.mas.masonry.agent.movement.UnreachableTargets;
+import com.mas.masonry.agent.perception.ThreatRegistry;
+import com.mas.masonry.agent.schedule.AgentScheduler;
+import com.mas.masonry.agent.schedule.PerceptionLodScheduler;
+import com.mas.masonry.agent.world.AsyncBlockScanService;
+import com.mas.masonry.agent.world.NegativeSearchCache;
+import com.mas.masonry.agent.world.ResourceBlackboard;
+import com.mas.masonry.agent.world.WorldView;
+import com.mojang.brigadier.CommandDispatcher;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.commands.arguments.ResourceLocationArgument;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraftforge.event.RegisterCommandsEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.List;
+
+/**
+ * Operator commands for inspecting the agent simulation while tuning it.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public class MasonryCommands {
+
+    @SubscribeEvent
+    public static void onRegisterCommands(RegisterCommandsEvent event) {
+        register(event.getDispatcher());
+    }
+
+    private static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
+        dispatcher.register(Commands.literal(MASONRY.MODID)
+                .requires(source -> source.hasPermission(2))
+                .then(Commands.literal("lod").executes(context -> {
+                    int[] counts = PerceptionLodScheduler.getTierCounts();
+                    StringBuilder message = new StringBuilder("Agent perception tiers:");
+                    for (PerceptionLodScheduler.Tier tier : PerceptionLodScheduler.Tier.values()) {
+                        message.append(' ').append(tier.name()).append('=').append(counts[tier.ordinal()])
+                                .append(" (every ").append(PerceptionLodScheduler.intervalFor(tier)).append("t)");
+                    }
+                    context.getSource().sendSuccess(() -> Component.literal(message.toString()), false);
+                    return 1;
+                }))
+                .then(Commands.literal("search").executes(context -> {
+                    int cachedSections = NegativeSearchCache.get(context.getSource().getLevel()).getSectionCount();
+                    context.getSource().sendSuccess(() -> Component.literal(String.format(
+                            "Block search negative cache: %d sections here, %d hits, %d stores",
+                            cachedSections, NegativeSearchCache.getHits(), NegativeSearchCache.getStores())), false);
+                    context.getSource().sendSuccess(() -> Component.literal(String.format(
+                            "Chunk loads avoided by agent reads: %d", WorldView.getAvoidedLoads())), false);
+                    context.getSource().sendSuccess(() -> Component.literal(String.format(
+                            "Async block scans: %d submitted, %d delivered, %d pending",
+                            AsyncBlockScanService.getSubmittedCount(), AsyncBlockScanService.getDeliveredCount(),
+                            AsyncBlockScanService.getPendingCount())), false);
+                    return 1;
+                }))
+                .then(Commands.literal("blackboard").executes(context -> {
+                    int entries = ResourceBlackboard.get(context.getSource().getLevel()).getEntryCount();
+                    context.getSource().sendSuccess(() -> Component.literal(String.format(
+                            "Resource blackboard: %d entries here, %d published, %d taken, %d rejected as stale",
+                            entries, ResourceBlackboard.getPublishedCount(), ResourceBlackboard.getTakenCount(),
+                            ResourceBlackboard.getRejectedCount())), false);
+                    return 1;
+                }))
+                .then(Commands.literal("threats").executes(context -> {
+                    ThreatRegistry registry = ThreatRegistry.get(context.getSource().getLevel());
+                    context.getSource().sendSuccess(() -> Component.literal(String.format(
+                            "Threat registry: %d threats, %d subscribed agents here, %d change pushes",
+                            registry.getThreatCount(), registry.getSubscriberCount(), ThreatRegistry.getPushCount())), false);
+                    return 1;
+                }))
+                .then(Commands.literal("fsm").executes(context -> {
+                    TransitionTable table = TransitionTable.current();
+                    List<String> rules = table.getRules();
+                    StringBuilder message = new StringBuilder("FSM transitions fired since the table was loaded:");
+                    for (int i = 0; i < rules.size(); i++) {
+                        message.append('\n').append(table.getFireCount(i)).append("  ").append(rules.get(i));
+                    }
+                    context.getSource().sendSuccess(() -> Component.literal(message.toString()), false);
+                    return 1;
+                }))
+                .then(Commands.literal("scheduler").executes(context -> {
+                    context.getSource().sendSuccess(() -> Component.literal(String.format(
+                            "Agent scheduler: %d agents, %d ran last tick in %.2f ms (budget %.1f ms), %d carried over, %d ticks over budget",
+                            AgentScheduler.getAgentCount(), AgentScheduler.getLastRunCount(), AgentScheduler.getLastMillis(),
+                            Config.agentTickBudgetMs, AgentScheduler.getLastCarriedOverCount(),
+                            AgentScheduler.getOverBudgetTicks())), false);
+                    return 1;
+                }))
+                .then(Commands.literal("movement").executes(context -> {
+                    long gameTime = context.getSource().getLevel().getGameTime();
+                    int fields = FlowFieldCache.get(context.getSource().getLevel()).getFieldCount();
+                    context.getSource().sendSuccess(() -> Component.literal(String.format(
+                            "Agent movement: %.1f paths/s, %d paths computed, %d ticks reused an existing path; "
+                                    + "%d flow fields here (%d built, %d block changes applied in %d updates), %d flow field steps",
+                            MovementController.getPathsPerSecond(gameTime), MovementController.getPathsComputed(),
+                            MovementController.getPathsReused(), fields, FlowFieldCache.getBuildCount(),
+                            FlowFieldCache.getInvalidationCount(), FlowFieldCache.getUpdateCount(), FlowFieldCache.getStepCount())), false);
+                    int cells = ChunkPortalGraph.get(context.getSource().getLevel()).getCellCount();
+                    context.getSource().sendSuccess(() -> Component.literal(String.format(
+                            "Long-range planning: %d plans (%d failed), %d chunks in the portal graph here, "
+                                    + "%d surface builds, %d border builds, %d surface invalidations",
+                            HierarchicalPlanner.getPlanCount(), HierarchicalPlanner.getFailureCount(), cells,
+                            ChunkPortalGraph.getSurfaceBuildCount(), ChunkPortalGraph.getBorderBuildCount(),
+                            ChunkPortalGraph.getInvalidationCount())), false);
+                    context.getSource().sendSuccess(() -> Component.literal(String.format(
+                            "Async pathing: %d pending, %d submitted, %d shared with an identical request, "
+                                    + "%d delivered (%d partial)",
+                            AsyncPathService.getPendingCount(), AsyncPathService.getSubmittedCount(),
+                            AsyncPathService.getCoalescedCount(), AsyncPathService.getDeliveredCount(),
+                            AsyncPathService.getPartialCount())), false);
+                    context.getSource().sendSuccess(() -> Component.literal(String.format(
+                            "Stuck detection: %d targets given up as unreachable",
+                            UnreachableTargets.getMarkedCount())), false);
+                    int reservations = StandingReservations.get(context.getSource().getLevel()).getReservationCount();
+                    context.getSource().sendSuccess(() -> Component.literal(String.format(
+                            "Crowding: %d standing cells reserved here (%d granted, %d requests found none free), "
+                                    + "%d avoidance nudges",
+                            reservations, StandingReservations.getGrantedCount(),
+                            StandingReservations.getExhaustedCount(), CrowdSteering.getNudgeCount())), false);
+                    return 1;
+                }))
+                .then(Commands.literal("blueprint")
+                        .then(Commands.argument("id", ResourceLocationArgument.id()).executes(context -> {
+                            ResourceLocation id = ResourceLocationArgument.getId(context, "id");
+                            CompiledBlueprint blueprint = BlueprintLoader.get(context.getSource().getServer(), id);
+                            if (blueprint == null) {
+                                context.getSource().sendFailure(Component.literal("No structure template named " + id));
+                                return 0;
+                            }
+                            context.getSource().sendSuccess(() -> Component.literal(String.format(
+                                    "Blueprint %s: %d blocks in %dx%dx%d, %d block states, %d bytes (%d blueprints cached)",
+                                    id, blueprint.getBlockCount(), blueprint.getSize().getX(), blueprint.getSize().getY(),
+                                    blueprint.getSize().getZ(), blueprint.getPaletteSize(), blueprint.getFootprintBytes(),
+                                    BlueprintLoader.getCachedCount())), false);
+                            return 1;
+                        })))
+                .then(Commands.literal("construction").executes(context -> {
+                    JobBoard board = JobBoard.get(context.getSource().getLevel());
+                    context.getSource().sendSuccess(() -> Component.literal(String.format(
+                            "Construction: %d projects here (%d blocks missing, %d obstructed), %d block claims "
+                                    + "(%d taken over after a lapsed lease), %d blocks finished",
+                            board.getProjectCount(), board.getMissingCount(), board.getObstructedCount(),
+                            JobBoard.getClaimCount(), JobBoard.getReclaimCount(),
+                            JobBoard.getPlacementCount())), false);
+                    return 1;
+                }))
+                .then(Commands.literal("placement").executes(context -> {
+                    int waiting = PlacementQueue.get(context.getSource().getLevel()).size();
+                    context.getSource().sendSuccess(() -> Component.literal(String.format(
+                            "Placement (%s, %d blocks/tick): %d queued here, %d enqueued, %d placed in %d section batches, "
+                                    + "%d neighbour updates, %d handed back",
+                            Config.batchedPlacement ? "batched" : "direct", Config.placementBlocksPerTick, waiting,
+                            PlacementQueue.getEnqueuedCount(), PlacementQueue.getPlacedCount(),
+                            PlacementQueue.getSectionCount(), PlacementQueue.getNeighbourUpdateCount(),
+                            PlacementQueue.getRefundedCount())), false);
+                    return 1;
+                }))
+                .then(Commands.literal("materials").executes(context -> {
+                    context.getSource().sendSuccess(() -> Component.literal(String.format(
+                            "Materials: %d gathering trips for %d blocks, %d legs (%d came back empty), %d items crafted, "
+                                    + "%d recipe routes cached",
+                            MaterialPlanner.getTripCount(), MaterialPlanner.getPlannedBlockCount(),
+                            MaterialPlanner.getLegCount(), MaterialPlanner.getAbandonedLegCount(),
+                            MaterialPlanner.getCraftedCount(), RecipeGraph.getRouteCount())), false);
+                    return 1;
+                })));
+    }
+}
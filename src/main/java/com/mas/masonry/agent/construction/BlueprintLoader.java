@@ -0,0 +1,189 @@
+package com.mas.masonry.agent.construction;
+
+import com.mas.masonry.MASONRY;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtAccounter;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtUtils;
+import net.minecraft.nbt.Tag;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.packs.resources.Resource;
+import net.minecraft.server.packs.resources.ResourceManagerReloadListener;
+import net.minecraft.util.datafix.DataFixTypes;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.storage.LevelResource;
+import net.minecraftforge.event.AddReloadListenerEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Loads {@link CompiledBlueprint}s from vanilla structure templates: files saved with a structure block
+ * into the world's {@code generated} folder, then {@code data/<namespace>/structures/<path>.nbt} in data
+ * packs and mod resources. Each template is parsed once and kept until the data packs reload.
+ * <p>
+ * Air in a template is left out, since agents only need to place blocks; blocks are ordered bottom
+ * layer first so every layer stands on the one below it.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public final class BlueprintLoader {
+    public static final ResourceLocation SIMPLE_HUT = ResourceLocation.fromNamespaceAndPath(MASONRY.MODID, "simple_hut");
+
+    private static final Map<ResourceLocation, CompiledBlueprint> CACHE = new HashMap<>();
+    private static final Set<ResourceLocation> MISSING = new HashSet<>(); // Not found or unreadable; not retried until reload
+
+    private static CompiledBlueprint simpleHut;
+
+    private BlueprintLoader() {}
+
+    /**
+     * The built-in hut, compiled from {@link MASONRY#SIMPLE_HUT_BLUEPRINT} in its hand-written order.
+     */
+    public static synchronized CompiledBlueprint simpleHut() {
+        if (simpleHut == null) {
+            simpleHut = CompiledBlueprint.of(SIMPLE_HUT, MASONRY.SIMPLE_HUT_BLUEPRINT);
+        }
+        return simpleHut;
+    }
+
+    /**
+     * The blueprint with the given id, parsing its template on first use. Must be called on the server thread.
+     * @return Null if there is no such template or it could not be read.
+     */
+    @Nullable
+    public static CompiledBlueprint get(MinecraftServer server, ResourceLocation id) {
+        CompiledBlueprint cached = CACHE.get(id);
+        if (cached != null || MISSING.contains(id)) {
+            return cached;
+        }
+        CompoundTag template = readTemplate(server, id);
+        CompiledBlueprint blueprint = null;
+        if (template != null) {
+            try {
+                blueprint = compile(id, update(server, template));
+            } catch (RuntimeException e) {
+                MASONRY.LOGGER.warn("Could not compile blueprint {}", id, e);
+            }
+        }
+        if (blueprint == null && id.equals(SIMPLE_HUT)) {
+            blueprint = simpleHut();
+        }
+        if (blueprint == null) {
+            MISSING.add(id);
+            return null;
+        }
+        CACHE.put(id, blueprint);
+        return blueprint;
+    }
+
+    public static int getCachedCount() { return CACHE.size(); }
+
+    @Nullable
+    private static CompoundTag readTemplate(MinecraftServer server, ResourceLocation id) {
+        // Structure block saves win over packaged templates, as they do for vanilla structures
+        Path generated = server.getWorldPath(LevelResource.GENERATED_DIR).resolve(id.getNamespace())
+                .resolve("structures").resolve(id.getPath() + ".nbt");
+        try {
+            if (Files.isRegularFile(generated)) {
+                try (InputStream in = Files.newInputStream(generated)) {
+                    return NbtIo.readCompressed(in, NbtAccounter.unlimitedHeap());
+                }
+            }
+            ResourceLocation file = ResourceLocation.fromNamespaceAndPath(id.getNamespace(), "structures/" + id.getPath() + ".nbt");
+            Optional<Resource> resource = server.getResourceManager().getResource(file);
+            if (resource.isPresent()) {
+                try (InputStream in = resource.get().open()) {
+                    return NbtIo.readCompressed(in, NbtAccounter.unlimitedHeap());
+                }
+            }
+        } catch (IOException e) {
+            MASONRY.LOGGER.warn("Could not read blueprint {}", id, e);
+        }
+        return null;
+    }
+
+    // Templates saved by older game versions go through the same upgrade vanilla applies to them
+    private static CompoundTag update(MinecraftServer server, CompoundTag template) {
+        int dataVersion = NbtUtils.getDataVersion(template, 500);
+        return DataFixTypes.STRUCTURE.updateToCurrentVersion(server.getFixerUpper(), template, dataVersion);
+    }
+
+    private static CompiledBlueprint compile(ResourceLocation id, CompoundTag template) {
+        ListTag sizeTag = template.getList("size", Tag.TAG_INT);
+        int sizeX = Math.max(1, sizeTag.getInt(0));
+        int sizeY = Math.max(1, sizeTag.getInt(1));
+        int sizeZ = Math.max(1, sizeTag.getInt(2));
+
+        // Templates with several palettes (e.g. shipwrecks) build with the first one
+        ListTag paletteTag = template.contains("palettes", Tag.TAG_LIST)
+                ? template.getList("palettes", Tag.TAG_LIST).getList(0)
+                : template.getList("palette", Tag.TAG_COMPOUND);
+        BlockState[] templatePalette = new BlockState[paletteTag.size()];
+        for (int i = 0; i < templatePalette.length; i++) {
+            templatePalette[i] = NbtUtils.readBlockState(BuiltInRegistries.BLOCK.asLookup(), paletteTag.getCompound(i));
+        }
+
+        // Sort keys carry the build order in the high half and the template palette index in the low half
+        ListTag blocks = template.getList("blocks", Tag.TAG_COMPOUND);
+        long[] keys = new long[blocks.size()];
+        int count = 0;
+        for (int i = 0; i < blocks.size(); i++) {
+            CompoundTag block = blocks.getCompound(i);
+            int state = block.getInt("state");
+            if (state < 0 || state >= templatePalette.length || templatePalette[state].isAir()) {
+                continue;
+            }
+            ListTag pos = block.getList("pos", Tag.TAG_INT);
+            if (pos.size() != 3 || !inRange(pos.getInt(0), sizeX) || !inRange(pos.getInt(1), sizeY) || !inRange(pos.getInt(2), sizeZ)) {
+                continue;
+            }
+            long order = ((long) pos.getInt(1) * sizeZ + pos.getInt(2)) * sizeX + pos.getInt(0);
+            keys[count++] = order << 32 | state;
+        }
+        Arrays.sort(keys, 0, count);
+
+        CompiledBlueprint.Builder builder = new CompiledBlueprint.Builder(id, count);
+        BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+        for (int i = 0; i < count; i++) {
+            long order = keys[i] >>> 32;
+            int state = (int) keys[i];
+            cursor.set((int) (order % sizeX), (int) (order / ((long) sizeX * sizeZ)), (int) (order / sizeX % sizeZ));
+            builder.add(cursor, templatePalette[state]);
+        }
+        return builder.build();
+    }
+
+    private static boolean inRange(int value, int size) {
+        return value >= 0 && value < size;
+    }
+
+    @SubscribeEvent
+    public static void onAddReloadListeners(AddReloadListenerEvent event) {
+        event.addListener((ResourceManagerReloadListener) resourceManager -> {
+            CACHE.clear();
+            MISSING.clear();
+        });
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        CACHE.clear();
+        MISSING.clear();
+    }
+}
@@ -0,0 +1,136 @@
+package com.mas.masonry.agent.construction;
+
+import com.mas.masonry.agent.world.WorldView;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.BitSet;
+
+/**
+ * What the world looks like across a project's whole footprint: for every blueprint block, whether it is
+ * already {@link Status#CORRECT}, still {@link Status#MISSING} (air or something replaceable there), or
+ * {@link Status#OBSTRUCTED} by a block an agent would have to clear first. The footprint is checked once
+ * when the project starts, one chunk section at a time, then kept current from block change events.
+ * Only used on the server thread.
+ */
+public final class BlueprintVerifier {
+    public enum Status { MISSING, CORRECT, OBSTRUCTED }
+
+    private final CompiledBlueprint blueprint;
+    private final BlockPos origin;
+    private final BitSet correct;
+    private final BitSet obstructed;
+    private final BitSet missing;
+    private int correctCount;
+    private int obstructedCount;
+
+    BlueprintVerifier(CompiledBlueprint blueprint, BlockPos origin) {
+        this.blueprint = blueprint;
+        this.origin = origin;
+        this.correct = new BitSet(blueprint.getBlockCount());
+        this.obstructed = new BitSet(blueprint.getBlockCount());
+        this.missing = new BitSet(blueprint.getBlockCount());
+        // Until verified, everything counts as work; the placing agent checks the live block anyway
+        missing.set(0, blueprint.getBlockCount());
+    }
+
+    /**
+     * How a block in the world compares with the blueprint's block for that spot. Unloaded blocks (null)
+     * count as missing, since the agent will see the real block once it gets there.
+     */
+    public static Status classify(@Nullable BlockState existing, BlockState wanted) {
+        if (existing == null) {
+            return Status.MISSING;
+        }
+        if (existing.is(wanted.getBlock())) {
+            return Status.CORRECT;
+        }
+        return existing.isAir() || existing.canBeReplaced() ? Status.MISSING : Status.OBSTRUCTED;
+    }
+
+    /**
+     * Compares the whole footprint with the world, reading each chunk section once.
+     */
+    void verifyAll(ServerLevel level) {
+        Long2ObjectOpenHashMap<IntArrayList> bySection = new Long2ObjectOpenHashMap<>();
+        BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+        for (int i = 0; i < blueprint.getBlockCount(); i++) {
+            cursor.set(blueprint.getPackedPos(i));
+            cursor.move(origin);
+            bySection.computeIfAbsent(SectionPos.blockToSection(cursor.asLong()), key -> new IntArrayList()).add(i);
+        }
+
+        for (Long2ObjectMap.Entry<IntArrayList> entry : bySection.long2ObjectEntrySet()) {
+            long sectionKey = entry.getLongKey();
+            int sectionY = SectionPos.y(sectionKey);
+            LevelChunk chunk = WorldView.getChunkIfLoaded(level, SectionPos.x(sectionKey), SectionPos.z(sectionKey));
+            if (chunk == null) {
+                continue; // Left as missing
+            }
+            int sectionIndex = chunk.getSectionIndexFromSectionY(sectionY);
+            LevelChunkSection section = sectionIndex >= 0 && sectionIndex < chunk.getSectionsCount()
+                    ? chunk.getSection(sectionIndex) : null;
+            for (int i : entry.getValue()) {
+                if (section == null) {
+                    // Outside the build height; nothing can be placed there
+                    set(i, Status.OBSTRUCTED);
+                    continue;
+                }
+                cursor.set(blueprint.getPackedPos(i));
+                cursor.move(origin);
+                BlockState existing = section.hasOnlyAir() ? null : section.getBlockState(
+                        SectionPos.sectionRelative(cursor.getX()), SectionPos.sectionRelative(cursor.getY()),
+                        SectionPos.sectionRelative(cursor.getZ()));
+                set(i, existing == null ? classifyAir(i) : classify(existing, blueprint.getState(i)));
+            }
+        }
+    }
+
+    private Status classifyAir(int index) {
+        return blueprint.getState(index).isAir() ? Status.CORRECT : Status.MISSING;
+    }
+
+    void set(int index, Status status) {
+        Status previous = statusOf(index);
+        if (previous == status) {
+            return;
+        }
+        correctCount += (status == Status.CORRECT ? 1 : 0) - (previous == Status.CORRECT ? 1 : 0);
+        obstructedCount += (status == Status.OBSTRUCTED ? 1 : 0) - (previous == Status.OBSTRUCTED ? 1 : 0);
+        correct.set(index, status == Status.CORRECT);
+        obstructed.set(index, status == Status.OBSTRUCTED);
+        missing.set(index, status == Status.MISSING);
+    }
+
+    public Status statusOf(int index) {
+        if (correct.get(index)) {
+            return Status.CORRECT;
+        }
+        return obstructed.get(index) ? Status.OBSTRUCTED : Status.MISSING;
+    }
+
+    /**
+     * The first block at or after {@code from} that still needs placing, or -1.
+     */
+    public int nextMissing(int from) {
+        return missing.nextSetBit(from);
+    }
+
+    public int getCorrectCount() { return correctCount; }
+
+    public int getMissingCount() { return blueprint.getBlockCount() - correctCount - obstructedCount; }
+
+    public int getObstructedCount() { return obstructedCount; }
+
+    public boolean hasMissing() { return getMissingCount() > 0; }
+
+    public boolean isAllCorrect() { return correctCount == blueprint.getBlockCount(); }
+}
@@ -0,0 +1,168 @@
+package com.mas.masonry.agent.construction;
+
+import com.mas.masonry.MASONRY.BlueprintBlock;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Vec3i;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.levelgen.structure.BoundingBox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A blueprint in the form agents build from: relative positions packed into a {@code long[]}, and for
+ * each one an index into a small palette of block states. That is ten bytes a block however many
+ * blocks there are, so structures with hundreds of thousands of blocks stay cheap to keep around.
+ * Blocks are stored in build order. Instances are immutable and shared by every agent building them.
+ */
+public final class CompiledBlueprint {
+    private static final int MAX_PALETTE_SIZE = 1 << 16; // Palette indices are stored as unsigned shorts
+
+    private final ResourceLocation id;
+    private final Vec3i size;
+    private final BoundingBox bounds;
+    private final long[] positions;
+    private final short[] stateIndices;
+    private final BlockState[] palette;
+    private Long2IntOpenHashMap indexByPos; // Built on first lookup; most blueprints are only ever walked in order
+
+    private CompiledBlueprint(ResourceLocation id, BoundingBox bounds, long[] positions, short[] stateIndices, BlockState[] palette) {
+        this.id = id;
+        this.bounds = bounds;
+        this.size = positions.length == 0 ? Vec3i.ZERO : new Vec3i(bounds.getXSpan(), bounds.getYSpan(), bounds.getZSpan());
+        this.positions = positions;
+        this.stateIndices = stateIndices;
+        this.palette = palette;
+    }
+
+    /**
+     * Compiles a hand-written block list, keeping its order and each block's default state.
+     */
+    public static CompiledBlueprint of(ResourceLocation id, List<BlueprintBlock> blocks) {
+        Builder builder = new Builder(id, blocks.size());
+        for (BlueprintBlock block : blocks) {
+            builder.add(block.relativePos, block.blockType.defaultBlockState());
+        }
+        return builder.build();
+    }
+
+    public ResourceLocation getId() { return id; }
+
+    /**
+     * Extent of the blocks along each axis.
+     */
+    public Vec3i getSize() { return size; }
+
+    /**
+     * Box around every block, in relative coordinates.
+     */
+    public BoundingBox getBounds() { return bounds; }
+
+    public int getBlockCount() { return positions.length; }
+
+    public boolean isEmpty() { return positions.length == 0; }
+
+    public BlockPos getRelativePos(int index) {
+        return BlockPos.of(positions[index]);
+    }
+
+    /**
+     * The packed relative position of a block, as {@link BlockPos#asLong}; avoids allocating a position.
+     */
+    public long getPackedPos(int index) {
+        return positions[index];
+    }
+
+    /**
+     * The block at a packed relative position, or -1 if the blueprint has none there.
+     */
+    public synchronized int indexOf(long packedRelativePos) {
+        if (indexByPos == null) {
+            indexByPos = new Long2IntOpenHashMap(positions.length);
+            indexByPos.defaultReturnValue(-1);
+            for (int i = 0; i < positions.length; i++) {
+                indexByPos.put(positions[i], i);
+            }
+        }
+        return indexByPos.get(packedRelativePos);
+    }
+
+    public BlockState getState(int index) {
+        return palette[Short.toUnsignedInt(stateIndices[index])];
+    }
+
+    public int getPaletteIndex(int index) {
+        return Short.toUnsignedInt(stateIndices[index]);
+    }
+
+    public int getPaletteSize() { return palette.length; }
+
+    public BlockState getPaletteState(int paletteIndex) {
+        return palette[paletteIndex];
+    }
+
+    /**
+     * Approximate heap held by the block data, for diagnostics.
+     */
+    public long getFootprintBytes() {
+        return positions.length * (long) Long.BYTES + stateIndices.length * (long) Short.BYTES
+                + palette.length * (long) Integer.BYTES;
+    }
+
+    /**
+     * Collects blocks in build order and assigns palette indices as new states show up.
+     */
+    static final class Builder {
+        private final ResourceLocation id;
+        private final Object2IntOpenHashMap<BlockState> paletteIndex = new Object2IntOpenHashMap<>();
+        private final List<BlockState> palette = new ArrayList<>();
+        private long[] positions;
+        private short[] stateIndices;
+        private int count;
+        private int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        private int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+
+        Builder(ResourceLocation id, int expectedBlocks) {
+            this.id = id;
+            this.positions = new long[Math.max(16, expectedBlocks)];
+            this.stateIndices = new short[positions.length];
+            paletteIndex.defaultReturnValue(-1);
+        }
+
+        void add(BlockPos relativePos, BlockState state) {
+            int index = paletteIndex.getInt(state);
+            if (index < 0) {
+                if (palette.size() >= MAX_PALETTE_SIZE) {
+                    throw new IllegalStateException("Blueprint " + id + " uses more than " + MAX_PALETTE_SIZE + " block states");
+                }
+                index = palette.size();
+                palette.add(state);
+                paletteIndex.put(state, index);
+            }
+            if (count == positions.length) {
+                positions = Arrays.copyOf(positions, count * 2);
+                stateIndices = Arrays.copyOf(stateIndices, count * 2);
+            }
+            positions[count] = relativePos.asLong();
+            stateIndices[count] = (short) index;
+            count++;
+            minX = Math.min(minX, relativePos.getX());
+            minY = Math.min(minY, relativePos.getY());
+            minZ = Math.min(minZ, relativePos.getZ());
+            maxX = Math.max(maxX, relativePos.getX());
+            maxY = Math.max(maxY, relativePos.getY());
+            maxZ = Math.max(maxZ, relativePos.getZ());
+        }
+
+        CompiledBlueprint build() {
+            BoundingBox bounds = count == 0 ? new BoundingBox(0, 0, 0, 0, 0, 0)
+                    : new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+            return new CompiledBlueprint(id, bounds, Arrays.copyOf(positions, count),
+                    Arrays.copyOf(stateIndices, count), palette.toArray(new BlockState[0]));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.mas.masonry.agent.construction;
+
+import it.unimi.dsi.fastutil.objects.Object2IntLinkedOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.level.block.state.BlockState;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * One structure being built at one place, shared by every agent working on it. A
+ * {@link BlueprintVerifier} tracks which blocks still need placing; on top of that each blueprint block
+ * has a slot in a claim array, either open or leased to one agent until a game tick. Agents claim a slot
+ * with a compare-and-set, so two agents never work on the same block and a block whose builder wandered
+ * off becomes claimable again once its lease runs out.
+ * <p>
+ * A claim packs the agent's entity id into the high half of the slot and the lease expiry tick into the
+ * low half; the expiry is compared with wrap-around arithmetic, which is good for years of game time.
+ */
+public final class ConstructionProject {
+    private static final long OPEN = 0L;
+    // Only this many missing blocks past the first one may be claimed, so the structure still goes up
+    // roughly bottom to top however many agents work on it
+    private static final int CLAIM_WINDOW = 64;
+
+    private final int id;
+    private final BlockPos origin;
+    private final CompiledBlueprint blueprint;
+    private final BlueprintVerifier verifier;
+    private final AtomicLongArray claims;
+    private int scanFrom; // No missing block comes before this index
+    private long lastWorkedOn; // Game time an agent last joined the project or claimed or renewed a block
+    private Object2IntLinkedOpenHashMap<Item> bill; // Worked out by the MaterialPlanner; dropped when any block changes status
+
+    ConstructionProject(int id, BlockPos origin, CompiledBlueprint blueprint) {
+        this.id = id;
+        this.origin = origin.immutable();
+        this.blueprint = blueprint;
+        this.verifier = new BlueprintVerifier(blueprint, this.origin);
+        this.claims = new AtomicLongArray(blueprint.getBlockCount());
+    }
+
+    public int getId() { return id; }
+
+    public BlockPos getOrigin() { return origin; }
+
+    public CompiledBlueprint getBlueprint() { return blueprint; }
+
+    public BlueprintVerifier getVerifier() { return verifier; }
+
+    public boolean isComplete() { return verifier.isAllCorrect(); }
+
+    /**
+     * Whether any block is left that an agent could place right now; obstructed ones don't count.
+     */
+    public boolean hasOpenWork() { return verifier.hasMissing(); }
+
+    long getLastWorkedOn() { return lastWorkedOn; }
+
+    void touch(long gameTime) { lastWorkedOn = gameTime; }
+
+    Object2IntLinkedOpenHashMap<Item> getCachedBill() { return bill; }
+
+    void setCachedBill(Object2IntLinkedOpenHashMap<Item> bill) { this.bill = bill; }
+
+    public int getRemainingCount() { return blueprint.getBlockCount() - verifier.getCorrectCount(); }
+
+    public BlockPos getWorldPos(int index) {
+        return origin.offset(blueprint.getRelativePos(index));
+    }
+
+    public BlockState getState(int index) {
+        return blueprint.getState(index);
+    }
+
+    /**
+     * Checks the whole footprint against the world; called once when the project is created.
+     */
+    void verify(ServerLevel level) {
+        verifier.verifyAll(level);
+        bill = null;
+    }
+
+    /**
+     * Claims the earliest missing block that nobody holds, taking over blocks whose lease has expired.
+     * @return The block's index, or -1 if every missing block in reach of the build order is taken.
+     */
+    public int claim(int agentId, long gameTime, int leaseTicks) {
+        lastWorkedOn = gameTime;
+        long claim = pack(agentId, gameTime + leaseTicks);
+        int first = verifier.nextMissing(scanFrom);
+        scanFrom = first < 0 ? blueprint.getBlockCount() : first;
+        int scanned = 0;
+        for (int i = first; i >= 0 && scanned < CLAIM_WINDOW; i = verifier.nextMissing(i + 1), scanned++) {
+            long current = claims.get(i);
+            if (current != OPEN && !isExpired(current, gameTime)) {
+                continue;
+            }
+            if (claims.compareAndSet(i, current, claim)) {
+                if (current != OPEN) {
+                    JobBoard.recordReclaim();
+                }
+                JobBoard.recordClaim();
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Extends the agent's lease on a block it holds.
+     * @return false if the agent no longer holds the block, because its lease lapsed and someone else
+     * took it or because the block no longer needs placing.
+     */
+    public boolean renew(int index, int agentId, long gameTime, int leaseTicks) {
+        lastWorkedOn = gameTime;
+        long current = claims.get(index);
+        return holderOf(current) == agentId && verifier.statusOf(index) == BlueprintVerifier.Status.MISSING
+                && claims.compareAndSet(index, current, pack(agentId, gameTime + leaseTicks));
+    }
+
+    /**
+     * Hands a claimed block back without placing it.
+     */
+    public void release(int index, int agentId) {
+        long current = claims.get(index);
+        if (holderOf(current) == agentId) {
+            claims.compareAndSet(index, current, OPEN);
+        }
+    }
+
+    /**
+     * Records what an agent found at the block when it got there, which may differ from what the
+     * verifier last saw if the chunk was unloaded at the time.
+     */
+    public void recordFound(int index, BlueprintVerifier.Status status) {
+        applyStatus(index, status);
+    }
+
+    /**
+     * Block change hook, called by the {@link JobBoard} for blocks inside the footprint.
+     */
+    void handleBlockChange(int index, BlockState newState) {
+        applyStatus(index, BlueprintVerifier.classify(newState, blueprint.getState(index)));
+    }
+
+    private void applyStatus(int index, BlueprintVerifier.Status status) {
+        BlueprintVerifier.Status previous = verifier.statusOf(index);
+        if (previous == status) {
+            return;
+        }
+        verifier.set(index, status);
+        bill = null;
+        if (status == BlueprintVerifier.Status.CORRECT) {
+            JobBoard.recordPlacement();
+        }
+        if (status == BlueprintVerifier.Status.MISSING) {
+            // Broken or cleared since; it goes back into the queue in build order
+            scanFrom = Math.min(scanFrom, index);
+        } else {
+            // Placed or blocked: whoever held it moves on when their next renew fails
+            claims.set(index, OPEN);
+        }
+    }
+
+    private static long pack(int agentId, long expiry) {
+        return (long) (agentId + 1) << 32 | (expiry & 0xFFFFFFFFL);
+    }
+
+    // Entity ids are never negative, so the +1 in pack keeps a claim from ever equalling OPEN
+    private static int holderOf(long claim) {
+        return claim == OPEN ? Integer.MIN_VALUE : (int) (claim >>> 32) - 1;
+    }
+
+    private static boolean isExpired(long claim, long gameTime) {
+        return (int) gameTime - (int) claim >= 0;
+    }
+}
@@ -0,0 +1,159 @@
+package com.mas.masonry.agent.construction;
+
+import com.mas.masonry.MASONRY;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The construction projects under way in each level. An agent sent to build joins the nearest
+ * unfinished project of the same blueprint within {@link #JOIN_RADIUS} blocks, so several builders
+ * put up one structure together instead of each starting its own; otherwise it starts a new one
+ * where it stands.
+ * <p>
+ * New projects are checked against the world in one pass, and block changes inside a project's footprint
+ * are fed to its {@link BlueprintVerifier} so the board always knows which blocks still need placing.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public final class JobBoard {
+    private static final Map<ResourceKey<Level>, JobBoard> BOARDS = new HashMap<>();
+
+    private static final int JOIN_RADIUS = 32;
+    private static final int PURGE_INTERVAL_TICKS = 200;
+    // Projects nobody has worked on for this long are dropped; an agent coming back later starts afresh
+    // from what is standing, so nothing is lost
+    private static final long ABANDONED_TICKS = 1200;
+
+    private final Int2ObjectOpenHashMap<ConstructionProject> projects = new Int2ObjectOpenHashMap<>();
+
+    private static int nextProjectId = 1;
+    private static long claims = 0;
+    private static long reclaims = 0;
+    private static long placements = 0;
+
+    private JobBoard() {}
+
+    public static JobBoard get(ServerLevel level) {
+        return BOARDS.computeIfAbsent(level.dimension(), key -> new JobBoard());
+    }
+
+    /**
+     * The nearest unfinished project building {@code blueprint} near {@code pos}, or a new one with its
+     * origin at {@code pos}.
+     */
+    public ConstructionProject joinOrCreate(ServerLevel level, BlockPos pos, CompiledBlueprint blueprint) {
+        ConstructionProject nearest = null;
+        double nearestDistanceSqr = (double) JOIN_RADIUS * JOIN_RADIUS;
+        for (ConstructionProject project : projects.values()) {
+            if (!project.hasOpenWork() || !project.getBlueprint().getId().equals(blueprint.getId())) {
+                continue;
+            }
+            double distanceSqr = project.getOrigin().distSqr(pos);
+            if (distanceSqr <= nearestDistanceSqr) {
+                nearestDistanceSqr = distanceSqr;
+                nearest = project;
+            }
+        }
+        if (nearest != null) {
+            nearest.touch(level.getGameTime());
+            return nearest;
+        }
+        ConstructionProject project = new ConstructionProject(nextProjectId++, pos, blueprint);
+        project.touch(level.getGameTime());
+        project.verify(level);
+        projects.put(project.getId(), project);
+        return project;
+    }
+
+    @Nullable
+    public ConstructionProject get(int projectId) {
+        return projects.get(projectId);
+    }
+
+    public int getProjectCount() { return projects.size(); }
+
+    public int getMissingCount() {
+        int missing = 0;
+        for (ConstructionProject project : projects.values()) {
+            missing += project.getVerifier().getMissingCount();
+        }
+        return missing;
+    }
+
+    public int getObstructedCount() {
+        int obstructed = 0;
+        for (ConstructionProject project : projects.values()) {
+            obstructed += project.getVerifier().getObstructedCount();
+        }
+        return obstructed;
+    }
+
+    static void recordClaim() { claims++; }
+
+    static void recordReclaim() { reclaims++; }
+
+    static void recordPlacement() { placements++; }
+
+    public static long getClaimCount() { return claims; }
+
+    /**
+     * Claims taken over from an agent whose lease ran out.
+     */
+    public static long getReclaimCount() { return reclaims; }
+
+    public static long getPlacementCount() { return placements; }
+
+    public static void handleBlockChange(ServerLevel level, BlockPos pos, BlockState newState) {
+        JobBoard board = BOARDS.get(level.dimension());
+        if (board == null) {
+            return;
+        }
+        for (ConstructionProject project : board.projects.values()) {
+            CompiledBlueprint blueprint = project.getBlueprint();
+            BlockPos relative = pos.subtract(project.getOrigin());
+            if (!blueprint.getBounds().isInside(relative)) {
+                continue;
+            }
+            int index = blueprint.indexOf(relative.asLong());
+            if (index >= 0) {
+                project.handleBlockChange(index, newState);
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLevelTick(TickEvent.LevelTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || !(event.level instanceof ServerLevel level)
+                || level.getGameTime() % PURGE_INTERVAL_TICKS != 0) {
+            return;
+        }
+        JobBoard board = BOARDS.get(level.dimension());
+        if (board != null) {
+            // Agents still holding a dropped project notice it has no work left and let go of it themselves.
+            // Without the lease, a project blocked by obstructions would be checked on every block change forever
+            long gameTime = level.getGameTime();
+            board.projects.values().removeIf(project -> project.isComplete()
+                    || gameTime - project.getLastWorkedOn() > ABANDONED_TICKS);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        BOARDS.clear();
+        nextProjectId = 1;
+        claims = 0;
+        reclaims = 0;
+        placements = 0;
+    }
+}
@@ -0,0 +1,228 @@
+package com.mas.masonry.agent.construction;
+
+import com.mas.masonry.AgentEntity;
+import com.mas.masonry.Config;
+import com.mas.masonry.MASONRY;
+import com.mas.masonry.agent.perception.AgentSpatialIndex;
+import it.unimi.dsi.fastutil.objects.Object2IntLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.SimpleContainer;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.phys.Vec3;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Works out what a construction project still needs and how to get it. The bill of materials is the
+ * items for every block the {@link BlueprintVerifier} still lists as missing, less what the rest of the
+ * crew is carrying; whatever the agent can't cover from its own inventory is traced through the
+ * {@link RecipeGraph} down to blocks to harvest, which become one {@link MaterialTrip} instead of a walk
+ * back to the site after every block. Crafting happens on the spot from the agent's inventory.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public final class MaterialPlanner {
+    private static final double CREW_RADIUS = 48.0; // Agents on the project this close to its origin share their stock
+    private static final int MAX_CRAFT_DEPTH = 4;
+
+    private static long trips = 0;
+    private static long plannedBlocks = 0;
+    private static long legs = 0;
+    private static long abandonedLegs = 0;
+    private static long crafted = 0;
+
+    private MaterialPlanner() {}
+
+    /**
+     * Items still needed to finish the project, in build order. The caller may change the returned map.
+     */
+    public static Object2IntLinkedOpenHashMap<Item> bill(ConstructionProject project) {
+        return new Object2IntLinkedOpenHashMap<>(cachedBill(project));
+    }
+
+    /**
+     * How many of {@code item} the project still needs; cheap enough to ask on every placement.
+     */
+    public static int remaining(ConstructionProject project, Item item) {
+        return cachedBill(project).getInt(item);
+    }
+
+    // Walks the missing blocks only after one of them changed status, not on every call
+    private static Object2IntLinkedOpenHashMap<Item> cachedBill(ConstructionProject project) {
+        Object2IntLinkedOpenHashMap<Item> bill = project.getCachedBill();
+        if (bill != null) {
+            return bill;
+        }
+        bill = new Object2IntLinkedOpenHashMap<>();
+        BlueprintVerifier verifier = project.getVerifier();
+        for (int i = verifier.nextMissing(0); i >= 0; i = verifier.nextMissing(i + 1)) {
+            Item item = project.getState(i).getBlock().asItem();
+            if (item != Items.AIR) {
+                bill.addTo(item, 1);
+            }
+        }
+        project.setCachedBill(bill);
+        return bill;
+    }
+
+    /**
+     * Plans a gathering run for the part of the bill nobody on the crew has yet, up to
+     * {@link Config#materialTripMaxBlocks} blocks, earliest needed materials first.
+     * @return Null if there is nothing the agent could go and harvest.
+     */
+    @Nullable
+    public static MaterialTrip planTrip(ServerLevel level, AgentEntity agent, ConstructionProject project) {
+        Object2IntLinkedOpenHashMap<Item> bill = bill(project);
+        List<AgentEntity> crew = AgentSpatialIndex.get(level).getEntitiesWithin(AgentEntity.class,
+                Vec3.atCenterOf(project.getOrigin()), CREW_RADIUS,
+                other -> other != agent && other.getConstructionProject() == project);
+        for (AgentEntity other : crew) {
+            for (Object2IntMap.Entry<Item> entry : bill.object2IntEntrySet()) {
+                entry.setValue(entry.getIntValue() - other.getInventory().countItem(entry.getKey()));
+            }
+        }
+
+        SimpleContainer inventory = agent.getInventory();
+        Object2IntOpenHashMap<Item> available = new Object2IntOpenHashMap<>();
+        Object2IntLinkedOpenHashMap<Block> toHarvest = new Object2IntLinkedOpenHashMap<>();
+        for (Object2IntMap.Entry<Item> entry : bill.object2IntEntrySet()) {
+            if (entry.getIntValue() > 0) {
+                require(level.getServer(), inventory, entry.getKey(), entry.getIntValue(), available, toHarvest, 0);
+            }
+        }
+
+        MaterialTrip trip = new MaterialTrip();
+        int budget = Config.materialTripMaxBlocks;
+        for (Object2IntMap.Entry<Block> entry : toHarvest.object2IntEntrySet()) {
+            int count = Math.min(entry.getIntValue(), budget);
+            trip.add(entry.getKey(), count, inventory);
+            budget -= count;
+            if (budget == 0) {
+                break;
+            }
+        }
+        if (trip.isEmpty()) {
+            return null;
+        }
+        trips++;
+        plannedBlocks += trip.getPlannedBlocks();
+        return trip;
+    }
+
+    // Covers count of item from the agent's inventory first, then from crafting or harvesting
+    private static void require(MinecraftServer server, SimpleContainer inventory, Item item, int count,
+                                Object2IntOpenHashMap<Item> available, Object2IntLinkedOpenHashMap<Block> toHarvest, int depth) {
+        if (!available.containsKey(item)) {
+            available.put(item, inventory.countItem(item));
+        }
+        int used = Math.min(available.getInt(item), count);
+        available.addTo(item, -used);
+        count -= used;
+        if (count == 0) {
+            return;
+        }
+        RecipeGraph.Route route = RecipeGraph.routeFor(server, item);
+        if (route == null) {
+            return; // Left to the placing agent to look for as it is
+        }
+        if (route.isGathered()) {
+            toHarvest.addTo(route.source(), count);
+            return;
+        }
+        if (depth >= MAX_CRAFT_DEPTH) {
+            return;
+        }
+        int crafts = (count + route.outputCount() - 1) / route.outputCount();
+        for (RecipeGraph.Input input : route.inputs()) {
+            require(server, inventory, input.item(), crafts * input.count(), available, toHarvest, depth + 1);
+        }
+        // Crafting in whole batches leaves some over for later
+        available.addTo(item, crafts * route.outputCount() - count);
+    }
+
+    /**
+     * Crafts up to {@code wanted} of {@code item} from what the agent carries, crafting ingredients in
+     * turn where needed.
+     * @return How many were made and fit in the agent's inventory.
+     */
+    public static int craft(ServerLevel level, AgentEntity agent, Item item, int wanted) {
+        int made = 0;
+        while (made < wanted) {
+            int batch = craftOnce(level.getServer(), agent, item, 0);
+            if (batch == 0) {
+                break;
+            }
+            made += batch;
+        }
+        crafted += made;
+        return made;
+    }
+
+    private static int craftOnce(MinecraftServer server, AgentEntity agent, Item item, int depth) {
+        RecipeGraph.Route route = RecipeGraph.routeFor(server, item);
+        if (route == null || route.isGathered() || depth >= MAX_CRAFT_DEPTH) {
+            return 0;
+        }
+        SimpleContainer inventory = agent.getInventory();
+        for (RecipeGraph.Input input : route.inputs()) {
+            while (inventory.countItem(input.item()) < input.count()) {
+                if (craftOnce(server, agent, input.item(), depth + 1) == 0) {
+                    return 0;
+                }
+            }
+        }
+        // Crafting one ingredient may have used up another
+        for (RecipeGraph.Input input : route.inputs()) {
+            if (inventory.countItem(input.item()) < input.count()) {
+                return 0;
+            }
+        }
+        for (RecipeGraph.Input input : route.inputs()) {
+            inventory.removeItemType(input.item(), input.count());
+        }
+        ItemStack leftover = inventory.addItem(new ItemStack(item, route.outputCount()));
+        if (!leftover.isEmpty()) {
+            agent.spawnAtLocation(leftover, 0.5F);
+        }
+        // What was dropped for lack of room isn't the agent's to use
+        return route.outputCount() - leftover.getCount();
+    }
+
+    static void recordLeg() { legs++; }
+
+    static void recordAbandonedLeg() { abandonedLegs++; }
+
+    public static long getTripCount() { return trips; }
+
+    public static long getPlannedBlockCount() { return plannedBlocks; }
+
+    /**
+     * Harvesting runs sent out as part of a trip.
+     */
+    public static long getLegCount() { return legs; }
+
+    /**
+     * Legs that brought nothing back, after which the trip stopped asking for that block.
+     */
+    public static long getAbandonedLegCount() { return abandonedLegs; }
+
+    public static long getCraftedCount() { return crafted; }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        trips = 0;
+        plannedBlocks = 0;
+        legs = 0;
+        abandonedLegs = 0;
+        crafted = 0;
+    }
+}
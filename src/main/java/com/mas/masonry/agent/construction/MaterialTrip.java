@@ -0,0 +1,72 @@
+package com.mas.masonry.agent.construction;
+
+import net.minecraft.world.SimpleContainer;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.level.block.Block;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A gathering run planned by the {@link MaterialPlanner}: how many of which blocks to harvest before the
+ * agent heads back to its site. Each leg harvests one block; a leg that brought nothing in means the
+ * agent found no more of that block, and the trip stops asking for it.
+ */
+public final class MaterialTrip {
+    private static final class Leg {
+        final Block block;
+        final Item item;
+        final int target; // Inventory count of the block's item that ends this leg
+        int countAtDispatch = -1;
+
+        Leg(Block block, int target) {
+            this.block = block;
+            this.item = block.asItem();
+            this.target = target;
+        }
+    }
+
+    private final List<Leg> legs = new ArrayList<>();
+    private int blocks;
+
+    MaterialTrip() {}
+
+    void add(Block block, int count, SimpleContainer inventory) {
+        legs.add(new Leg(block, inventory.countItem(block.asItem()) + count));
+        blocks += count;
+    }
+
+    public boolean isEmpty() { return legs.isEmpty(); }
+
+    /**
+     * Blocks the trip set out to harvest.
+     */
+    public int getPlannedBlocks() { return blocks; }
+
+    /**
+     * The block to harvest next, or null once the trip is over.
+     */
+    @Nullable
+    public Block nextLeg(SimpleContainer inventory) {
+        Iterator<Leg> it = legs.iterator();
+        while (it.hasNext()) {
+            Leg leg = it.next();
+            int have = inventory.countItem(leg.item);
+            if (have >= leg.target) {
+                it.remove();
+                continue;
+            }
+            if (leg.countAtDispatch >= 0 && have <= leg.countAtDispatch) {
+                MaterialPlanner.recordAbandonedLeg();
+                it.remove();
+                continue;
+            }
+            leg.countAtDispatch = have;
+            MaterialPlanner.recordLeg();
+            return leg.block;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,203 @@
+package com.mas.masonry.agent.construction;
+
+import com.mas.masonry.AgentEntity;
+import com.mas.masonry.Config;
+import com.mas.masonry.MASONRY;
+import com.mas.masonry.agent.world.BlockChangeTracker;
+import com.mas.masonry.agent.world.WorldView;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Block placements queued by agents, applied at the end of the level tick up to
+ * {@link Config#placementBlocksPerTick} blocks per tick. Queued blocks are drained a chunk section at a
+ * time and set without neighbour updates; once the tick's batch is in, each neighbour of the batch that
+ * is not itself part of it gets one update, and the placed blocks are reported to the
+ * {@link BlockChangeTracker}. Block changes in one section within a tick already reach clients as a
+ * single packet and the light engine works through its queue once per tick, so grouping by section is
+ * what lets those coalesce.
+ * <p>
+ * A placement that can no longer go ahead when its turn comes (the spot got built on or its chunk
+ * unloaded) hands its item back to the agent.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public final class PlacementQueue {
+    private static final Map<ResourceKey<Level>, PlacementQueue> QUEUES = new HashMap<>();
+
+    // Clients get the change, shapes and neighbours are updated once for the whole batch
+    private static final int BATCH_FLAGS = Block.UPDATE_CLIENTS | Block.UPDATE_KNOWN_SHAPE;
+
+    private record Placement(BlockPos pos, BlockState state, AgentEntity agent, ItemStack cost) {}
+
+    // Section key to the placements in it, sections in the order their first block was queued
+    private final Long2ObjectLinkedOpenHashMap<List<Placement>> bySection = new Long2ObjectLinkedOpenHashMap<>();
+    private final LongOpenHashSet queued = new LongOpenHashSet();
+
+    private static long enqueued = 0;
+    private static long placed = 0;
+    private static long refunded = 0;
+    private static long sections = 0;
+    private static long neighbourUpdates = 0;
+
+    private PlacementQueue() {}
+
+    public static PlacementQueue get(ServerLevel level) {
+        return QUEUES.computeIfAbsent(level.dimension(), key -> new PlacementQueue());
+    }
+
+    /**
+     * Queues {@code state} to be set at {@code pos}. The caller has already taken {@code cost} out of the
+     * agent's inventory; it goes back if the block cannot be placed.
+     * @return false if a placement at that position is already queued.
+     */
+    public boolean enqueue(BlockPos pos, BlockState state, AgentEntity agent, ItemStack cost) {
+        if (!queued.add(pos.asLong())) {
+            return false;
+        }
+        bySection.computeIfAbsent(SectionPos.blockToSection(pos.asLong()), key -> new ArrayList<>())
+                .add(new Placement(pos.immutable(), state, agent, cost));
+        enqueued++;
+        return true;
+    }
+
+    public boolean isQueued(BlockPos pos) {
+        return queued.contains(pos.asLong());
+    }
+
+    public int size() { return queued.size(); }
+
+    public static long getEnqueuedCount() { return enqueued; }
+
+    public static long getPlacedCount() { return placed; }
+
+    public static long getRefundedCount() { return refunded; }
+
+    /**
+     * Chunk sections drained, one per section per tick it had blocks placed in.
+     */
+    public static long getSectionCount() { return sections; }
+
+    public static long getNeighbourUpdateCount() { return neighbourUpdates; }
+
+    private void drain(ServerLevel level, int budget) {
+        List<Placement> batch = new ArrayList<>(Math.min(budget, queued.size()));
+        while (budget > 0 && !bySection.isEmpty()) {
+            long sectionKey = bySection.firstLongKey();
+            List<Placement> pending = bySection.get(sectionKey);
+            int take = Math.min(budget, pending.size());
+            List<Placement> taken = pending.subList(0, take);
+            for (Placement placement : taken) {
+                queued.remove(placement.pos().asLong());
+                if (place(level, placement)) {
+                    batch.add(placement);
+                } else {
+                    refund(placement);
+                }
+            }
+            taken.clear();
+            if (pending.isEmpty()) {
+                bySection.removeFirst();
+            }
+            budget -= take;
+            sections++;
+        }
+        if (!batch.isEmpty()) {
+            finishBatch(level, batch);
+        }
+    }
+
+    private static boolean place(ServerLevel level, Placement placement) {
+        BlockState existing = WorldView.getBlockState(level, placement.pos());
+        if (existing == null || existing.is(placement.state().getBlock())
+                || !(existing.isAir() || existing.canBeReplaced())) {
+            return false;
+        }
+        return level.setBlock(placement.pos(), placement.state(), BATCH_FLAGS);
+    }
+
+    private static void finishBatch(ServerLevel level, List<Placement> batch) {
+        LongOpenHashSet placedPositions = new LongOpenHashSet(batch.size());
+        for (Placement placement : batch) {
+            placedPositions.add(placement.pos().asLong());
+        }
+
+        // Shapes first, so e.g. fences in the batch connect to each other before anything reacts to them
+        for (Placement placement : batch) {
+            placement.state().updateNeighbourShapes(level, placement.pos(), Block.UPDATE_CLIENTS);
+        }
+
+        // One update per neighbour of the batch rather than one per placed block next to it, naming the
+        // first placed block found next to it as the source
+        Long2ObjectLinkedOpenHashMap<Placement> neighbours = new Long2ObjectLinkedOpenHashMap<>();
+        for (Placement placement : batch) {
+            for (Direction direction : Direction.values()) {
+                long neighbour = BlockPos.offset(placement.pos().asLong(), direction);
+                if (!placedPositions.contains(neighbour)) {
+                    neighbours.putIfAbsent(neighbour, placement);
+                }
+            }
+        }
+        BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+        for (Long2ObjectMap.Entry<Placement> entry : neighbours.long2ObjectEntrySet()) {
+            Placement source = entry.getValue();
+            level.neighborChanged(cursor.set(entry.getLongKey()), source.state().getBlock(), source.pos());
+            neighbourUpdates++;
+        }
+
+        // Nothing fired a neighbour notify event for these, so report them directly
+        for (Placement placement : batch) {
+            BlockChangeTracker.notifyChanged(level, placement.pos(), level.getBlockState(placement.pos()));
+        }
+        placed += batch.size();
+    }
+
+    private static void refund(Placement placement) {
+        refunded++;
+        if (!placement.agent().isRemoved()) {
+            ItemStack leftover = placement.agent().getInventory().addItem(placement.cost());
+            if (!leftover.isEmpty()) {
+                placement.agent().spawnAtLocation(leftover, 0.5F);
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLevelTick(TickEvent.LevelTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || !(event.level instanceof ServerLevel level)) {
+            return;
+        }
+        PlacementQueue queue = QUEUES.get(level.dimension());
+        if (queue != null && !queue.queued.isEmpty()) {
+            queue.drain(level, Config.placementBlocksPerTick);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        QUEUES.clear();
+        enqueued = 0;
+        placed = 0;
+        refunded = 0;
+        sections = 0;
+        neighbourUpdates = 0;
+    }
+}
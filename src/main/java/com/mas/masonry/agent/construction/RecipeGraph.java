@@ -0,0 +1,181 @@
+package com.mas.masonry.agent.construction;
+
+import com.mas.masonry.MASONRY;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.packs.resources.ResourceManagerReloadListener;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.crafting.CraftingRecipe;
+import net.minecraft.world.item.crafting.Ingredient;
+import net.minecraft.world.item.crafting.RecipeHolder;
+import net.minecraft.world.item.crafting.RecipeType;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraftforge.event.AddReloadListenerEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How agents come by each item: harvested from a block in the world, or crafted from other items. Built
+ * from the server's crafting recipes on first use and kept until the data packs reload.
+ * <p>
+ * Crafting wins whenever every ingredient can itself be obtained, so planks come from logs rather than
+ * from taking apart somebody's house; among recipes the one needing the fewest harvested blocks per item
+ * is used. Items that are neither craftable nor a block have no route.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public final class RecipeGraph {
+    private static final int MAX_DEPTH = 4; // Crafting steps between a harvested block and the item
+
+    /**
+     * One way to get an item: harvest {@code source}, or craft {@code outputCount} of it from {@code inputs}.
+     * {@code cost} is the number of blocks harvested per item made.
+     */
+    public record Route(@Nullable Block source, List<Input> inputs, int outputCount, double cost) {
+        public boolean isGathered() { return source != null; }
+    }
+
+    public record Input(Item item, int count) {}
+
+    private static final Route NO_ROUTE = new Route(null, List.of(), 0, Double.POSITIVE_INFINITY);
+
+    // Items on the path being resolved, with their depth, and the shallowest depth any cutoff so far
+    // depended on; a cycle depends on where its item sits on the path, the depth limit on the root
+    private static final class Search {
+        final Map<Item, Integer> visiting = new IdentityHashMap<>();
+        int shallowestCut = Integer.MAX_VALUE;
+    }
+
+    private static Map<Item, List<CraftingRecipe>> recipesByResult;
+    private static final Map<Item, Route> ROUTES = new IdentityHashMap<>();
+
+    private RecipeGraph() {}
+
+    /**
+     * The cheapest way to obtain {@code item}. Must be called on the server thread.
+     * @return Null if agents have no way to get it.
+     */
+    @Nullable
+    public static Route routeFor(MinecraftServer server, Item item) {
+        if (recipesByResult == null) {
+            index(server);
+        }
+        Route route = resolve(server, item, 0, new Search());
+        return route == NO_ROUTE ? null : route;
+    }
+
+    public static int getRouteCount() { return ROUTES.size(); }
+
+    private static void index(MinecraftServer server) {
+        recipesByResult = new IdentityHashMap<>();
+        for (RecipeHolder<CraftingRecipe> holder : server.getRecipeManager().getAllRecipesFor(RecipeType.CRAFTING)) {
+            CraftingRecipe recipe = holder.value();
+            if (recipe.isSpecial()) {
+                continue; // Fireworks, banner patterns and the like have no fixed result
+            }
+            ItemStack result = recipe.getResultItem(server.registryAccess());
+            if (!result.isEmpty()) {
+                recipesByResult.computeIfAbsent(result.getItem(), key -> new ArrayList<>()).add(recipe);
+            }
+        }
+    }
+
+    private static Route resolve(MinecraftServer server, Item item, int depth, Search search) {
+        Route cached = ROUTES.get(item);
+        if (cached != null) {
+            return cached;
+        }
+        if (depth > MAX_DEPTH) {
+            search.shallowestCut = -1;
+            return NO_ROUTE;
+        }
+        Integer onPath = search.visiting.putIfAbsent(item, depth);
+        if (onPath != null) {
+            // Cut off here, e.g. ingots and blocks of the same metal
+            search.shallowestCut = Math.min(search.shallowestCut, onPath);
+            return NO_ROUTE;
+        }
+        int outerCut = search.shallowestCut;
+        search.shallowestCut = Integer.MAX_VALUE;
+        Route best = NO_ROUTE;
+        for (CraftingRecipe recipe : recipesByResult.getOrDefault(item, List.of())) {
+            Route route = craftRoute(server, recipe, depth, search);
+            if (route.cost() < best.cost()) {
+                best = route;
+            }
+        }
+        search.visiting.remove(item);
+        if (best == NO_ROUTE) {
+            Block block = Block.byItem(item);
+            if (block != Blocks.AIR) {
+                best = new Route(block, List.of(), 1, 1.0);
+            }
+        }
+        // A result only holds for every caller if nothing beneath it was cut off because of the path above
+        // it or the depth limit; cycles back to the item itself don't matter, as they never help
+        if (search.shallowestCut >= depth) {
+            ROUTES.put(item, best);
+        }
+        search.shallowestCut = Math.min(outerCut, search.shallowestCut);
+        return best;
+    }
+
+    private static Route craftRoute(MinecraftServer server, CraftingRecipe recipe, int depth, Search search) {
+        Map<Item, Integer> counts = new IdentityHashMap<>();
+        List<Item> order = new ArrayList<>();
+        double cost = 0;
+        for (Ingredient ingredient : recipe.getIngredients()) {
+            if (ingredient.isEmpty()) {
+                continue;
+            }
+            // Tag ingredients accept several items; take the cheapest one agents can get
+            Item chosen = null;
+            double chosenCost = Double.POSITIVE_INFINITY;
+            for (ItemStack option : ingredient.getItems()) {
+                Route route = resolve(server, option.getItem(), depth + 1, search);
+                if (route.cost() < chosenCost) {
+                    chosen = option.getItem();
+                    chosenCost = route.cost();
+                }
+            }
+            if (chosen == null) {
+                return NO_ROUTE;
+            }
+            if (counts.merge(chosen, 1, Integer::sum) == 1) {
+                order.add(chosen);
+            }
+            cost += chosenCost;
+        }
+        if (order.isEmpty()) {
+            return NO_ROUTE;
+        }
+        List<Input> inputs = new ArrayList<>(order.size());
+        for (Item input : order) {
+            inputs.add(new Input(input, counts.get(input)));
+        }
+        int outputCount = recipe.getResultItem(server.registryAccess()).getCount();
+        return new Route(null, List.copyOf(inputs), outputCount, cost / outputCount);
+    }
+
+    private static void clear() {
+        recipesByResult = null;
+        ROUTES.clear();
+    }
+
+    @SubscribeEvent
+    public static void onAddReloadListeners(AddReloadListenerEvent event) {
+        event.addListener((ResourceManagerReloadListener) resourceManager -> clear());
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        clear();
+    }
+}
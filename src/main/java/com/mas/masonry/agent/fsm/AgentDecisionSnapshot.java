@@ -0,0 +1,61 @@
+package com.mas.masonry.agent.fsm;
+
+import com.mas.masonry.AgentEntity;
+import com.mas.masonry.AgentEntity.AgentMemory;
+import com.mas.masonry.AgentEntity.AgentState;
+import net.minecraft.world.entity.LivingEntity;
+
+/**
+ * Everything the transition table looks at, copied out of an agent on the server thread so the
+ * decision itself can run on any thread without touching the entity. Random rolls are drawn up front
+ * from the agent's own random source, in a fixed order, so a decision never depends on which thread
+ * made it or when.
+ */
+public record AgentDecisionSnapshot(
+        AgentState state,
+        int fear,
+        int hunger,
+        int health,
+        int social,
+        int ticksInState,
+        boolean dangerNearby,
+        boolean resourceNearby,
+        boolean allyNearby,
+        boolean fleeingAllyNearby,
+        boolean hasTarget,
+        boolean targetAlive,
+        boolean unsharedDiscoveries,
+        boolean constructionPending,
+        boolean farFromHome,
+        float[] rolls // One per chance guard in the table, indexed by the guard's slot; not modified after capture
+) {
+    /**
+     * Captures the agent's decision inputs. Must be called on the server thread.
+     */
+    public static AgentDecisionSnapshot capture(AgentEntity agent, int rollCount) {
+        AgentMemory memory = agent.getMemory();
+        LivingEntity target = agent.getTarget();
+        float[] rolls = new float[rollCount];
+        for (int i = 0; i < rollCount; i++) {
+            rolls[i] = agent.getRandom().nextFloat();
+        }
+        return new AgentDecisionSnapshot(
+                agent.getCurrentState(),
+                memory.getFearLevel(),
+                memory.getHungerLevel(),
+                memory.getHealthPercent(),
+                memory.getSocialMeter(),
+                memory.getTicksInCurrentState(),
+                memory.isDangerNearby(),
+                memory.isResourceNearby(),
+                memory.isAllyNearby(),
+                memory.getPerception().fleeingAllyNearby(),
+                target != null,
+                target != null && target.isAlive(),
+                memory.hasUnsharedDiscoveries(),
+                agent.hasPendingConstruction(),
+                agent.isFarFromHome(),
+                rolls
+        );
+    }
+}
@@ -0,0 +1,289 @@
+package com.mas.masonry.agent.fsm;
+
+import com.mas.masonry.AgentEntity;
+import com.mas.masonry.AgentEntity.AgentState;
+import com.mas.masonry.MASONRY;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToIntFunction;
+
+/**
+ * Agent FSM transitions compiled from rule strings such as {@code "IDLE -> FLEE when danger & fear>50"}.
+ * Rules for a state are checked in the order they are listed and the first one whose guards all pass
+ * fires. The compiled form is one array of transitions per state, each holding an array of guards, so
+ * evaluating it allocates nothing. Guards only read an {@link AgentDecisionSnapshot}, which makes
+ * evaluation safe on any thread. Tables are immutable; a config reload compiles a new one and swaps
+ * it in.
+ * <p>
+ * {@code FROM} may be a comma separated list of states, or {@code *} for every state that has no rules
+ * of its own. Guards are joined with {@code &}; each one is a flag ({@code danger}, {@code resource},
+ * {@code ally}, {@code fleeingAlly}, {@code hasTarget}, {@code targetAlive}, {@code unsharedDiscoveries},
+ * {@code constructionPending}, {@code farFromHome}, optionally negated with {@code !}), a comparison of {@code fear},
+ * {@code hunger}, {@code health}, {@code social} or {@code ticksInState} against a number, or
+ * {@code chance<p} for a random roll.
+ */
+public final class TransitionTable {
+
+    public static final List<String> DEFAULT_RULES = List.of(
+            "IDLE -> FLEE when danger & fear>50",
+            "IDLE -> SEEK_RESOURCE when resource & hunger>30",
+            "IDLE -> HELP_ALLY when !hasTarget & fleeingAlly & fear<50",
+            "IDLE -> SHARE_RESOURCE_LOCATION when !hasTarget & unsharedDiscoveries",
+            "IDLE -> GREET_AGENT when !hasTarget & ally & social>30 & chance<0.05",
+            "IDLE -> PLACE_CONSTRUCTION_BLOCK when !hasTarget & constructionPending",
+            "IDLE -> RETURN_TO_BASE when !hasTarget & farFromHome & chance<0.05",
+            "IDLE -> WANDER when !hasTarget & chance<0.75",
+            "WANDER -> FLEE when danger & fear>30",
+            "WANDER -> SEEK_RESOURCE when resource & hunger>20",
+            "WANDER -> ATTACK when hasTarget",
+            "WANDER -> IDLE when ticksInState>200 & chance<0.1",
+            "SEEK_RESOURCE -> FLEE when danger & fear>70",
+            "SEEK_RESOURCE -> ATTACK when hasTarget",
+            "SEEK_RESOURCE -> IDLE when !resource",
+            "SEEK_RESOURCE -> IDLE when hunger<10",
+            "FLEE -> IDLE when !danger",
+            "FLEE -> IDLE when fear<20",
+            "ATTACK -> FLEE when health<30",
+            "ATTACK -> IDLE when !targetAlive",
+            "HELP_ALLY -> FLEE when danger & health<20",
+            "HELP_ALLY -> ATTACK when targetAlive",
+            "HELP_ALLY -> IDLE when !ally",
+            "HELP_ALLY -> IDLE when ticksInState>200",
+            // Task states mostly leave on their own through their handlers; only danger interrupts them here
+            "FIND_TARGET_BLOCK,MOVE_TO_TARGET_BLOCK,HARVEST_BLOCK -> FLEE when danger & fear>60",
+            "PLACE_CONSTRUCTION_BLOCK -> FLEE when danger & fear>80",
+            "* -> FLEE when danger & fear>70"
+    );
+
+    private static final Transition[] NO_TRANSITIONS = new Transition[0];
+
+    private static volatile TransitionTable current = compile(DEFAULT_RULES);
+
+    /**
+     * One condition of a transition. Must not allocate; it runs for every agent on every FSM tick.
+     */
+    @FunctionalInterface
+    public interface Guard {
+        boolean test(AgentDecisionSnapshot snapshot);
+    }
+
+    private record Transition(String rule, AgentState target, Guard[] guards, int counterIndex) {}
+
+    // Indexed by AgentState ordinal
+    private final Transition[][] byState;
+    private final List<String> rules;
+    private final AtomicLongArray fireCounts;
+
+    // Number of chance guards, i.e. random rolls each snapshot has to carry
+    private final int chanceSlots;
+
+    private TransitionTable(Transition[][] byState, List<String> rules, int chanceSlots) {
+        this.byState = byState;
+        this.rules = rules;
+        this.fireCounts = new AtomicLongArray(rules.size());
+        this.chanceSlots = chanceSlots;
+    }
+
+    public static TransitionTable current() { return current; }
+
+    /**
+     * Compiles the rules and swaps the result in. If any rule is malformed the current table is kept.
+     */
+    public static void reload(List<? extends String> rules) {
+        try {
+            current = compile(rules.isEmpty() ? DEFAULT_RULES : rules);
+        } catch (IllegalArgumentException e) {
+            MASONRY.LOGGER.warn("Ignoring FSM transition config, keeping the previous table: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Captures the agent's inputs for {@link #evaluate(AgentDecisionSnapshot)}. Server thread only.
+     */
+    public AgentDecisionSnapshot snapshot(AgentEntity agent) {
+        return AgentDecisionSnapshot.capture(agent, chanceSlots);
+    }
+
+    /**
+     * The state the agent should move to, or its current state if no transition fires. Thread-safe.
+     */
+    public AgentState evaluate(AgentDecisionSnapshot snapshot) {
+        AgentState state = snapshot.state();
+        for (Transition transition : byState[state.ordinal()]) {
+            if (allPass(transition.guards, snapshot)) {
+                fireCounts.incrementAndGet(transition.counterIndex);
+                return transition.target;
+            }
+        }
+        return state;
+    }
+
+    private static boolean allPass(Guard[] guards, AgentDecisionSnapshot snapshot) {
+        for (Guard guard : guards) {
+            if (!guard.test(snapshot)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public List<String> getRules() { return rules; }
+
+    public long getFireCount(int ruleIndex) { return fireCounts.get(ruleIndex); }
+
+    /**
+     * Element check for the config list. Only the type is checked here: Forge resets the whole list to
+     * its default when a single element fails, so the rules are parsed as a whole in {@link #reload},
+     * which keeps the previous table if any of them is malformed.
+     */
+    public static boolean isRuleString(Object rule) {
+        return rule instanceof String;
+    }
+
+    // --- Compilation ---
+
+    private record ParsedRule(AgentState[] from, boolean wildcard, Transition transition) {}
+
+    public static TransitionTable compile(List<? extends String> ruleStrings) {
+        List<String> rules = List.copyOf(ruleStrings);
+        int stateCount = AgentState.values().length;
+        List<List<Transition>> explicit = new ArrayList<>();
+        for (int i = 0; i < stateCount; i++) {
+            explicit.add(new ArrayList<>());
+        }
+        List<Transition> wildcard = new ArrayList<>();
+        int[] chanceSlots = new int[1];
+
+        for (int i = 0; i < rules.size(); i++) {
+            ParsedRule parsed = parse(rules.get(i), i, chanceSlots);
+            if (parsed.wildcard) {
+                wildcard.add(parsed.transition);
+            } else {
+                for (AgentState from : parsed.from) {
+                    explicit.get(from.ordinal()).add(parsed.transition);
+                }
+            }
+        }
+
+        Transition[][] byState = new Transition[stateCount][];
+        for (int i = 0; i < stateCount; i++) {
+            List<Transition> transitions = explicit.get(i).isEmpty() ? wildcard : explicit.get(i);
+            byState[i] = transitions.isEmpty() ? NO_TRANSITIONS : transitions.toArray(NO_TRANSITIONS);
+        }
+        return new TransitionTable(byState, rules, chanceSlots[0]);
+    }
+
+    /**
+     * @param chanceSlots Running count of chance guards; each one gets the next roll slot
+     */
+    private static ParsedRule parse(String rule, int counterIndex, int[] chanceSlots) {
+        int arrow = rule.indexOf("->");
+        if (arrow < 0) {
+            throw new IllegalArgumentException("missing '->' in rule '" + rule + "'");
+        }
+        String fromPart = rule.substring(0, arrow).trim();
+        String rest = rule.substring(arrow + 2).trim();
+        String targetPart = rest;
+        String guardPart = "";
+        int when = rest.indexOf(" when ");
+        if (when >= 0) {
+            targetPart = rest.substring(0, when).trim();
+            guardPart = rest.substring(when + " when ".length()).trim();
+        }
+
+        boolean wildcard = fromPart.equals("*");
+        AgentState[] from = wildcard ? new AgentState[0]
+                : Arrays.stream(fromPart.split(",")).map(name -> parseState(name.trim(), rule)).toArray(AgentState[]::new);
+        AgentState target = parseState(targetPart, rule);
+
+        List<Guard> guards = new ArrayList<>();
+        if (!guardPart.isEmpty()) {
+            for (String atom : guardPart.split("&")) {
+                guards.add(parseGuard(atom.trim(), rule, chanceSlots));
+            }
+        }
+        return new ParsedRule(from, wildcard, new Transition(rule, target, guards.toArray(new Guard[0]), counterIndex));
+    }
+
+    private static AgentState parseState(String name, String rule) {
+        try {
+            return AgentState.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown state '" + name + "' in rule '" + rule + "'");
+        }
+    }
+
+    private static Guard parseGuard(String atom, String rule, int[] chanceSlots) {
+        if (atom.startsWith("!")) {
+            Guard flag = parseFlag(atom.substring(1).trim(), rule);
+            return snapshot -> !flag.test(snapshot);
+        }
+
+        int opStart = indexOfOperator(atom);
+        if (opStart < 0) {
+            return parseFlag(atom, rule);
+        }
+        boolean orEqual = opStart + 1 < atom.length() && atom.charAt(opStart + 1) == '=';
+        boolean greater = atom.charAt(opStart) == '>';
+        String name = atom.substring(0, opStart).trim();
+        String valueText = atom.substring(opStart + (orEqual ? 2 : 1)).trim();
+        double value;
+        try {
+            value = Double.parseDouble(valueText);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad number '" + valueText + "' in rule '" + rule + "'");
+        }
+
+        if (name.equals("chance")) {
+            if (greater) {
+                throw new IllegalArgumentException("chance only supports '<' in rule '" + rule + "'");
+            }
+            float probability = (float) value;
+            int slot = chanceSlots[0]++;
+            return snapshot -> snapshot.rolls()[slot] < probability;
+        }
+
+        ToIntFunction<AgentDecisionSnapshot> metric = switch (name) {
+            case "fear" -> AgentDecisionSnapshot::fear;
+            case "hunger" -> AgentDecisionSnapshot::hunger;
+            case "health" -> AgentDecisionSnapshot::health;
+            case "social" -> AgentDecisionSnapshot::social;
+            case "ticksInState" -> AgentDecisionSnapshot::ticksInState;
+            default -> throw new IllegalArgumentException("unknown value '" + name + "' in rule '" + rule + "'");
+        };
+        if (greater) {
+            return orEqual ? snapshot -> metric.applyAsInt(snapshot) >= value
+                    : snapshot -> metric.applyAsInt(snapshot) > value;
+        }
+        return orEqual ? snapshot -> metric.applyAsInt(snapshot) <= value
+                : snapshot -> metric.applyAsInt(snapshot) < value;
+    }
+
+    private static int indexOfOperator(String atom) {
+        for (int i = 0; i < atom.length(); i++) {
+            char c = atom.charAt(i);
+            if (c == '<' || c == '>') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Guard parseFlag(String name, String rule) {
+        return switch (name) {
+            case "danger" -> AgentDecisionSnapshot::dangerNearby;
+            case "resource" -> AgentDecisionSnapshot::resourceNearby;
+            case "ally" -> AgentDecisionSnapshot::allyNearby;
+            case "fleeingAlly" -> AgentDecisionSnapshot::fleeingAllyNearby;
+            case "hasTarget" -> AgentDecisionSnapshot::hasTarget;
+            case "targetAlive" -> AgentDecisionSnapshot::targetAlive;
+            case "unsharedDiscoveries" -> AgentDecisionSnapshot::unsharedDiscoveries;
+            case "constructionPending" -> AgentDecisionSnapshot::constructionPending;
+            case "farFromHome" -> AgentDecisionSnapshot::farFromHome;
+            default -> throw new IllegalArgumentException("unknown guard '" + name + "' in rule '" + rule + "'");
+        };
+    }
+}
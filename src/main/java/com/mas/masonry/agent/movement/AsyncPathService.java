@@ -0,0 +1,212 @@
+package com.mas.masonry.agent.movement;
+
+import com.mas.masonry.Config;
+import com.mas.masonry.MASONRY;
+import com.mas.masonry.agent.world.ChunkSectionSnapshot;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.pathfinder.Path;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Computes agent paths on a worker pool. The blocks around the trip are copied on the server thread when
+ * the request is submitted, {@link GridPathfinder} searches that copy with a node budget, and the path
+ * is handed back at the end of the server tick it finished in. Agents asking for the same goal from
+ * within a few blocks of each other while a search is still running share it rather than queueing
+ * another; the later ones join the path at its node closest to them.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public final class AsyncPathService {
+    /**
+     * Trips longer than this (horizontally) need too large a snapshot; they go through the
+     * {@link HierarchicalPlanner} or vanilla navigation instead.
+     */
+    public static final int MAX_RANGE = 32;
+
+    private static final int HORIZONTAL_MARGIN = 8; // Blocks of detour room captured around start and goal
+    private static final int VERTICAL_MARGIN = 8;
+    private static final int START_CELL_SHIFT = 2; // Starts in the same 4x4x4 cell share a search
+
+    private static final List<PathTicket> PENDING = new ArrayList<>();
+    private static final Map<RequestKey, PathTicket> IN_FLIGHT = new HashMap<>();
+    private static ExecutorService executor;
+
+    private static long submitted = 0;
+    private static long coalesced = 0;
+    private static long delivered = 0;
+    private static long partial = 0;
+
+    private AsyncPathService() {}
+
+    private record RequestKey(ResourceKey<Level> dimension, long startCell, long goal) {}
+
+    /**
+     * Handle for one requested path, possibly shared by several agents. Only touched on the server thread.
+     */
+    public static final class PathTicket {
+        private final RequestKey key;
+        private final CompletableFuture<GridPathfinder.Result> future;
+        @Nullable private GridPathfinder.Result result;
+        private int holders = 1;
+        private boolean done = false;
+
+        private PathTicket(RequestKey key, CompletableFuture<GridPathfinder.Result> future) {
+            this.key = key;
+            this.future = future;
+        }
+
+        /**
+         * True once the search has finished and its result has been delivered on the server thread.
+         */
+        public boolean isDone() { return done; }
+
+        /**
+         * A new path for the caller standing at {@code from} to follow, or null if none was found. Each
+         * call builds a separate {@link Path}, since navigation advances it in place. A shared search may
+         * have started a few blocks from the caller, so the path is picked up at its node closest to
+         * {@code from} rather than at its first. The path may stop short of the goal when the node
+         * budget ran out; {@link Path#canReach()} tells which.
+         */
+        @Nullable
+        public Path getPath(BlockPos from) {
+            if (result == null) {
+                return null;
+            }
+            Path path = result.toPath();
+            int nearest = 0;
+            double nearestDistanceSqr = Double.MAX_VALUE;
+            for (int i = 0; i < path.getNodeCount(); i++) {
+                double distanceSqr = path.getNode(i).asBlockPos().distSqr(from);
+                if (distanceSqr < nearestDistanceSqr) {
+                    nearestDistanceSqr = distanceSqr;
+                    nearest = i;
+                }
+            }
+            path.setNextNodeIndex(nearest);
+            return path;
+        }
+
+        /**
+         * Drops the caller's interest; the search is abandoned once nobody is waiting on it.
+         */
+        public void cancel() {
+            if (!done && --holders <= 0) {
+                future.cancel(false);
+                IN_FLIGHT.remove(key, this);
+            }
+        }
+    }
+
+    /**
+     * Snapshots the blocks around the trip and queues the search, or joins a search for the same goal
+     * from nearby that is already running. Must be called on the server thread.
+     */
+    public static PathTicket submit(ServerLevel level, BlockPos start, BlockPos goal) {
+        RequestKey key = new RequestKey(level.dimension(), BlockPos.asLong(start.getX() >> START_CELL_SHIFT,
+                start.getY() >> START_CELL_SHIFT, start.getZ() >> START_CELL_SHIFT), goal.asLong());
+        PathTicket existing = IN_FLIGHT.get(key);
+        if (existing != null) {
+            existing.holders++;
+            coalesced++;
+            return existing;
+        }
+
+        BlockPos min = new BlockPos(Math.min(start.getX(), goal.getX()) - HORIZONTAL_MARGIN,
+                Math.min(start.getY(), goal.getY()) - VERTICAL_MARGIN,
+                Math.min(start.getZ(), goal.getZ()) - HORIZONTAL_MARGIN);
+        BlockPos max = new BlockPos(Math.max(start.getX(), goal.getX()) + HORIZONTAL_MARGIN,
+                Math.max(start.getY(), goal.getY()) + VERTICAL_MARGIN,
+                Math.max(start.getZ(), goal.getZ()) + HORIZONTAL_MARGIN);
+        ChunkSectionSnapshot snapshot = ChunkSectionSnapshot.captureBox(level, min, max);
+        BlockPos from = start.immutable();
+        BlockPos to = goal.immutable();
+        int nodeBudget = Config.asyncPathNodeBudget;
+
+        CompletableFuture<GridPathfinder.Result> future = CompletableFuture.supplyAsync(
+                () -> GridPathfinder.find(snapshot, from, to, nodeBudget), executor());
+
+        PathTicket ticket = new PathTicket(key, future);
+        PENDING.add(ticket);
+        IN_FLIGHT.put(key, ticket);
+        submitted++;
+        MovementController.recordComputation(level.getGameTime());
+        return ticket;
+    }
+
+    public static int getPendingCount() { return PENDING.size(); }
+
+    public static long getSubmittedCount() { return submitted; }
+
+    public static long getCoalescedCount() { return coalesced; }
+
+    public static long getDeliveredCount() { return delivered; }
+
+    public static long getPartialCount() { return partial; }
+
+    private static synchronized ExecutorService executor() {
+        if (executor == null) {
+            AtomicInteger threadId = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(Math.max(1, Config.asyncPathThreads), runnable -> {
+                Thread thread = new Thread(runnable, "MASONRY Path #" + threadId.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || PENDING.isEmpty()) {
+            return;
+        }
+        Iterator<PathTicket> it = PENDING.iterator();
+        while (it.hasNext()) {
+            PathTicket ticket = it.next();
+            if (!ticket.future.isDone()) {
+                continue;
+            }
+            it.remove();
+            IN_FLIGHT.remove(ticket.key, ticket);
+            ticket.done = true;
+            if (ticket.future.isCancelled() || ticket.future.isCompletedExceptionally()) {
+                continue;
+            }
+            ticket.result = ticket.future.join();
+            delivered++;
+            if (ticket.result != null && !ticket.result.reached()) {
+                partial++;
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static synchronized void onServerStopped(ServerStoppedEvent event) {
+        PENDING.clear();
+        IN_FLIGHT.clear();
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        submitted = 0;
+        coalesced = 0;
+        delivered = 0;
+        partial = 0;
+    }
+}
@@ -0,0 +1,386 @@
+package com.mas.masonry.agent.movement;
+
+import com.mas.masonry.MASONRY;
+import com.mas.masonry.agent.world.WorldView;
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.levelgen.Heightmap;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coarse walking graph of the loaded world, used to plan trips far beyond what a single vanilla path
+ * can cover. Each chunk keeps the standing height of its surface columns; where the surfaces of two
+ * neighbouring chunks meet at a walkable height difference, the run of crossable border columns becomes
+ * a {@link Portal}. Inside a chunk, the walking distance between each pair of its portals is found with
+ * a breadth-first search over the surface.
+ * <p>
+ * Everything is built lazily as the planner touches it and cached. A block change only marks its chunk
+ * dirty when it actually moved that column's surface, and then only that chunk's surface, its four
+ * borders and, through border versions, its neighbours' portal costs are recomputed. Unloaded chunks
+ * are never loaded; they simply have no portals until they are.
+ * <p>
+ * The graph follows the surface only (the {@code MOTION_BLOCKING_NO_LEAVES} heightmap), steps at most
+ * one block up or down between columns, and treats water and lava as impassable. That covers overland
+ * travel, which is what long trips are; caves and swimming are left to the local pathfinder.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public final class ChunkPortalGraph {
+    private static final Map<ResourceKey<Level>, ChunkPortalGraph> GRAPHS = new HashMap<>();
+
+    static final int NO_SURFACE = Integer.MIN_VALUE;
+    private static final int MAX_STEP = 1; // Surface columns further apart in height than this aren't walked between
+    private static final long IDLE_EXPIRY_TICKS = 6000;
+    private static final int PURGE_INTERVAL_TICKS = 1200;
+
+    /**
+     * A walkable run of columns across the border between two chunks, crossed at its middle. Chunk A is
+     * the west or north one.
+     */
+    public static final class Portal {
+        final int id;
+        final long chunkA;
+        final long chunkB;
+        final BlockPos posA;
+        final BlockPos posB;
+
+        Portal(int id, long chunkA, long chunkB, BlockPos posA, BlockPos posB) {
+            this.id = id;
+            this.chunkA = chunkA;
+            this.chunkB = chunkB;
+            this.posA = posA;
+            this.posB = posB;
+        }
+
+        long other(long chunk) { return chunk == chunkA ? chunkB : chunkA; }
+
+        BlockPos posIn(long chunk) { return chunk == chunkA ? posA : posB; }
+    }
+
+    /**
+     * One chunk's surface and the walking costs between the portals on its borders.
+     */
+    static final class ChunkCell {
+        final long key;
+        final int minX;
+        final int minZ;
+        final int[] standY = new int[256]; // Indexed by x + z * 16; NO_SURFACE where nothing can stand
+        boolean surfaceDirty = false;
+        Portal[] portals = new Portal[0];
+        int[][] costs = new int[0][]; // costs[i][j]: steps from portal i to portal j inside the chunk, -1 if cut off
+        int bordersStamp = -1;
+        long lastUsed;
+
+        ChunkCell(long key) {
+            this.key = key;
+            this.minX = ChunkPos.getX(key) << 4;
+            this.minZ = ChunkPos.getZ(key) << 4;
+        }
+
+        int columnOf(BlockPos pos) {
+            return (pos.getX() - minX) + ((pos.getZ() - minZ) << 4);
+        }
+
+        int indexOf(Portal portal) {
+            for (int i = 0; i < portals.length; i++) {
+                if (portals[i] == portal) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class Border {
+        final List<Portal> portals;
+        final int version;
+        boolean dirty = false;
+
+        Border(List<Portal> portals, int version) {
+            this.portals = portals;
+            this.version = version;
+        }
+    }
+
+    private final Long2ObjectOpenHashMap<ChunkCell> cells = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectOpenHashMap<Border> eastBorders = new Long2ObjectOpenHashMap<>(); // Keyed by the west chunk
+    private final Long2ObjectOpenHashMap<Border> southBorders = new Long2ObjectOpenHashMap<>(); // Keyed by the north chunk
+    private int nextPortalId = 0;
+    private int nextBorderVersion = 1;
+
+    private static long surfaceBuilds = 0;
+    private static long borderBuilds = 0;
+    private static long invalidations = 0;
+
+    private ChunkPortalGraph() {}
+
+    public static ChunkPortalGraph get(ServerLevel level) {
+        return GRAPHS.computeIfAbsent(level.dimension(), key -> new ChunkPortalGraph());
+    }
+
+    public int getCellCount() { return cells.size(); }
+
+    public static long getSurfaceBuildCount() { return surfaceBuilds; }
+
+    public static long getBorderBuildCount() { return borderBuilds; }
+
+    public static long getInvalidationCount() { return invalidations; }
+
+    /**
+     * The chunk's cell with up-to-date portals and costs, or null if the chunk has never been loaded
+     * while the graph looked at it.
+     */
+    @Nullable
+    ChunkCell cell(ServerLevel level, long key, long gameTime) {
+        ChunkCell cell = surface(level, key, gameTime);
+        if (cell == null) {
+            return null;
+        }
+        int x = ChunkPos.getX(key), z = ChunkPos.getZ(key);
+        Border east = border(level, key, true, gameTime);
+        Border west = border(level, ChunkPos.asLong(x - 1, z), true, gameTime);
+        Border south = border(level, key, false, gameTime);
+        Border north = border(level, ChunkPos.asLong(x, z - 1), false, gameTime);
+
+        int stamp = Arrays.hashCode(new int[]{versionOf(east), versionOf(west), versionOf(south), versionOf(north)});
+        if (stamp != cell.bordersStamp) {
+            List<Portal> portals = new ArrayList<>();
+            for (Border border : new Border[]{east, west, south, north}) {
+                if (border != null) {
+                    portals.addAll(border.portals);
+                }
+            }
+            cell.portals = portals.toArray(new Portal[0]);
+            cell.costs = new int[cell.portals.length][];
+            for (int i = 0; i < cell.portals.length; i++) {
+                int[] distances = distances(cell, cell.columnOf(cell.portals[i].posIn(key)));
+                int[] row = new int[cell.portals.length];
+                for (int j = 0; j < row.length; j++) {
+                    row[j] = distances[cell.columnOf(cell.portals[j].posIn(key))];
+                }
+                cell.costs[i] = row;
+            }
+            cell.bordersStamp = stamp;
+        }
+        return cell;
+    }
+
+    private static int versionOf(@Nullable Border border) {
+        return border == null ? 0 : border.version;
+    }
+
+    /**
+     * Walking distance from the column at {@code pos} to every column of the chunk, or null if nothing
+     * can stand there.
+     */
+    @Nullable
+    int[] distancesFrom(ChunkCell cell, BlockPos pos) {
+        int column = cell.columnOf(pos);
+        return cell.standY[column] == NO_SURFACE ? null : distances(cell, column);
+    }
+
+    private static int[] distances(ChunkCell cell, int startColumn) {
+        int[] distance = new int[256];
+        Arrays.fill(distance, -1);
+        if (cell.standY[startColumn] == NO_SURFACE) {
+            return distance;
+        }
+        IntArrayFIFOQueue queue = new IntArrayFIFOQueue();
+        distance[startColumn] = 0;
+        queue.enqueue(startColumn);
+        while (!queue.isEmpty()) {
+            int column = queue.dequeueInt();
+            int x = column & 15, z = column >> 4;
+            int height = cell.standY[column];
+            for (int dir = 0; dir < 4; dir++) {
+                int nx = x + (dir == 0 ? 1 : dir == 1 ? -1 : 0);
+                int nz = z + (dir == 2 ? 1 : dir == 3 ? -1 : 0);
+                if (nx < 0 || nx > 15 || nz < 0 || nz > 15) {
+                    continue;
+                }
+                int next = nx + (nz << 4);
+                if (distance[next] < 0 && isStep(height, cell.standY[next])) {
+                    distance[next] = distance[column] + 1;
+                    queue.enqueue(next);
+                }
+            }
+        }
+        return distance;
+    }
+
+    private static boolean isStep(int fromY, int toY) {
+        return fromY != NO_SURFACE && toY != NO_SURFACE && Math.abs(toY - fromY) <= MAX_STEP;
+    }
+
+    @Nullable
+    private ChunkCell surface(ServerLevel level, long key, long gameTime) {
+        ChunkCell cell = cells.get(key);
+        if (cell != null && !cell.surfaceDirty) {
+            cell.lastUsed = gameTime;
+            return cell;
+        }
+        LevelChunk chunk = WorldView.getChunkIfLoaded(level, ChunkPos.getX(key), ChunkPos.getZ(key));
+        if (chunk == null) {
+            // A stale surface is still a better guess than none for a chunk nobody can see right now
+            return cell;
+        }
+        boolean rebuild = cell != null;
+        if (cell == null) {
+            cell = new ChunkCell(key);
+            cells.put(key, cell);
+        }
+        for (int column = 0; column < 256; column++) {
+            cell.standY[column] = standingY(chunk, column & 15, column >> 4);
+        }
+        cell.surfaceDirty = false;
+        cell.bordersStamp = -1;
+        cell.lastUsed = gameTime;
+        surfaceBuilds++;
+        if (rebuild) {
+            int x = ChunkPos.getX(key), z = ChunkPos.getZ(key);
+            markDirty(eastBorders.get(key));
+            markDirty(eastBorders.get(ChunkPos.asLong(x - 1, z)));
+            markDirty(southBorders.get(key));
+            markDirty(southBorders.get(ChunkPos.asLong(x, z - 1)));
+        }
+        return cell;
+    }
+
+    private static void markDirty(@Nullable Border border) {
+        if (border != null) {
+            border.dirty = true;
+        }
+    }
+
+    private static int standingY(LevelChunk chunk, int localX, int localZ) {
+        int top = chunk.getHeight(Heightmap.Types.MOTION_BLOCKING_NO_LEAVES, localX, localZ);
+        if (top < chunk.getMinBuildHeight()) {
+            return NO_SURFACE;
+        }
+        BlockState ground = chunk.getBlockState(new BlockPos(chunk.getPos().getMinBlockX() + localX, top,
+                chunk.getPos().getMinBlockZ() + localZ));
+        return ground.getFluidState().isEmpty() ? top + 1 : NO_SURFACE;
+    }
+
+    /**
+     * The portals on the east (or south) border of {@code key}, or null while the chunk on the other
+     * side has never been seen loaded.
+     */
+    @Nullable
+    private Border border(ServerLevel level, long key, boolean east, long gameTime) {
+        Long2ObjectOpenHashMap<Border> borders = east ? eastBorders : southBorders;
+        Border border = borders.get(key);
+        if (border != null && !border.dirty) {
+            return border;
+        }
+        int x = ChunkPos.getX(key), z = ChunkPos.getZ(key);
+        long otherKey = east ? ChunkPos.asLong(x + 1, z) : ChunkPos.asLong(x, z + 1);
+        ChunkCell a = surface(level, key, gameTime);
+        ChunkCell b = surface(level, otherKey, gameTime);
+        if (a == null || b == null) {
+            return border;
+        }
+
+        List<Portal> portals = new ArrayList<>();
+        int runStart = -1;
+        for (int i = 0; i <= 16; i++) {
+            boolean crossable = i < 16 && isStep(a.standY[edgeColumn(i, east, true)], b.standY[edgeColumn(i, east, false)]);
+            if (crossable && runStart < 0) {
+                runStart = i;
+            } else if (!crossable && runStart >= 0) {
+                int middle = (runStart + i - 1) / 2;
+                portals.add(new Portal(nextPortalId++, key, otherKey, cellPos(a, edgeColumn(middle, east, true)),
+                        cellPos(b, edgeColumn(middle, east, false))));
+                runStart = -1;
+            }
+        }
+        border = new Border(portals, nextBorderVersion++);
+        borders.put(key, border);
+        borderBuilds++;
+        return border;
+    }
+
+    private static int edgeColumn(int i, boolean east, boolean sideA) {
+        if (east) {
+            return (sideA ? 15 : 0) + (i << 4);
+        }
+        return i + ((sideA ? 15 : 0) << 4);
+    }
+
+    private static BlockPos cellPos(ChunkCell cell, int column) {
+        return new BlockPos(cell.minX + (column & 15), cell.standY[column], cell.minZ + (column >> 4));
+    }
+
+    public static void handleBlockChange(ServerLevel level, BlockPos pos, BlockState newState) {
+        ChunkPortalGraph graph = GRAPHS.get(level.dimension());
+        if (graph == null) {
+            return;
+        }
+        int chunkX = pos.getX() >> 4, chunkZ = pos.getZ() >> 4;
+        ChunkCell cell = graph.cells.get(ChunkPos.asLong(chunkX, chunkZ));
+        if (cell == null || cell.surfaceDirty) {
+            return;
+        }
+        LevelChunk chunk = WorldView.getChunkIfLoaded(level, chunkX, chunkZ);
+        if (chunk == null) {
+            return;
+        }
+        // Most changes (crops, doors, anything under the surface) leave the walkable height alone
+        int localX = pos.getX() & 15, localZ = pos.getZ() & 15;
+        if (standingY(chunk, localX, localZ) != cell.standY[localX + (localZ << 4)]) {
+            cell.surfaceDirty = true;
+            invalidations++;
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLevelTick(TickEvent.LevelTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || !(event.level instanceof ServerLevel level)) {
+            return;
+        }
+        long gameTime = level.getGameTime();
+        if (gameTime % PURGE_INTERVAL_TICKS != 0) {
+            return;
+        }
+        ChunkPortalGraph graph = GRAPHS.get(level.dimension());
+        if (graph != null) {
+            graph.cells.values().removeIf(cell -> gameTime - cell.lastUsed > IDLE_EXPIRY_TICKS);
+            graph.dropOrphanBorders(graph.eastBorders, 1, 0);
+            graph.dropOrphanBorders(graph.southBorders, 0, 1);
+        }
+    }
+
+    private void dropOrphanBorders(Long2ObjectOpenHashMap<Border> borders, int dx, int dz) {
+        for (LongIterator iterator = borders.keySet().iterator(); iterator.hasNext(); ) {
+            long key = iterator.nextLong();
+            if (!cells.containsKey(key) || !cells.containsKey(ChunkPos.asLong(ChunkPos.getX(key) + dx, ChunkPos.getZ(key) + dz))) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        GRAPHS.clear();
+        surfaceBuilds = 0;
+        borderBuilds = 0;
+        invalidations = 0;
+    }
+}
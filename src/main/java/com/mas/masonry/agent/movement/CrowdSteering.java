@@ -0,0 +1,88 @@
+package com.mas.masonry.agent.movement;
+
+import com.mas.masonry.AgentEntity;
+import com.mas.masonry.MASONRY;
+import com.mas.masonry.agent.perception.AgentSpatialIndex;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.phys.Vec3;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+/**
+ * Local avoidance between moving agents, applied on top of whatever path or flow field they follow.
+ * Neighbours come from the shared {@link AgentSpatialIndex}, so this costs no block lookups and no
+ * pathfinding: an agent is nudged away from agents closer than {@link #NEIGHBOUR_RADIUS}, and to its
+ * right when one is in front of it, so two agents meeting head-on pass each other instead of pushing.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public final class CrowdSteering {
+    private static final double NEIGHBOUR_RADIUS = 1.5;
+    private static final double PASSING_WEIGHT = 0.5; // Share of the push turned sideways for agents ahead
+    private static final double MAX_NUDGE = 0.08; // Blocks per tick added to the agent's motion at most
+    private static final double MIN_MOTION_SQR = 1.0E-4;
+
+    private static long nudges = 0;
+
+    private CrowdSteering() {}
+
+    /**
+     * Nudges the agent's motion away from agents crowding it. Called while the agent is travelling.
+     */
+    static void steer(AgentEntity agent, ServerLevel level) {
+        Vec3 position = agent.position();
+        Vec3 motion = agent.getDeltaMovement();
+        double headingX = 0, headingZ = 0;
+        double speed = Math.sqrt(motion.x * motion.x + motion.z * motion.z);
+        if (speed * speed > MIN_MOTION_SQR) {
+            headingX = motion.x / speed;
+            headingZ = motion.z / speed;
+        }
+
+        double pushX = 0, pushZ = 0;
+        for (AgentEntity other : AgentSpatialIndex.get(level).getEntitiesWithin(AgentEntity.class, position,
+                NEIGHBOUR_RADIUS, other -> other != agent)) {
+            double awayX = position.x - other.getX();
+            double awayZ = position.z - other.getZ();
+            double distance = Math.sqrt(awayX * awayX + awayZ * awayZ);
+            if (distance * distance < MIN_MOTION_SQR) {
+                // Standing in the same spot; split them in a direction both agents agree on
+                // The angle comes from the pair, and the lower id takes the opposite way, so the two
+                // vectors point apart instead of both the same way
+                int low = Math.min(agent.getId(), other.getId());
+                int high = Math.max(agent.getId(), other.getId());
+                double angle = (low * 31 + high) * 2.399963D;
+                double side = agent.getId() == low ? -1.0D : 1.0D;
+                awayX = side * Math.cos(angle);
+                awayZ = side * Math.sin(angle);
+                distance = 1.0;
+            } else {
+                awayX /= distance;
+                awayZ /= distance;
+            }
+            double weight = Math.max(0.0, (NEIGHBOUR_RADIUS - distance) / NEIGHBOUR_RADIUS);
+            pushX += awayX * weight;
+            pushZ += awayZ * weight;
+            if (headingX * -awayX + headingZ * -awayZ > 0) {
+                // The neighbour is ahead; everybody keeps right
+                pushX += -headingZ * weight * PASSING_WEIGHT;
+                pushZ += headingX * weight * PASSING_WEIGHT;
+            }
+        }
+
+        double length = Math.sqrt(pushX * pushX + pushZ * pushZ);
+        if (length * length < MIN_MOTION_SQR) {
+            return;
+        }
+        double scale = Math.min(MAX_NUDGE, length * MAX_NUDGE) / length;
+        agent.push(pushX * scale, 0.0D, pushZ * scale);
+        nudges++;
+    }
+
+    public static long getNudgeCount() { return nudges; }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        nudges = 0;
+    }
+}
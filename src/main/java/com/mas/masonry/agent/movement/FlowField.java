@@ -0,0 +1,259 @@
+package com.mas.masonry.agent.movement;
+
+import com.mas.masonry.agent.world.WorldView;
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.state.BlockState;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Walking distance from every standable cell in a box around one destination, computed with a single
+ * breadth-first search outward from the cells next to the destination. Any number of agents inside the
+ * box can then head for the destination by stepping to a neighbouring cell with a smaller distance,
+ * without running A* each.
+ * <p>
+ * A cell is standable when its floor blocks motion and the two blocks above the floor don't. Agents
+ * may step up one block or drop down up to three.
+ */
+public final class FlowField {
+    private static final int UNREACHABLE = -1;
+    private static final int MAX_STEP_UP = 1;
+    private static final int MAX_DROP = 3;
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DZ = {0, 0, 1, -1};
+
+    private final BlockPos destination;
+    private final int minX, minY, minZ;
+    private final int sizeX, sizeY, sizeZ;
+    private final BitSet solid;
+    private final BitSet standable;
+    private final int[] distance;
+
+    private FlowField(BlockPos destination, int radius, int verticalRadius) {
+        this.destination = destination.immutable();
+        this.minX = destination.getX() - radius;
+        this.minY = destination.getY() - verticalRadius;
+        this.minZ = destination.getZ() - radius;
+        this.sizeX = radius * 2 + 1;
+        this.sizeY = verticalRadius * 2 + 1;
+        this.sizeZ = radius * 2 + 1;
+        this.solid = new BitSet(sizeX * sizeY * sizeZ);
+        this.standable = new BitSet(sizeX * sizeY * sizeZ);
+        this.distance = new int[sizeX * sizeY * sizeZ];
+        Arrays.fill(distance, UNREACHABLE);
+    }
+
+    /**
+     * Builds the field on the server thread. Unloaded chunks inside the box count as solid rock.
+     */
+    public static FlowField build(ServerLevel level, BlockPos destination, int radius, int verticalRadius) {
+        FlowField field = new FlowField(destination, radius, verticalRadius);
+        field.scanColumns(level);
+        field.propagate();
+        return field;
+    }
+
+    /**
+     * Brings the field up to date after the given blocks changed, re-reading only the cells those
+     * blocks touch and re-running the distance search if any of them changed.
+     * @param changed Packed positions of the changed blocks.
+     */
+    public void update(ServerLevel level, LongCollection changed) {
+        BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+        boolean anyChanged = false;
+        LongIterator it = changed.iterator();
+        while (it.hasNext()) {
+            long pos = it.nextLong();
+            int x = BlockPos.getX(pos) - minX, y = BlockPos.getY(pos) - minY, z = BlockPos.getZ(pos) - minZ;
+            // A block is the floor of the cell above it, the feet of its own cell and the head of the one below
+            for (int cy = Math.max(0, y - 1); cy <= Math.min(sizeY - 1, y + 1); cy++) {
+                if (inBounds(x, cy, z)) {
+                    anyChanged |= rescan(level, cursor, x, cy, z);
+                }
+            }
+        }
+        if (anyChanged) {
+            Arrays.fill(distance, UNREACHABLE);
+            propagate();
+        }
+    }
+
+    private boolean rescan(ServerLevel level, BlockPos.MutableBlockPos cursor, int x, int y, int z) {
+        int wx = minX + x, wy = minY + y, wz = minZ + z;
+        boolean floor = blocksMotion(level, cursor.set(wx, wy - 1, wz));
+        boolean feet = blocksMotion(level, cursor.set(wx, wy, wz));
+        boolean head = blocksMotion(level, cursor.set(wx, wy + 1, wz));
+        int index = index(x, y, z);
+        boolean wasSolid = solid.get(index), wasStandable = standable.get(index);
+        solid.set(index, feet);
+        standable.set(index, !feet && floor && !head);
+        return wasSolid != solid.get(index) || wasStandable != standable.get(index);
+    }
+
+    private void scanColumns(ServerLevel level) {
+        BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+        for (int x = 0; x < sizeX; x++) {
+            for (int z = 0; z < sizeZ; z++) {
+                // Walk each column once, bottom to top, keeping the last three blocks
+                boolean floor = blocksMotion(level, cursor.set(minX + x, minY - 1, minZ + z));
+                boolean feet = blocksMotion(level, cursor.set(minX + x, minY, minZ + z));
+                for (int y = 0; y < sizeY; y++) {
+                    boolean head = blocksMotion(level, cursor.set(minX + x, minY + y + 1, minZ + z));
+                    if (feet) {
+                        solid.set(index(x, y, z));
+                    } else if (floor && !head) {
+                        standable.set(index(x, y, z));
+                    }
+                    floor = feet;
+                    feet = head;
+                }
+            }
+        }
+    }
+
+    private static boolean blocksMotion(ServerLevel level, BlockPos pos) {
+        BlockState state = WorldView.getBlockState(level, pos);
+        return state == null || state.blocksMotion();
+    }
+
+    private void propagate() {
+        IntArrayFIFOQueue queue = new IntArrayFIFOQueue();
+        // Arrival means being within a block and a half of the destination, so every standable cell
+        // around it is a goal
+        int cx = destination.getX() - minX, cy = destination.getY() - minY, cz = destination.getZ() - minZ;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    int x = cx + dx, y = cy + dy, z = cz + dz;
+                    if (inBounds(x, y, z) && standable.get(index(x, y, z))) {
+                        distance[index(x, y, z)] = 0;
+                        queue.enqueue(index(x, y, z));
+                    }
+                }
+            }
+        }
+
+        // Expanding from a cell B finds every cell A that can step onto B
+        while (!queue.isEmpty()) {
+            int cell = queue.dequeueInt();
+            int x = cell % sizeX, z = (cell / sizeX) % sizeZ, y = cell / (sizeX * sizeZ);
+            int next = distance[cell] + 1;
+            for (int dir = 0; dir < 4; dir++) {
+                int ax = x + DX[dir], az = z + DZ[dir];
+                for (int ay = y - MAX_STEP_UP; ay <= y + MAX_DROP; ay++) {
+                    if (!inBounds(ax, ay, az)) {
+                        continue;
+                    }
+                    int from = index(ax, ay, az);
+                    if (distance[from] == UNREACHABLE && standable.get(from) && canStep(ax, ay, az, x, y, z)) {
+                        distance[from] = next;
+                        queue.enqueue(from);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether an agent standing at cell A can move onto the neighbouring cell B.
+     */
+    private boolean canStep(int ax, int ay, int az, int bx, int by, int bz) {
+        if (by > ay) {
+            // Jumping up needs room above the agent's head
+            return isOpen(ax, ay + 2, az);
+        }
+        // Walking or dropping: the agent's body has to fit into B's column at its current height
+        for (int y = by + 2; y <= ay + 1; y++) {
+            if (!isOpen(bx, y, bz)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Above the box is assumed open; standable cells already proved their own head room
+    private boolean isOpen(int x, int y, int z) {
+        if (y >= sizeY) {
+            return true;
+        }
+        return inBounds(x, y, z) && !solid.get(index(x, y, z));
+    }
+
+    /**
+     * The neighbouring cell one step closer to the destination, or null if {@code pos} is outside the
+     * field, not standable, cut off from the destination, or already there.
+     */
+    @Nullable
+    public BlockPos nextStep(BlockPos pos) {
+        int x = pos.getX() - minX, y = pos.getY() - minY, z = pos.getZ() - minZ;
+        if (!inBounds(x, y, z)) {
+            return null;
+        }
+        int current = distance[index(x, y, z)];
+        if (current <= 0) {
+            return null;
+        }
+        for (int dir = 0; dir < 4; dir++) {
+            int bx = x + DX[dir], bz = z + DZ[dir];
+            for (int by = y + MAX_STEP_UP; by >= y - MAX_DROP; by--) {
+                if (inBounds(bx, by, bz) && distance[index(bx, by, bz)] == current - 1
+                        && canStep(x, y, z, bx, by, bz)) {
+                    return new BlockPos(minX + bx, minY + by, minZ + bz);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Follows the field from {@code pos} for up to {@code maxSteps} cells while it keeps going straight
+     * on the level, so an agent can be sent a few blocks at a time without cutting corners.
+     * @return The furthest cell reached that way, or null if there is no next step.
+     */
+    @Nullable
+    public BlockPos stepsAhead(BlockPos pos, int maxSteps) {
+        BlockPos first = nextStep(pos);
+        if (first == null) {
+            return null;
+        }
+        int dx = first.getX() - pos.getX(), dz = first.getZ() - pos.getZ();
+        BlockPos reached = first;
+        for (int i = 1; i < maxSteps && first.getY() == pos.getY(); i++) {
+            BlockPos next = nextStep(reached);
+            if (next == null || next.getY() != reached.getY()
+                    || next.getX() - reached.getX() != dx || next.getZ() - reached.getZ() != dz) {
+                break;
+            }
+            reached = next;
+        }
+        return reached;
+    }
+
+    /**
+     * Steps from {@code pos} to the destination, or -1 if it can't get there through the field.
+     */
+    public int distanceFrom(BlockPos pos) {
+        int x = pos.getX() - minX, y = pos.getY() - minY, z = pos.getZ() - minZ;
+        return inBounds(x, y, z) ? distance[index(x, y, z)] : UNREACHABLE;
+    }
+
+    public boolean contains(BlockPos pos) {
+        return inBounds(pos.getX() - minX, pos.getY() - minY, pos.getZ() - minZ);
+    }
+
+    public BlockPos getDestination() { return destination; }
+
+    private boolean inBounds(int x, int y, int z) {
+        return x >= 0 && x < sizeX && y >= 0 && y < sizeY && z >= 0 && z < sizeZ;
+    }
+
+    private int index(int x, int y, int z) {
+        return (y * sizeZ + z) * sizeX + x;
+    }
+}
@@ -0,0 +1,169 @@
+package com.mas.masonry.agent.movement;
+
+import com.mas.masonry.AgentEntity;
+import com.mas.masonry.Config;
+import com.mas.masonry.MASONRY;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shared {@link FlowField}s for destinations several agents are walking to at once, such as a
+ * construction step or a popular harvest block. A destination gets a field once enough different agents
+ * ask for it within a few seconds; below that, agents keep using their own A* paths, and the only thing
+ * kept per destination is a small tally of who asked. When blocks inside a field change, the field keeps
+ * being served as it was while a short cooldown runs, then only the cells around those blocks are read
+ * again, so a busy construction site doesn't bounce its builders between the field and A*. Fields are
+ * dropped once nobody has used them for a while.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public final class FlowFieldCache {
+    private static final Map<ResourceKey<Level>, FlowFieldCache> CACHES = new HashMap<>();
+
+    private static final int VERTICAL_RADIUS = 8;
+    private static final long DEMAND_WINDOW_TICKS = 100; // Requests older than this don't count toward building a field
+    private static final long REBUILD_COOLDOWN_TICKS = 20; // A busy site updates its field at most once a second
+    private static final long IDLE_EXPIRY_TICKS = 600;
+    private static final int PURGE_INTERVAL_TICKS = 100;
+
+    private static final class Entry {
+        final FlowField field;
+        final LongOpenHashSet changed = new LongOpenHashSet(); // Blocks changed inside the field since the last update
+        long lastUsed;
+        long updatedAt;
+
+        Entry(FlowField field, long gameTime) {
+            this.field = field;
+            this.lastUsed = gameTime;
+            this.updatedAt = gameTime;
+        }
+    }
+
+    // Distinct agents that asked for a destination without a field within the current window
+    private static final class Demand {
+        // Grows as needed, so the threshold can be raised in the config while tallies are running
+        final IntArrayList requesters = new IntArrayList(4);
+        long windowStart;
+
+        // True once enough different agents have asked
+        boolean add(int agentId, long gameTime) {
+            if (gameTime - windowStart > DEMAND_WINDOW_TICKS) {
+                requesters.clear();
+                windowStart = gameTime;
+            }
+            if (!requesters.contains(agentId)) {
+                requesters.add(agentId);
+            }
+            return requesters.size() >= Config.flowFieldMinAgents;
+        }
+    }
+
+    private final Long2ObjectOpenHashMap<Entry> entries = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectOpenHashMap<Demand> demand = new Long2ObjectOpenHashMap<>();
+
+    private static long builds = 0;
+    private static long invalidations = 0;
+    private static long updates = 0;
+    private static long steps = 0;
+
+    private FlowFieldCache() {}
+
+    public static FlowFieldCache get(ServerLevel level) {
+        return CACHES.computeIfAbsent(level.dimension(), key -> new FlowFieldCache());
+    }
+
+    /**
+     * The shared field toward {@code destination}, or null while too few agents are heading there.
+     */
+    @Nullable
+    public FlowField fieldFor(ServerLevel level, BlockPos destination, AgentEntity agent) {
+        long gameTime = level.getGameTime();
+        long key = destination.asLong();
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            if (!demand.computeIfAbsent(key, k -> new Demand()).add(agent.getId(), gameTime)) {
+                return null;
+            }
+            demand.remove(key);
+            entry = new Entry(FlowField.build(level, destination, Config.flowFieldRadius, VERTICAL_RADIUS), gameTime);
+            entries.put(key, entry);
+            builds++;
+        }
+        entry.lastUsed = gameTime;
+        if (!entry.changed.isEmpty() && gameTime - entry.updatedAt >= REBUILD_COOLDOWN_TICKS) {
+            // Until now agents kept following the old distances; at worst one bumps into a new block
+            entry.field.update(level, entry.changed);
+            entry.changed.clear();
+            entry.updatedAt = gameTime;
+            updates++;
+        }
+        return entry.field;
+    }
+
+    static void recordStep() { steps++; }
+
+    public int getFieldCount() { return entries.size(); }
+
+    public static long getBuildCount() { return builds; }
+
+    public static long getInvalidationCount() { return invalidations; }
+
+    /**
+     * Fields brought up to date in place after blocks inside them changed.
+     */
+    public static long getUpdateCount() { return updates; }
+
+    public static long getStepCount() { return steps; }
+
+    public static void handleBlockChange(ServerLevel level, BlockPos pos, BlockState newState) {
+        FlowFieldCache cache = CACHES.get(level.dimension());
+        if (cache == null) {
+            return;
+        }
+        for (Entry entry : cache.entries.values()) {
+            // A block just outside the box can still be the floor or head room of a cell inside it
+            if ((entry.field.contains(pos) || entry.field.contains(pos.above()) || entry.field.contains(pos.below()))
+                    && entry.changed.add(pos.asLong())) {
+                invalidations++;
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLevelTick(TickEvent.LevelTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || !(event.level instanceof ServerLevel level)) {
+            return;
+        }
+        long gameTime = level.getGameTime();
+        if (gameTime % PURGE_INTERVAL_TICKS != 0) {
+            return;
+        }
+        FlowFieldCache cache = CACHES.get(level.dimension());
+        if (cache != null) {
+            cache.entries.values().removeIf(entry -> gameTime - entry.lastUsed > IDLE_EXPIRY_TICKS);
+            cache.demand.values().removeIf(tally -> gameTime - tally.windowStart > DEMAND_WINDOW_TICKS);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        CACHES.clear();
+        builds = 0;
+        invalidations = 0;
+        updates = 0;
+        steps = 0;
+    }
+}
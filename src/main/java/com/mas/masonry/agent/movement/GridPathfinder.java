@@ -0,0 +1,182 @@
+package com.mas.masonry.agent.movement;
+
+import com.mas.masonry.agent.world.ChunkSectionSnapshot;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.tags.FluidTags;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.pathfinder.Node;
+import net.minecraft.world.level.pathfinder.Path;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A* over standing cells of a {@link ChunkSectionSnapshot}, so it can run on a worker thread. Uses the
+ * same movement rules as {@link FlowField}: a cell is standable when its floor blocks motion and the
+ * two blocks above the floor don't, and agents may step up one block or drop down up to three. Blocks
+ * outside the snapshot count as solid.
+ */
+final class GridPathfinder {
+    private static final int MAX_STEP_UP = 1;
+    private static final int MAX_DROP = 3;
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DZ = {0, 0, 1, -1};
+
+    /**
+     * Cells from start to the last one reached, and whether that last one is next to the goal.
+     * Immutable, so one result can be shared by every agent that asked for the same trip.
+     */
+    record Result(List<BlockPos> cells, BlockPos goal, boolean reached) {
+        /**
+         * A fresh vanilla path for one agent; {@link Path} tracks its own progress and can't be shared.
+         */
+        Path toPath() {
+            List<Node> nodes = new ArrayList<>(cells.size());
+            for (BlockPos cell : cells) {
+                nodes.add(new Node(cell.getX(), cell.getY(), cell.getZ()));
+            }
+            return new Path(nodes, goal, reached);
+        }
+    }
+
+    private record Open(long pos, int cost, int estimate) {}
+
+    private final ChunkSectionSnapshot snapshot;
+    private final BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+
+    private GridPathfinder(ChunkSectionSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Searches from {@code start} toward {@code goal}, expanding at most {@code nodeBudget} cells. When
+     * the budget runs out or the goal is cut off, returns a partial path to the cell that got closest.
+     * @return Null if the start cell isn't standable or no step could be taken at all.
+     */
+    @Nullable
+    static Result find(ChunkSectionSnapshot snapshot, BlockPos start, BlockPos goal, int nodeBudget) {
+        return new GridPathfinder(snapshot).search(start, goal, nodeBudget);
+    }
+
+    @Nullable
+    private Result search(BlockPos start, BlockPos goal, int nodeBudget) {
+        BlockPos first = start;
+        if (!isStandable(first.getX(), first.getY(), first.getZ())) {
+            // Agents on farmland, paths and other not-quite-full blocks report the block itself as their position
+            first = start.above();
+            if (!isStandable(first.getX(), first.getY(), first.getZ())) {
+                return null;
+            }
+        }
+
+        Long2IntOpenHashMap costs = new Long2IntOpenHashMap();
+        costs.defaultReturnValue(Integer.MAX_VALUE);
+        Long2LongOpenHashMap parents = new Long2LongOpenHashMap();
+        PriorityQueue<Open> open = new PriorityQueue<>((a, b) -> Integer.compare(a.estimate, b.estimate));
+
+        long startKey = first.asLong();
+        costs.put(startKey, 0);
+        open.add(new Open(startKey, 0, heuristic(first, goal)));
+        long closest = startKey;
+        int closestDistance = heuristic(first, goal);
+
+        int expanded = 0;
+        while (!open.isEmpty() && expanded < nodeBudget) {
+            Open current = open.poll();
+            if (current.cost > costs.get(current.pos)) {
+                continue;
+            }
+            expanded++;
+            int x = BlockPos.getX(current.pos), y = BlockPos.getY(current.pos), z = BlockPos.getZ(current.pos);
+            if (isAtGoal(x, y, z, goal)) {
+                return result(parents, current.pos, startKey, goal, true);
+            }
+
+            for (int dir = 0; dir < 4; dir++) {
+                int bx = x + DX[dir], bz = z + DZ[dir];
+                for (int by = y + MAX_STEP_UP; by >= y - MAX_DROP; by--) {
+                    if (!isStandable(bx, by, bz) || !canStep(x, y, z, bx, by, bz)) {
+                        continue;
+                    }
+                    long next = BlockPos.asLong(bx, by, bz);
+                    int cost = current.cost + 1;
+                    if (cost < costs.get(next)) {
+                        costs.put(next, cost);
+                        parents.put(next, current.pos);
+                        int remaining = heuristic(bx, by, bz, goal);
+                        open.add(new Open(next, cost, cost + remaining));
+                        if (remaining < closestDistance) {
+                            closestDistance = remaining;
+                            closest = next;
+                        }
+                    }
+                    // Only the highest reachable cell in a column is a real option; lower ones are under it
+                    break;
+                }
+            }
+        }
+        return closest == startKey ? null : result(parents, closest, startKey, goal, false);
+    }
+
+    private static Result result(Long2LongOpenHashMap parents, long end, long start, BlockPos goal, boolean reached) {
+        List<BlockPos> cells = new ArrayList<>();
+        for (long pos = end; pos != start; pos = parents.get(pos)) {
+            cells.add(BlockPos.of(pos));
+        }
+        cells.add(BlockPos.of(start));
+        Collections.reverse(cells);
+        return new Result(cells, goal.immutable(), reached);
+    }
+
+    // Arrival means being within a block and a half of the goal, as for flow fields
+    private static boolean isAtGoal(int x, int y, int z, BlockPos goal) {
+        return Math.abs(x - goal.getX()) <= 1 && Math.abs(y - goal.getY()) <= 1 && Math.abs(z - goal.getZ()) <= 1;
+    }
+
+    // Horizontal Manhattan distance; a drop of several blocks is a single step, so height can't be counted
+    private static int heuristic(BlockPos pos, BlockPos goal) {
+        return heuristic(pos.getX(), pos.getY(), pos.getZ(), goal);
+    }
+
+    private static int heuristic(int x, int y, int z, BlockPos goal) {
+        return Math.abs(x - goal.getX()) + Math.abs(z - goal.getZ());
+    }
+
+    /**
+     * Whether an agent standing at cell A can move onto the neighbouring cell B.
+     */
+    private boolean canStep(int ax, int ay, int az, int bx, int by, int bz) {
+        if (by > ay) {
+            // Jumping up needs room above the agent's head
+            return !isSolid(ax, ay + 2, az);
+        }
+        // Walking or dropping: the agent's body has to fit into B's column at its current height
+        for (int y = by + 2; y <= ay + 1; y++) {
+            if (isSolid(bx, y, bz)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isStandable(int x, int y, int z) {
+        if (!isSolid(x, y - 1, z) || isSolid(x, y, z) || isSolid(x, y + 1, z)) {
+            return false;
+        }
+        BlockState feet = snapshot.getBlockState(cursor.set(x, y, z));
+        return feet != null && !feet.getFluidState().is(FluidTags.LAVA);
+    }
+
+    private boolean isSolid(int x, int y, int z) {
+        if (y < snapshot.getMinBuildY() || y > snapshot.getMaxBuildY()) {
+            return y < snapshot.getMinBuildY();
+        }
+        BlockState state = snapshot.getBlockState(cursor.set(x, y, z));
+        return state == null || state.blocksMotion();
+    }
+}
@@ -0,0 +1,158 @@
+package com.mas.masonry.agent.movement;
+
+import com.mas.masonry.agent.movement.ChunkPortalGraph.ChunkCell;
+import com.mas.masonry.agent.movement.ChunkPortalGraph.Portal;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Plans long trips in two levels: an A* over the {@link ChunkPortalGraph} picks the sequence of chunk
+ * border crossings, and the agent then walks from crossing to crossing with ordinary short local paths.
+ * The coarse search only ever looks at a few portals per chunk, so a trip of several hundred blocks costs
+ * about as much as one local path.
+ */
+public final class HierarchicalPlanner {
+    /**
+     * Trips shorter than this (horizontally) are left to a single local path.
+     */
+    public static final int LONG_RANGE_DISTANCE = 48;
+
+    private static final int MAX_EXPANDED = 4096; // Coarse nodes searched before a plan is given up on
+
+    private static long plans = 0;
+    private static long failures = 0;
+
+    /**
+     * A crossing of {@code portal} into chunk {@code toChunk}, reached after {@code cost} steps.
+     */
+    private record Step(@Nullable Portal portal, long toChunk, int cost, int estimate, @Nullable Step parent) {
+        int key() {
+            return portal == null ? -1 : portal.id * 2 + (toChunk == portal.chunkB ? 1 : 0);
+        }
+    }
+
+    private HierarchicalPlanner() {}
+
+    public static long getPlanCount() { return plans; }
+
+    public static long getFailureCount() { return failures; }
+
+    /**
+     * Whether a trip is long enough to plan over the chunk graph, measured as the larger of the x and z
+     * distances; everything that decides between a local path and a coarse plan should ask this.
+     */
+    public static boolean isLongRange(BlockPos from, BlockPos to) {
+        return Math.max(Math.abs(from.getX() - to.getX()), Math.abs(from.getZ() - to.getZ())) > LONG_RANGE_DISTANCE;
+    }
+
+    /**
+     * Waypoints from {@code from} to {@code to}: the standing cell just past each chunk border to cross,
+     * then {@code to} itself. Returns null if no route over the loaded surface was found.
+     */
+    @Nullable
+    public static List<BlockPos> plan(ServerLevel level, BlockPos from, BlockPos to) {
+        plans++;
+        List<BlockPos> route = search(level, from, to);
+        if (route == null) {
+            failures++;
+        }
+        return route;
+    }
+
+    @Nullable
+    private static List<BlockPos> search(ServerLevel level, BlockPos from, BlockPos to) {
+        ChunkPortalGraph graph = ChunkPortalGraph.get(level);
+        long gameTime = level.getGameTime();
+        long startKey = ChunkPos.asLong(from.getX() >> 4, from.getZ() >> 4);
+        long goalKey = ChunkPos.asLong(to.getX() >> 4, to.getZ() >> 4);
+        ChunkCell startCell = graph.cell(level, startKey, gameTime);
+        ChunkCell goalCell = graph.cell(level, goalKey, gameTime);
+        if (startCell == null || goalCell == null) {
+            return null;
+        }
+        int[] fromStart = graph.distancesFrom(startCell, from);
+        // Surface steps are symmetric, so the distance from the goal is also the distance to it
+        int[] toGoal = graph.distancesFrom(goalCell, to);
+        if (fromStart == null || toGoal == null) {
+            return null;
+        }
+        if (startKey == goalKey) {
+            return fromStart[startCell.columnOf(to)] >= 0 ? List.of(to) : null;
+        }
+
+        PriorityQueue<Step> open = new PriorityQueue<>((a, b) -> Integer.compare(a.estimate, b.estimate));
+        for (Portal portal : startCell.portals) {
+            int cost = fromStart[startCell.columnOf(portal.posIn(startKey))];
+            if (cost >= 0) {
+                open.add(step(portal, portal.other(startKey), cost + 1, null, to));
+            }
+        }
+
+        IntOpenHashSet closed = new IntOpenHashSet();
+        int expanded = 0;
+        while (!open.isEmpty()) {
+            Step current = open.poll();
+            if (current.portal == null) {
+                return waypoints(current, to);
+            }
+            if (!closed.add(current.key())) {
+                continue;
+            }
+            if (++expanded > MAX_EXPANDED) {
+                return null;
+            }
+
+            if (current.toChunk == goalKey) {
+                int remaining = toGoal[goalCell.columnOf(current.portal.posIn(goalKey))];
+                if (remaining >= 0) {
+                    int cost = current.cost + remaining;
+                    open.add(new Step(null, goalKey, cost, cost, current));
+                }
+            }
+
+            ChunkCell cell = graph.cell(level, current.toChunk, gameTime);
+            if (cell == null) {
+                continue;
+            }
+            int entered = cell.indexOf(current.portal);
+            if (entered < 0) {
+                // The border was rebuilt since this crossing was queued
+                continue;
+            }
+            for (int next = 0; next < cell.portals.length; next++) {
+                int cost = cell.costs[entered][next];
+                if (next == entered || cost < 0) {
+                    continue;
+                }
+                Portal portal = cell.portals[next];
+                open.add(step(portal, portal.other(current.toChunk), current.cost + cost + 1, current, to));
+            }
+        }
+        return null;
+    }
+
+    private static Step step(Portal portal, long toChunk, int cost, @Nullable Step parent, BlockPos goal) {
+        BlockPos pos = portal.posIn(toChunk);
+        // Manhattan distance never overestimates on a four-connected grid
+        int heuristic = Math.abs(pos.getX() - goal.getX()) + Math.abs(pos.getZ() - goal.getZ());
+        return new Step(portal, toChunk, cost, cost + heuristic, parent);
+    }
+
+    private static List<BlockPos> waypoints(Step goal, BlockPos to) {
+        List<BlockPos> waypoints = new ArrayList<>();
+        waypoints.add(to);
+        for (Step step = goal.parent; step != null; step = step.parent) {
+            waypoints.add(step.portal.posIn(step.toChunk));
+        }
+        Collections.reverse(waypoints);
+        return waypoints;
+    }
+}
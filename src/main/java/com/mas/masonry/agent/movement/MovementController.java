@@ -0,0 +1,285 @@
+package com.mas.masonry.agent.movement;
+
+import com.mas.masonry.AgentEntity;
+import com.mas.masonry.Config;
+import com.mas.masonry.MASONRY;
+import com.mas.masonry.agent.world.WorldView;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.ai.navigation.PathNavigation;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.pathfinder.Node;
+import net.minecraft.world.level.pathfinder.Path;
+import net.minecraft.world.phys.Vec3;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Keeps one agent's current {@link Path} and only plans a new one when it has to. Handlers call
+ * {@link #moveTo} every tick with where they want to be; a path is computed when there is none, when
+ * the destination has drifted further than the given tolerance from the one the path was planned for,
+ * when a block now obstructs the next stretch of the path, or when the agent stopped getting closer.
+ * Everything else reuses the path the navigation is already following.
+ * <p>
+ * Nearby destinations are planned by the {@link AsyncPathService}: the agent keeps walking its old path
+ * (or stands still) while the search runs, and switches to the new path once it is delivered.
+ * <p>
+ * Fixed destinations that enough agents are heading for are served by a shared {@link FlowField}
+ * from the {@link FlowFieldCache} instead; the agent then just steps along the field. Either way,
+ * {@link CrowdSteering} keeps it from walking into other agents on the way.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public final class MovementController {
+    private static final int LOOKAHEAD_NODES = 4; // Path nodes ahead of the agent checked for obstructions
+    private static final long STALL_TICKS = 60; // Without getting closer for this long counts as stuck
+    private static final double PROGRESS_EPSILON_SQR = 0.25; // Closing in by less than this isn't progress
+    private static final long REPLAN_COOLDOWN_TICKS = 20; // Unreachable targets are retried at most once a second
+    private static final int FIELD_LOOKAHEAD_STEPS = 4; // Flow field cells an agent is sent ahead per FSM tick
+    private static final double ARRIVED_DISTANCE_SQR = 1.5 * 1.5; // The arrival radius the handlers use
+
+    private static long pathsComputed = 0;
+    private static long pathsReused = 0;
+    private static long rateWindowStart = Long.MIN_VALUE;
+    private static long rateWindowPaths = 0;
+    private static double pathsPerSecond = 0;
+
+    private final AgentEntity agent;
+
+    @Nullable private Path path;
+    @Nullable private Vec3 pathDestination;
+    @Nullable private AsyncPathService.PathTicket pendingPath;
+    @Nullable private Vec3 pendingDestination;
+    private double speed;
+    private long lastPlanTime = Long.MIN_VALUE;
+    private double bestDistanceSqr = Double.MAX_VALUE;
+    private long lastProgressTime;
+
+    public MovementController(AgentEntity agent) {
+        this.agent = agent;
+    }
+
+    /**
+     * Keeps the agent heading to {@code destination}, re-planning only when needed.
+     * @param tolerance How far the destination may move before the current path is thrown away.
+     * @return false if no path could be found.
+     */
+    public boolean moveTo(Vec3 destination, double speed, double tolerance) {
+        // Busy destinations have a shared field to follow instead of a path of our own
+        boolean moving = agent.level() instanceof ServerLevel level && followField(level, destination, speed)
+                || pathTo(destination, speed, tolerance);
+        avoidCrowd(moving);
+        return moving;
+    }
+
+    /**
+     * Follows a moving entity, re-planning once it has moved more than {@code tolerance} blocks.
+     */
+    public boolean moveTo(Entity target, double speed, double tolerance) {
+        boolean moving = pathTo(target.position(), speed, tolerance);
+        avoidCrowd(moving);
+        return moving;
+    }
+
+    private void avoidCrowd(boolean moving) {
+        if (moving && agent.level() instanceof ServerLevel level) {
+            CrowdSteering.steer(agent, level);
+        }
+    }
+
+    private boolean pathTo(Vec3 destination, double speed, double tolerance) {
+        long gameTime = agent.level().getGameTime();
+        if (!needsNewPath(destination, tolerance, gameTime)) {
+            cancelPendingPath();
+            follow(speed);
+            pathsReused++;
+            return true;
+        }
+        if (pendingPath != null) {
+            if (pendingDestination.distanceToSqr(destination) > tolerance * tolerance) {
+                // Asked for somewhere else by now; the running search is no longer wanted
+                cancelPendingPath();
+            } else if (!pendingPath.isDone()) {
+                return true;
+            } else {
+                Path newPath = pendingPath.getPath(agent.blockPosition());
+                pendingPath = null;
+                return adopt(newPath, pendingDestination, speed, gameTime);
+            }
+        }
+        if (lastPlanTime != Long.MIN_VALUE && gameTime - lastPlanTime < REPLAN_COOLDOWN_TICKS && isClose(destination, tolerance)) {
+            // Planned very recently for the same place; don't run A* every tick for an unreachable spot
+            return path != null && path.canReach();
+        }
+
+        this.lastPlanTime = gameTime;
+        if (Config.asyncPathing && agent.level() instanceof ServerLevel level && isInAsyncRange(destination)) {
+            // Counted by the service, and only if this doesn't join a search that is already running
+            pendingPath = AsyncPathService.submit(level, agent.blockPosition(), BlockPos.containing(destination));
+            pendingDestination = destination;
+            return true;
+        }
+        recordComputation(gameTime);
+        Path newPath = agent.getNavigation().createPath(destination.x, destination.y, destination.z, 0);
+        return adopt(newPath, destination, speed, gameTime);
+    }
+
+    private boolean adopt(@Nullable Path newPath, Vec3 destination, double speed, long gameTime) {
+        this.path = newPath;
+        this.pathDestination = destination;
+        this.bestDistanceSqr = agent.position().distanceToSqr(destination);
+        this.lastProgressTime = gameTime;
+        if (newPath == null) {
+            return false;
+        }
+        follow(speed);
+        return true;
+    }
+
+    private boolean isInAsyncRange(Vec3 destination) {
+        return Math.max(Math.abs(destination.x - agent.getX()), Math.abs(destination.z - agent.getZ()))
+                <= AsyncPathService.MAX_RANGE;
+    }
+
+    private void cancelPendingPath() {
+        if (pendingPath != null) {
+            pendingPath.cancel();
+            pendingPath = null;
+            pendingDestination = null;
+        }
+    }
+
+    private boolean followField(ServerLevel level, Vec3 destination, double speed) {
+        FlowField field = FlowFieldCache.get(level).fieldFor(level, BlockPos.containing(destination), agent);
+        if (field == null) {
+            return false;
+        }
+        // Off the field, cut off from the goal, or already there: the agent's own path handles it
+        BlockPos step = field.stepsAhead(agent.blockPosition(), FIELD_LOOKAHEAD_STEPS);
+        if (step == null) {
+            return false;
+        }
+        if (path != null || pendingPath != null) {
+            stop();
+        }
+        agent.getMoveControl().setWantedPosition(step.getX() + 0.5D, step.getY(), step.getZ() + 0.5D, speed);
+        FlowFieldCache.recordStep();
+        return true;
+    }
+
+    /**
+     * Drops the current path and stops the agent.
+     */
+    public void stop() {
+        cancelPendingPath();
+        agent.getNavigation().stop();
+        path = null;
+        pathDestination = null;
+        lastPlanTime = Long.MIN_VALUE;
+    }
+
+    @Nullable
+    public Path getPath() { return path; }
+
+    private boolean needsNewPath(Vec3 destination, double tolerance, long gameTime) {
+        if (path == null || pathDestination == null || !isClose(destination, tolerance)) {
+            return true;
+        }
+        if (path.isDone()) {
+            // Walked to the end: standing at the destination is arriving, only falling short needs a new path
+            return agent.position().distanceToSqr(destination) > ARRIVED_DISTANCE_SQR;
+        }
+        // The navigation dropped it (e.g. another goal moved the agent)
+        if (agent.getNavigation().getPath() != path && agent.getNavigation().isDone()) {
+            return true;
+        }
+        if (isObstructed(path)) {
+            return true;
+        }
+
+        double distanceSqr = agent.position().distanceToSqr(destination);
+        if (distanceSqr < bestDistanceSqr - PROGRESS_EPSILON_SQR) {
+            bestDistanceSqr = distanceSqr;
+            lastProgressTime = gameTime;
+            return false;
+        }
+        return gameTime - lastProgressTime > STALL_TICKS;
+    }
+
+    private boolean isClose(Vec3 destination, double tolerance) {
+        return pathDestination != null && pathDestination.distanceToSqr(destination) <= tolerance * tolerance;
+    }
+
+    /**
+     * Whether a block appeared in the next few nodes of the path since it was planned.
+     */
+    private boolean isObstructed(Path path) {
+        int end = Math.min(path.getNodeCount(), path.getNextNodeIndex() + LOOKAHEAD_NODES);
+        for (int i = path.getNextNodeIndex(); i < end; i++) {
+            Node node = path.getNode(i);
+            BlockPos feet = node.asBlockPos();
+            if (blocksMotion(feet) || blocksMotion(feet.above())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean blocksMotion(BlockPos pos) {
+        // Unloaded counts as clear; the path will be re-planned once the agent gets there anyway
+        BlockState state = WorldView.getBlockState(agent.level(), pos);
+        return state != null && state.blocksMotion();
+    }
+
+    private void follow(double speed) {
+        PathNavigation navigation = agent.getNavigation();
+        if (!path.isDone() && (navigation.getPath() != path || this.speed != speed)) {
+            navigation.moveTo(path, speed);
+            this.speed = speed;
+        }
+    }
+
+    static void recordComputation(long gameTime) {
+        pathsComputed++;
+        rollRateWindow(gameTime);
+        rateWindowPaths++;
+    }
+
+    // Closes the current one-second window once it is over, so the rate also decays when nothing paths
+    private static void rollRateWindow(long gameTime) {
+        if (rateWindowStart == Long.MIN_VALUE || gameTime < rateWindowStart) {
+            rateWindowStart = gameTime;
+            rateWindowPaths = 0;
+            return;
+        }
+        long elapsed = gameTime - rateWindowStart;
+        if (elapsed >= 20) {
+            pathsPerSecond = rateWindowPaths * 20.0 / elapsed;
+            rateWindowStart = gameTime;
+            rateWindowPaths = 0;
+        }
+    }
+
+    public static long getPathsComputed() { return pathsComputed; }
+
+    public static long getPathsReused() { return pathsReused; }
+
+    /**
+     * Path computations per second over the last full window of about a second.
+     */
+    public static double getPathsPerSecond(long gameTime) {
+        rollRateWindow(gameTime);
+        return pathsPerSecond;
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        pathsComputed = 0;
+        pathsReused = 0;
+        rateWindowStart = Long.MIN_VALUE;
+        rateWindowPaths = 0;
+        pathsPerSecond = 0;
+    }
+}
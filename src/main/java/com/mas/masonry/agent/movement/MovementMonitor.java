@@ -0,0 +1,76 @@
+package com.mas.masonry.agent.movement;
+
+import net.minecraft.world.phys.Vec3;
+
+/**
+ * Watches how an agent's distance to its goal changes over a sliding window of samples, so a handler can
+ * give up on a target within a few seconds instead of waiting out a fixed timeout. Samples are taken by
+ * game time rather than per call, because agents far from players tick less often.
+ * <p>
+ * Once the window is full, an agent that got less than {@link #MIN_PROGRESS} blocks closer over it is
+ * either {@link Verdict#OSCILLATING} (it walked a fair distance but ended up where it started, e.g.
+ * bouncing between two path nodes) or {@link Verdict#NO_PROGRESS} (it barely moved at all).
+ */
+public final class MovementMonitor {
+    public enum Verdict { PROGRESSING, NO_PROGRESS, OSCILLATING }
+
+    private static final long SAMPLE_INTERVAL_TICKS = 10;
+    private static final int WINDOW_SAMPLES = 8; // About four seconds for agents that tick every few ticks
+    private static final double MIN_PROGRESS = 1.5; // Blocks the agent has to close in over one window
+    private static final double OSCILLATION_TRAVEL = 3.0; // Walking this far without closing in is oscillating
+
+    private final double[] distance = new double[WINDOW_SAMPLES];
+    private final double[] x = new double[WINDOW_SAMPLES];
+    private final double[] z = new double[WINDOW_SAMPLES];
+    private int next;
+    private int count;
+    private long lastSampleTime = Long.MIN_VALUE;
+
+    /**
+     * Forgets all samples, e.g. when the goal changes or after a forced re-plan.
+     */
+    public void reset() {
+        next = 0;
+        count = 0;
+        lastSampleTime = Long.MIN_VALUE;
+    }
+
+    /**
+     * Whether a whole window has been sampled since the last reset; until then every verdict is {@link Verdict#PROGRESSING}.
+     */
+    public boolean isWindowFull() {
+        return count == WINDOW_SAMPLES;
+    }
+
+    /**
+     * Records the agent's position if a sample is due and judges the last window.
+     */
+    public Verdict update(Vec3 position, Vec3 goal, long gameTime) {
+        if (lastSampleTime != Long.MIN_VALUE && gameTime - lastSampleTime < SAMPLE_INTERVAL_TICKS) {
+            return Verdict.PROGRESSING;
+        }
+        lastSampleTime = gameTime;
+        distance[next] = position.distanceTo(goal);
+        x[next] = position.x;
+        z[next] = position.z;
+        next = (next + 1) % WINDOW_SAMPLES;
+        if (count < WINDOW_SAMPLES) {
+            count++;
+            return Verdict.PROGRESSING;
+        }
+
+        // With a full ring buffer, the next slot to write holds the oldest sample
+        int oldest = next;
+        int newest = (next + WINDOW_SAMPLES - 1) % WINDOW_SAMPLES;
+        if (distance[oldest] - distance[newest] >= MIN_PROGRESS) {
+            return Verdict.PROGRESSING;
+        }
+        double travelled = 0;
+        for (int i = 0, index = oldest; i < WINDOW_SAMPLES - 1; i++, index = (index + 1) % WINDOW_SAMPLES) {
+            int following = (index + 1) % WINDOW_SAMPLES;
+            travelled += Math.sqrt((x[following] - x[index]) * (x[following] - x[index])
+                    + (z[following] - z[index]) * (z[following] - z[index]));
+        }
+        return travelled >= OSCILLATION_TRAVEL ? Verdict.OSCILLATING : Verdict.NO_PROGRESS;
+    }
+}
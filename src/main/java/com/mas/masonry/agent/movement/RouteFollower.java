@@ -0,0 +1,98 @@
+package com.mas.masonry.agent.movement;
+
+import com.mas.masonry.AgentEntity;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.phys.Vec3;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Walks an agent to a possibly far-away block: the {@link HierarchicalPlanner} picks the chunk crossings
+ * and the agent's {@link MovementController} paths from one crossing to the next. Trips shorter than
+ * {@link HierarchicalPlanner#LONG_RANGE_DISTANCE} skip the coarse plan entirely.
+ */
+public final class RouteFollower {
+    public enum Status { TRAVELLING, ARRIVED, FAILED }
+
+    private static final double ARRIVAL_DISTANCE_SQR = 3.0 * 3.0;
+    private static final double WAYPOINT_REACHED_SQR = 2.0 * 2.0;
+    private static final int LOCAL_RANGE = 14; // Waypoints within this many blocks are walked to directly
+    private static final long REPLAN_COOLDOWN_TICKS = 40;
+    private static final int MAX_FAILURES = 3;
+
+    @Nullable private BlockPos goal;
+    @Nullable private List<BlockPos> waypoints;
+    private int waypointIndex;
+    private long lastPlanTime = -REPLAN_COOLDOWN_TICKS;
+    private int failures;
+
+    /**
+     * Starts a new trip to {@code goal}, dropping any previous one.
+     */
+    public void start(BlockPos goal) {
+        this.goal = goal.immutable();
+        this.waypoints = null;
+        this.waypointIndex = 0;
+        this.lastPlanTime = -REPLAN_COOLDOWN_TICKS;
+        this.failures = 0;
+    }
+
+    public void clear() {
+        this.goal = null;
+        this.waypoints = null;
+    }
+
+    @Nullable
+    public BlockPos getGoal() { return goal; }
+
+    /**
+     * Moves the agent one FSM tick further along the trip.
+     */
+    public Status tick(AgentEntity agent, double speed) {
+        if (goal == null || !(agent.level() instanceof ServerLevel level)) {
+            return Status.FAILED;
+        }
+        if (agent.position().distanceToSqr(Vec3.atBottomCenterOf(goal)) <= ARRIVAL_DISTANCE_SQR) {
+            return Status.ARRIVED;
+        }
+
+        long gameTime = level.getGameTime();
+        BlockPos position = agent.blockPosition();
+        if (waypoints == null && HierarchicalPlanner.isLongRange(position, goal)
+                && gameTime - lastPlanTime >= REPLAN_COOLDOWN_TICKS) {
+            replan(level, position, gameTime);
+        }
+
+        BlockPos target = goal;
+        if (waypoints != null) {
+            // Skip crossings already passed, and ones close enough that the local path can take them in stride
+            while (waypointIndex < waypoints.size() - 1
+                    && (agent.position().distanceToSqr(Vec3.atBottomCenterOf(waypoints.get(waypointIndex))) <= WAYPOINT_REACHED_SQR
+                    || horizontalDistance(position, waypoints.get(waypointIndex + 1)) <= LOCAL_RANGE)) {
+                waypointIndex++;
+            }
+            target = waypoints.get(waypointIndex);
+        }
+
+        if (!agent.getMovement().moveTo(Vec3.atBottomCenterOf(target), speed, 1.0)) {
+            if (gameTime - lastPlanTime < REPLAN_COOLDOWN_TICKS) {
+                return Status.TRAVELLING;
+            }
+            if (++failures > MAX_FAILURES) {
+                return Status.FAILED;
+            }
+            // The world changed under the route or the local leg is blocked; plan again from here
+            replan(level, position, gameTime);
+        }
+        return Status.TRAVELLING;
+    }
+
+    private void replan(ServerLevel level, BlockPos from, long gameTime) {
+        lastPlanTime = gameTime;
+        waypointIndex = 0;
+        waypoints = HierarchicalPlanner.isLongRange(from, goal)
+                ? HierarchicalPlanner.plan(level, from, goal) : null;
+    }
+}
@@ -0,0 +1,162 @@
+package com.mas.masonry.agent.movement;
+
+import com.mas.masonry.AgentEntity;
+import com.mas.masonry.MASONRY;
+import com.mas.masonry.agent.world.WorldView;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.phys.Vec3;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Standing cells next to work targets that agents have claimed, so several builders on one site each
+ * walk to a cell of their own instead of all heading for the block and shoving each other. An agent
+ * holds at most one cell; it lapses after {@link #RESERVATION_TICKS} unless the agent asks for it again.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public final class StandingReservations {
+    private static final Map<ResourceKey<Level>, StandingReservations> RESERVATIONS = new HashMap<>();
+
+    private static final long RESERVATION_TICKS = 200;
+    private static final int PURGE_INTERVAL_TICKS = 100;
+    // With the 1.5 block arrival tolerance this keeps the agent within placement reach of the target
+    private static final double MAX_STAND_DISTANCE_SQR = 2.0 * 2.0;
+
+    private record Reservation(BlockPos cell, BlockPos target, long expiry) {}
+
+    private final Long2IntOpenHashMap holders = new Long2IntOpenHashMap(); // Cell to agent entity id
+    private final Int2ObjectOpenHashMap<Reservation> byAgent = new Int2ObjectOpenHashMap<>();
+
+    private static long granted = 0;
+    private static long exhausted = 0;
+
+    private StandingReservations() {}
+
+    public static StandingReservations get(ServerLevel level) {
+        return RESERVATIONS.computeIfAbsent(level.dimension(), key -> new StandingReservations());
+    }
+
+    /**
+     * The cell the agent should stand on to work on {@code target}: the one it already holds for that
+     * target if it is still free to stand on, otherwise the free standable cell nearest to the agent.
+     * @return Null if every cell around the target is taken or blocked.
+     */
+    @Nullable
+    public BlockPos reserve(ServerLevel level, AgentEntity agent, BlockPos target) {
+        long gameTime = level.getGameTime();
+        Reservation held = byAgent.get(agent.getId());
+        if (held != null && held.target.equals(target) && gameTime < held.expiry && isStandable(level, held.cell)) {
+            byAgent.put(agent.getId(), new Reservation(held.cell, held.target, gameTime + RESERVATION_TICKS));
+            return held.cell;
+        }
+        release(agent);
+
+        Vec3 targetCenter = Vec3.atCenterOf(target);
+        BlockPos best = null;
+        double bestDistanceSqr = Double.MAX_VALUE;
+        BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+        for (int dx = -2; dx <= 2; dx++) {
+            for (int dz = -2; dz <= 2; dz++) {
+                for (int dy = -2; dy <= 1; dy++) {
+                    cursor.setWithOffset(target, dx, dy, dz);
+                    if (Vec3.atBottomCenterOf(cursor).distanceToSqr(targetCenter) > MAX_STAND_DISTANCE_SQR
+                            || isTaken(cursor.asLong(), gameTime) || !isStandable(level, cursor)
+                            || cursor.equals(target) || cursor.above().equals(target)) {
+                        continue;
+                    }
+                    double distanceSqr = agent.position().distanceToSqr(Vec3.atBottomCenterOf(cursor));
+                    if (distanceSqr < bestDistanceSqr) {
+                        bestDistanceSqr = distanceSqr;
+                        best = cursor.immutable();
+                    }
+                }
+            }
+        }
+        if (best == null) {
+            exhausted++;
+            return null;
+        }
+        holders.put(best.asLong(), agent.getId());
+        byAgent.put(agent.getId(), new Reservation(best, target.immutable(), gameTime + RESERVATION_TICKS));
+        granted++;
+        return best;
+    }
+
+    /**
+     * Gives up whatever cell the agent holds.
+     */
+    public void release(AgentEntity agent) {
+        Reservation held = byAgent.remove(agent.getId());
+        if (held != null) {
+            holders.remove(held.cell.asLong(), agent.getId());
+        }
+    }
+
+    public int getReservationCount() { return byAgent.size(); }
+
+    public static long getGrantedCount() { return granted; }
+
+    public static long getExhaustedCount() { return exhausted; }
+
+    private boolean isTaken(long cell, long gameTime) {
+        if (!holders.containsKey(cell)) {
+            return false;
+        }
+        Reservation held = byAgent.get(holders.get(cell));
+        return held != null && held.cell.asLong() == cell && gameTime < held.expiry;
+    }
+
+    private static boolean isStandable(ServerLevel level, BlockPos cell) {
+        BlockState floor = WorldView.getBlockState(level, cell.below());
+        BlockState feet = WorldView.getBlockState(level, cell);
+        BlockState head = WorldView.getBlockState(level, cell.above());
+        return floor != null && feet != null && head != null
+                && floor.blocksMotion() && !feet.blocksMotion() && !head.blocksMotion();
+    }
+
+    @SubscribeEvent
+    public static void onLevelTick(TickEvent.LevelTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || !(event.level instanceof ServerLevel level)) {
+            return;
+        }
+        long gameTime = level.getGameTime();
+        if (gameTime % PURGE_INTERVAL_TICKS != 0) {
+            return;
+        }
+        StandingReservations reservations = RESERVATIONS.get(level.dimension());
+        if (reservations == null) {
+            return;
+        }
+        ObjectIterator<Int2ObjectMap.Entry<Reservation>> it = reservations.byAgent.int2ObjectEntrySet().fastIterator();
+        while (it.hasNext()) {
+            Int2ObjectMap.Entry<Reservation> entry = it.next();
+            Reservation held = entry.getValue();
+            if (gameTime >= held.expiry) {
+                // The cell may have been handed to another agent since it lapsed
+                reservations.holders.remove(held.cell.asLong(), entry.getIntKey());
+                it.remove();
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        RESERVATIONS.clear();
+        granted = 0;
+        exhausted = 0;
+    }
+}
@@ -0,0 +1,69 @@
+package com.mas.masonry.agent.movement;
+
+import com.mas.masonry.Config;
+import com.mas.masonry.MASONRY;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.core.BlockPos;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+/**
+ * Blocks one agent recently failed to reach, kept for {@link Config#unreachableTargetCooldownTicks} so
+ * block searches skip them instead of sending the agent straight back. Reachability depends on where
+ * the agent stands, so each agent keeps its own list.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public final class UnreachableTargets {
+    private static final int MAX_ENTRIES = 32; // Oldest-expiring entries are dropped beyond this
+
+    private final Long2LongOpenHashMap expiries = new Long2LongOpenHashMap();
+
+    private static long marked = 0;
+
+    public void mark(BlockPos pos, long gameTime) {
+        prune(gameTime);
+        if (expiries.size() >= MAX_ENTRIES) {
+            dropSoonestExpiring();
+        }
+        expiries.put(pos.asLong(), gameTime + Config.unreachableTargetCooldownTicks);
+        marked++;
+    }
+
+    public boolean contains(BlockPos pos, long gameTime) {
+        long expiry = expiries.getOrDefault(pos.asLong(), Long.MIN_VALUE);
+        return expiry != Long.MIN_VALUE && gameTime < expiry;
+    }
+
+    public int size() { return expiries.size(); }
+
+    private void prune(long gameTime) {
+        ObjectIterator<Long2LongMap.Entry> it = expiries.long2LongEntrySet().fastIterator();
+        while (it.hasNext()) {
+            if (gameTime >= it.next().getLongValue()) {
+                it.remove();
+            }
+        }
+    }
+
+    private void dropSoonestExpiring() {
+        long soonestKey = 0;
+        long soonest = Long.MAX_VALUE;
+        for (Long2LongMap.Entry entry : expiries.long2LongEntrySet()) {
+            if (entry.getLongValue() < soonest) {
+                soonest = entry.getLongValue();
+                soonestKey = entry.getLongKey();
+            }
+        }
+        expiries.remove(soonestKey);
+    }
+
+    public static long getMarkedCount() { return marked; }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        marked = 0;
+    }
+}
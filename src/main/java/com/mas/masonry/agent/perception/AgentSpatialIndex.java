@@ -0,0 +1,174 @@
+package com.mas.masonry.agent.perception;
+
+import com.mas.masonry.MASONRY;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.item.ItemEntity;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.Vec3;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Level-wide spatial hash of living entities and dropped items, keyed by chunk section.
+ * The hash is rebuilt at most once per game tick (on the first query of that tick), so every agent
+ * in a level shares a single pass over the entity list instead of issuing its own AABB queries.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public final class AgentSpatialIndex {
+    // Entities keep moving while the level ticks, so queries look a little past the radius
+    // to catch anything that crossed a cell border after the hash was built.
+    private static final double CELL_MARGIN = 2.0D;
+
+    private static final Map<ResourceKey<Level>, AgentSpatialIndex> INDICES = new HashMap<>();
+
+    private final Long2ObjectOpenHashMap<List<Entity>> cells = new Long2ObjectOpenHashMap<>();
+    private long builtAtTick = Long.MIN_VALUE;
+    private int indexedCount = 0;
+
+    private AgentSpatialIndex() {}
+
+    /**
+     * Returns the index for the given level, rebuilding it first if it is stale for the current tick.
+     */
+    public static AgentSpatialIndex get(ServerLevel level) {
+        AgentSpatialIndex index = INDICES.computeIfAbsent(level.dimension(), key -> new AgentSpatialIndex());
+        index.ensureBuilt(level);
+        return index;
+    }
+
+    public int getIndexedCount() { return indexedCount; }
+
+    private void ensureBuilt(ServerLevel level) {
+        long gameTime = level.getGameTime();
+        if (gameTime == builtAtTick) {
+            return;
+        }
+        builtAtTick = gameTime;
+        cells.clear();
+        indexedCount = 0;
+
+        for (Entity entity : level.getAllEntities()) {
+            if (!(entity instanceof LivingEntity) && !(entity instanceof ItemEntity)) {
+                continue;
+            }
+            long key = SectionPos.asLong(
+                    SectionPos.blockToSectionCoord(entity.getBlockX()),
+                    SectionPos.blockToSectionCoord(entity.getBlockY()),
+                    SectionPos.blockToSectionCoord(entity.getBlockZ()));
+            cells.computeIfAbsent(key, k -> new ArrayList<>()).add(entity);
+            indexedCount++;
+        }
+    }
+
+    /**
+     * Collects all entities of the given type within a sphere around the center.
+     */
+    public <T extends Entity> List<T> getEntitiesWithin(Class<T> type, Vec3 center, double radius, Predicate<? super T> filter) {
+        List<T> result = new ArrayList<>();
+        forEachWithin(type, center, radius, filter, result::add);
+        return result;
+    }
+
+    /**
+     * Returns true as soon as one matching entity is found within the sphere.
+     */
+    public <T extends Entity> boolean hasAnyWithin(Class<T> type, Vec3 center, double radius, Predicate<? super T> filter) {
+        return !visitWithin(type, center, radius, filter, entity -> false);
+    }
+
+    /**
+     * Finds the closest matching entity within the sphere.
+     */
+    public <T extends Entity> Optional<T> findNearest(Class<T> type, Vec3 center, double radius, Predicate<? super T> filter) {
+        Object[] nearest = new Object[1];
+        double[] nearestDistSqr = {Double.MAX_VALUE};
+        forEachWithin(type, center, radius, filter, entity -> {
+            double distSqr = entity.distanceToSqr(center);
+            if (distSqr < nearestDistSqr[0]) {
+                nearestDistSqr[0] = distSqr;
+                nearest[0] = entity;
+            }
+        });
+        return Optional.ofNullable(type.cast(nearest[0]));
+    }
+
+    /**
+     * Returns up to {@code k} matching entities within the sphere, closest first.
+     */
+    public <T extends Entity> List<T> getNearest(Class<T> type, Vec3 center, double radius, int k, Predicate<? super T> filter) {
+        List<T> candidates = getEntitiesWithin(type, center, radius, filter);
+        candidates.sort(Comparator.comparingDouble(entity -> entity.distanceToSqr(center)));
+        if (candidates.size() > k) {
+            return new ArrayList<>(candidates.subList(0, k));
+        }
+        return candidates;
+    }
+
+    private <T extends Entity> void forEachWithin(Class<T> type, Vec3 center, double radius,
+                                                  Predicate<? super T> filter, Consumer<T> sink) {
+        visitWithin(type, center, radius, filter, entity -> {
+            sink.accept(entity);
+            return true;
+        });
+    }
+
+    /**
+     * Hands each matching entity to {@code visitor} until it returns false.
+     * @return false if the visitor stopped the search early.
+     */
+    private <T extends Entity> boolean visitWithin(Class<T> type, Vec3 center, double radius,
+                                                   Predicate<? super T> filter, Predicate<T> visitor) {
+        double radiusSqr = radius * radius;
+        double reach = radius + CELL_MARGIN;
+        int minX = SectionPos.posToSectionCoord(center.x - reach);
+        int minY = SectionPos.posToSectionCoord(center.y - reach);
+        int minZ = SectionPos.posToSectionCoord(center.z - reach);
+        int maxX = SectionPos.posToSectionCoord(center.x + reach);
+        int maxY = SectionPos.posToSectionCoord(center.y + reach);
+        int maxZ = SectionPos.posToSectionCoord(center.z + reach);
+
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cy = minY; cy <= maxY; cy++) {
+                for (int cz = minZ; cz <= maxZ; cz++) {
+                    List<Entity> cell = cells.get(SectionPos.asLong(cx, cy, cz));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (Entity entity : cell) {
+                        if (entity.isRemoved() || !type.isInstance(entity)) {
+                            continue;
+                        }
+                        if (entity.distanceToSqr(center) > radiusSqr) {
+                            continue;
+                        }
+                        T typed = type.cast(entity);
+                        if (filter.test(typed) && !visitor.test(typed)) {
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        INDICES.clear();
+    }
+}
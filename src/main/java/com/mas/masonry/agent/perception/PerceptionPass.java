@@ -0,0 +1,93 @@
+package com.mas.masonry.agent.perception;
+
+import com.mas.masonry.AgentEntity;
+import com.mas.masonry.AgentGoals;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.item.ItemEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single-pass perception: walks the candidate entities around an agent once and sorts them into
+ * ally and food buckets, tracking an injured ally along the way. Threats are looked up in the
+ * {@link ThreatRegistry}.
+ */
+public final class PerceptionPass {
+
+    private PerceptionPass() {}
+
+    public static PerceptionSnapshot scan(AgentEntity agent, double radius) {
+        List<Entity> candidates = agent.getSpatialIndex().getEntitiesWithin(
+                Entity.class, agent.position(), radius, entity -> entity != agent);
+
+        // Threats come from the event-fed registry rather than classifying every entity here
+        List<LivingEntity> threats = ThreatRegistry.get((ServerLevel) agent.level()).getThreatsNear(agent, radius);
+        List<AgentEntity> allies = new ArrayList<>();
+        List<ItemEntity> foodItems = new ArrayList<>();
+        LivingEntity nearestThreat = null;
+        double nearestThreatDistSqr = Double.MAX_VALUE;
+        AgentEntity injuredAlly = null;
+        boolean fleeingAllyNearby = false;
+        ItemEntity nearestFoodItem = null;
+        double nearestFoodDistSqr = Double.MAX_VALUE;
+
+        for (LivingEntity threat : threats) {
+            double distSqr = agent.distanceToSqr(threat);
+            if (distSqr < nearestThreatDistSqr) {
+                nearestThreatDistSqr = distSqr;
+                nearestThreat = threat;
+            }
+        }
+
+        for (Entity entity : candidates) {
+            double distSqr = agent.distanceToSqr(entity);
+
+            if (entity instanceof ItemEntity item) {
+                if (AgentGoals.isFoodItem(item.getItem())) {
+                    foodItems.add(item);
+                    if (distSqr < nearestFoodDistSqr) {
+                        nearestFoodDistSqr = distSqr;
+                        nearestFoodItem = item;
+                    }
+                }
+                continue;
+            }
+
+            if (!(entity instanceof LivingEntity living)) {
+                continue;
+            }
+
+            if (living instanceof AgentEntity ally && agent.isEntityAlly(ally)) {
+                allies.add(ally);
+                if (injuredAlly == null && ally.getMemory().getHealthPercent() < 50) {
+                    injuredAlly = ally;
+                }
+                if (ally.isAlive() && ally.getCurrentState() == AgentEntity.AgentState.FLEE) {
+                    fleeingAllyNearby = true;
+                }
+            }
+        }
+
+        // Only fall back to the block scan when no dropped food was seen
+        BlockPos foodBlock = nearestFoodItem == null
+                ? AgentGoals.findFoodBlock(agent, (int) radius).orElse(null)
+                : null;
+
+        return new PerceptionSnapshot(
+                agent.level().getGameTime(),
+                threats,
+                allies,
+                foodItems,
+                nearestThreat,
+                nearestThreat != null ? Math.sqrt(nearestThreatDistSqr) : Double.MAX_VALUE,
+                injuredAlly,
+                fleeingAllyNearby,
+                nearestFoodItem,
+                foodBlock
+        );
+    }
+}
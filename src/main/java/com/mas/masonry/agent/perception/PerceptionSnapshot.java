@@ -0,0 +1,41 @@
+package com.mas.masonry.agent.perception;
+
+import com.mas.masonry.AgentEntity;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.item.ItemEntity;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Immutable result of one perception pass. Published on the agent's memory once per perception
+ * update so that state handlers and goals read the same classification instead of re-scanning.
+ */
+public record PerceptionSnapshot(
+        long gameTime,
+        List<LivingEntity> threats,
+        List<AgentEntity> allies,
+        List<ItemEntity> foodItems,
+        @Nullable LivingEntity nearestThreat,
+        double nearestThreatDistance,
+        @Nullable AgentEntity injuredAlly,
+        boolean fleeingAllyNearby,
+        @Nullable ItemEntity nearestFoodItem,
+        @Nullable BlockPos foodBlock
+) {
+    public static final PerceptionSnapshot EMPTY = new PerceptionSnapshot(
+            Long.MIN_VALUE, List.of(), List.of(), List.of(), null, Double.MAX_VALUE, null, false, null, null);
+
+    public PerceptionSnapshot {
+        threats = List.copyOf(threats);
+        allies = List.copyOf(allies);
+        foodItems = List.copyOf(foodItems);
+    }
+
+    public boolean isDangerNearby() { return nearestThreat != null; }
+
+    public boolean isAllyNearby() { return !allies.isEmpty(); }
+
+    public boolean isResourceNearby() { return nearestFoodItem != null || foodBlock != null; }
+}
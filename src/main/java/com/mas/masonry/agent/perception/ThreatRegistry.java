@@ -0,0 +1,301 @@
+package com.mas.masonry.agent.perception;
+
+import com.mas.masonry.AgentEntity;
+import com.mas.masonry.MASONRY;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.monster.Monster;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.EntityJoinLevelEvent;
+import net.minecraftforge.event.entity.EntityLeaveLevelEvent;
+import net.minecraftforge.event.entity.living.LivingEquipmentChangeEvent;
+import net.minecraftforge.event.entity.living.LivingHurtEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Level-wide set of entities agents should be afraid of, maintained from entity events instead of
+ * classifying every nearby entity on every perception pass. Monsters and armed players are tracked
+ * from the moment they join the level (and re-checked when a player's equipment changes); anything
+ * that hurts an agent is tracked as an aggressor for a while.
+ * <p>
+ * Threats are bucketed into 32x32 block columns once per tick. Agents subscribe to the columns their
+ * perception range covers and are told when the set of threats in one of them changes, so an agent
+ * in a quiet area never looks at the threat list at all.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public final class ThreatRegistry {
+    private static final Map<ResourceKey<Level>, ThreatRegistry> REGISTRIES = new HashMap<>();
+
+    private static final int REGION_SHIFT = 5; // 32 block regions
+    private static final long AGGRESSOR_TICKS = 200; // How long something that hurt an agent stays a threat
+
+    // Monsters and armed players
+    private final Set<LivingEntity> standingThreats = Collections.newSetFromMap(new IdentityHashMap<>());
+    // Anything that recently hurt an agent -> game time at which it stops counting
+    private final Object2LongOpenHashMap<LivingEntity> aggressors = new Object2LongOpenHashMap<>();
+
+    private Long2ObjectOpenHashMap<List<LivingEntity>> threatsByRegion = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectOpenHashMap<Set<Subscription>> subscribersByRegion = new Long2ObjectOpenHashMap<>();
+    private final Map<AgentEntity, Subscription> subscriptions = new IdentityHashMap<>();
+
+    private static long pushes = 0;
+
+    /**
+     * The regions one agent listens to and the threats it last pulled from them.
+     */
+    private static final class Subscription {
+        long centerRegion = Long.MIN_VALUE;
+        int regionRadius = -1;
+        final LongOpenHashSet regions = new LongOpenHashSet();
+        List<LivingEntity> candidates = List.of();
+        boolean dirty = true;
+    }
+
+    private ThreatRegistry() {}
+
+    public static ThreatRegistry get(ServerLevel level) {
+        return REGISTRIES.computeIfAbsent(level.dimension(), key -> new ThreatRegistry());
+    }
+
+    public static long getPushCount() { return pushes; }
+
+    public int getThreatCount() { return standingThreats.size() + aggressors.size(); }
+
+    public int getSubscriberCount() { return subscriptions.size(); }
+
+    /**
+     * Whether the entity is currently tracked as a threat.
+     */
+    public boolean isThreat(LivingEntity entity) {
+        return standingThreats.contains(entity) || aggressors.containsKey(entity);
+    }
+
+    private static boolean isStandingThreat(LivingEntity entity) {
+        if (entity instanceof Monster) {
+            return true;
+        }
+        // Players only count while holding a weapon or tool
+        if (entity instanceof Player player) {
+            return player.getMainHandItem().isDamageableItem() || player.getOffhandItem().isDamageableItem();
+        }
+        return false;
+    }
+
+    private static long regionKey(double x, double z) {
+        return ChunkPos.asLong((int) Math.floor(x) >> REGION_SHIFT, (int) Math.floor(z) >> REGION_SHIFT);
+    }
+
+    /**
+     * Returns the threats within {@code radius} of the agent. The agent's region subscription is moved
+     * along with it; the candidate list is only rebuilt after a change was pushed to one of its regions.
+     */
+    public List<LivingEntity> getThreatsNear(AgentEntity agent, double radius) {
+        Subscription subscription = subscribe(agent, radius);
+        if (subscription.dirty) {
+            subscription.dirty = false;
+            List<LivingEntity> candidates = new ArrayList<>();
+            for (long region : subscription.regions) {
+                List<LivingEntity> inRegion = threatsByRegion.get(region);
+                if (inRegion != null) {
+                    candidates.addAll(inRegion);
+                }
+            }
+            subscription.candidates = candidates;
+        }
+        if (subscription.candidates.isEmpty()) {
+            return List.of();
+        }
+
+        double radiusSqr = radius * radius;
+        List<LivingEntity> threats = new ArrayList<>();
+        for (LivingEntity candidate : subscription.candidates) {
+            if (candidate != agent && candidate.isAlive() && agent.distanceToSqr(candidate) <= radiusSqr) {
+                threats.add(candidate);
+            }
+        }
+        return threats;
+    }
+
+    private Subscription subscribe(AgentEntity agent, double radius) {
+        Subscription subscription = subscriptions.computeIfAbsent(agent, key -> new Subscription());
+        long centerRegion = regionKey(agent.getX(), agent.getZ());
+        int regionRadius = ((int) Math.ceil(radius) >> REGION_SHIFT) + 1;
+        if (subscription.centerRegion == centerRegion && subscription.regionRadius == regionRadius) {
+            return subscription;
+        }
+
+        unsubscribeRegions(subscription);
+        subscription.centerRegion = centerRegion;
+        subscription.regionRadius = regionRadius;
+        int regionX = ChunkPos.getX(centerRegion), regionZ = ChunkPos.getZ(centerRegion);
+        for (int dx = -regionRadius; dx <= regionRadius; dx++) {
+            for (int dz = -regionRadius; dz <= regionRadius; dz++) {
+                long region = ChunkPos.asLong(regionX + dx, regionZ + dz);
+                subscription.regions.add(region);
+                subscribersByRegion.computeIfAbsent(region, key -> Collections.newSetFromMap(new IdentityHashMap<>()))
+                        .add(subscription);
+            }
+        }
+        subscription.dirty = true;
+        return subscription;
+    }
+
+    private void unsubscribeRegions(Subscription subscription) {
+        for (long region : subscription.regions) {
+            Set<Subscription> subscribers = subscribersByRegion.get(region);
+            if (subscribers != null && subscribers.remove(subscription) && subscribers.isEmpty()) {
+                subscribersByRegion.remove(region);
+            }
+        }
+        subscription.regions.clear();
+    }
+
+    private void track(LivingEntity entity) {
+        if (isStandingThreat(entity)) {
+            standingThreats.add(entity);
+        } else {
+            standingThreats.remove(entity);
+        }
+    }
+
+    private void forget(Entity entity) {
+        if (entity instanceof LivingEntity living) {
+            standingThreats.remove(living);
+            aggressors.removeLong(living);
+        }
+        if (entity instanceof AgentEntity agent) {
+            Subscription subscription = subscriptions.remove(agent);
+            if (subscription != null) {
+                unsubscribeRegions(subscription);
+            }
+        }
+    }
+
+    /**
+     * Re-buckets the threats by region and pushes a change notice to the subscribers of every region
+     * whose threat set differs from the previous tick.
+     */
+    private void update(long gameTime) {
+        aggressors.object2LongEntrySet().removeIf(entry -> entry.getLongValue() <= gameTime || !entry.getKey().isAlive());
+
+        Long2ObjectOpenHashMap<List<LivingEntity>> rebuilt = new Long2ObjectOpenHashMap<>();
+        for (LivingEntity threat : standingThreats) {
+            if (threat.isAlive()) {
+                rebuilt.computeIfAbsent(regionKey(threat.getX(), threat.getZ()), key -> new ArrayList<>()).add(threat);
+            }
+        }
+        for (LivingEntity aggressor : aggressors.keySet()) {
+            if (!standingThreats.contains(aggressor)) {
+                rebuilt.computeIfAbsent(regionKey(aggressor.getX(), aggressor.getZ()), key -> new ArrayList<>()).add(aggressor);
+            }
+        }
+
+        if (!subscribersByRegion.isEmpty()) {
+            LongOpenHashSet changedRegions = new LongOpenHashSet();
+            for (Long2ObjectMap.Entry<List<LivingEntity>> entry : rebuilt.long2ObjectEntrySet()) {
+                if (!sameMembers(entry.getValue(), threatsByRegion.get(entry.getLongKey()))) {
+                    changedRegions.add(entry.getLongKey());
+                }
+            }
+            for (long region : threatsByRegion.keySet()) {
+                if (!rebuilt.containsKey(region)) {
+                    changedRegions.add(region);
+                }
+            }
+            for (long region : changedRegions) {
+                Set<Subscription> subscribers = subscribersByRegion.get(region);
+                if (subscribers != null) {
+                    for (Subscription subscription : subscribers) {
+                        subscription.dirty = true;
+                        pushes++;
+                    }
+                }
+            }
+        }
+        threatsByRegion = rebuilt;
+    }
+
+    private static boolean sameMembers(List<LivingEntity> current, List<LivingEntity> previous) {
+        if (previous == null || previous.size() != current.size()) {
+            return false;
+        }
+        // Lists are small and built in the same iteration order, so a positional compare is enough
+        // in the common case; fall back to a containment check when the order shifted
+        for (int i = 0; i < current.size(); i++) {
+            if (current.get(i) != previous.get(i)) {
+                return previous.containsAll(current);
+            }
+        }
+        return true;
+    }
+
+    @SubscribeEvent
+    public static void onEntityJoin(EntityJoinLevelEvent event) {
+        if (event.getLevel() instanceof ServerLevel level && event.getEntity() instanceof LivingEntity living) {
+            get(level).track(living);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onEntityLeave(EntityLeaveLevelEvent event) {
+        if (event.getLevel() instanceof ServerLevel level) {
+            ThreatRegistry registry = REGISTRIES.get(level.dimension());
+            if (registry != null) {
+                registry.forget(event.getEntity());
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onEquipmentChange(LivingEquipmentChangeEvent event) {
+        if (event.getEntity() instanceof Player player && player.level() instanceof ServerLevel level) {
+            get(level).track(player);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLivingHurt(LivingHurtEvent event) {
+        if (!(event.getEntity() instanceof AgentEntity victim) || !(victim.level() instanceof ServerLevel level)) {
+            return;
+        }
+        // Agents scuffling with each other don't turn the colony against its own
+        if (event.getSource().getEntity() instanceof LivingEntity attacker && !(attacker instanceof AgentEntity)) {
+            get(level).aggressors.put(attacker, level.getGameTime() + AGGRESSOR_TICKS);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLevelTick(TickEvent.LevelTickEvent event) {
+        if (event.phase == TickEvent.Phase.END && event.level instanceof ServerLevel level) {
+            ThreatRegistry registry = REGISTRIES.get(level.dimension());
+            if (registry != null) {
+                registry.update(level.getGameTime());
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        REGISTRIES.clear();
+        pushes = 0;
+    }
+}
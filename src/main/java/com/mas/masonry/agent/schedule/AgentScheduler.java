@@ -0,0 +1,217 @@
+package com.mas.masonry.agent.schedule;
+
+import com.mas.masonry.AgentEntity;
+import com.mas.masonry.Config;
+import com.mas.masonry.AgentEntity.AgentState;
+import com.mas.masonry.MASONRY;
+import com.mas.masonry.agent.fsm.AgentDecisionSnapshot;
+import com.mas.masonry.agent.fsm.TransitionTable;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.EntityJoinLevelEvent;
+import net.minecraftforge.event.entity.EntityLeaveLevelEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Runs perception and the FSM for every agent on the server from one place, once per server tick,
+ * instead of from each entity's aiStep. Agents that are due (see {@link PerceptionLodScheduler}) run
+ * until the configured millisecond budget is spent; whoever doesn't fit is carried over to the next
+ * tick and goes first there. Agents in the ACTIVE tier (fighting, fleeing, recently hurt, or busy right
+ * next to a player) always run, budget or not, even if they were carried over; NEAR agents are budgeted
+ * like the rest but go ahead of FAR and DORMANT ones.
+ * <p>
+ * Each tick runs in three phases: every agent that fits perceives and acts serially on the server
+ * thread, then the next-state decisions for all of them are evaluated from immutable snapshots (in
+ * parallel once there are enough agents), then the transitions are applied serially in the same order.
+ * Snapshots carry their random rolls, drawn in run order, so the outcome doesn't depend on threading.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public final class AgentScheduler {
+    // Insertion ordered so the run order is stable from tick to tick
+    private static final Set<AgentEntity> AGENTS = new LinkedHashSet<>();
+    // Agents that were due but didn't fit in an earlier tick's budget, oldest first
+    private static final ArrayDeque<AgentEntity> CARRIED_OVER = new ArrayDeque<>();
+    private static final Set<AgentEntity> CARRIED_OVER_SET = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    // Below this many agents the fork/join overhead costs more than it saves
+    private static final int PARALLEL_DECISION_THRESHOLD = 64;
+    private static ForkJoinPool decisionPool;
+
+    private static int lastRun = 0;
+    private static int lastCarriedOver = 0;
+    private static long lastNanos = 0;
+    private static long overBudgetTicks = 0;
+
+    private AgentScheduler() {}
+
+    public static int getAgentCount() { return AGENTS.size(); }
+
+    public static int getLastRunCount() { return lastRun; }
+
+    public static int getLastCarriedOverCount() { return lastCarriedOver; }
+
+    public static double getLastMillis() { return lastNanos / 1_000_000.0; }
+
+    public static long getOverBudgetTicks() { return overBudgetTicks; }
+
+    private static boolean canRun(AgentEntity agent) {
+        // Agents in chunks that aren't entity-ticking don't get aiStep either, so they don't think
+        return !agent.isRemoved() && agent.isAlive() && agent.level() instanceof ServerLevel level
+                && level.isPositionEntityTicking(agent.blockPosition());
+    }
+
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || AGENTS.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        // Urgent agents run first on the same clock, so a busy fight leaves less room for the rest
+        long budgetNanos = (long) (Config.agentTickBudgetMs * 1_000_000L);
+
+        List<AgentEntity> urgent = new ArrayList<>();
+        List<AgentEntity> near = new ArrayList<>();
+        List<AgentEntity> due = new ArrayList<>();
+        for (AgentEntity agent : AGENTS) {
+            if (!canRun(agent)) {
+                continue;
+            }
+            PerceptionLodScheduler.Tier tier = PerceptionLodScheduler.classify(agent);
+            boolean isDue = PerceptionLodScheduler.isDue(agent, tier, agent.level().getGameTime());
+            if (tier == PerceptionLodScheduler.Tier.ACTIVE) {
+                // Whatever made it urgent since it was carried over, it doesn't wait behind the budget
+                if (CARRIED_OVER_SET.remove(agent)) {
+                    CARRIED_OVER.remove(agent);
+                }
+                urgent.add(agent);
+                continue;
+            }
+            if (CARRIED_OVER_SET.contains(agent) || !isDue) {
+                continue;
+            }
+            if (tier == PerceptionLodScheduler.Tier.NEAR) {
+                near.add(agent);
+            } else {
+                due.add(agent);
+            }
+        }
+        // Agents near a player get the budget before those nobody is watching
+        due.addAll(0, near);
+
+        List<AgentEntity> ran = new ArrayList<>();
+        for (AgentEntity agent : urgent) {
+            agent.perceiveAndAct(agent.level().getGameTime());
+            ran.add(agent);
+        }
+
+        while (!CARRIED_OVER.isEmpty() && System.nanoTime() - start < budgetNanos) {
+            AgentEntity agent = CARRIED_OVER.pollFirst();
+            CARRIED_OVER_SET.remove(agent);
+            if (canRun(agent)) {
+                agent.perceiveAndAct(agent.level().getGameTime());
+                ran.add(agent);
+            }
+        }
+
+        for (AgentEntity agent : due) {
+            if (System.nanoTime() - start < budgetNanos) {
+                agent.perceiveAndAct(agent.level().getGameTime());
+                ran.add(agent);
+            } else if (CARRIED_OVER_SET.add(agent)) {
+                CARRIED_OVER.addLast(agent);
+            }
+        }
+
+        decideAndApply(ran);
+
+        lastRun = ran.size();
+        lastCarriedOver = CARRIED_OVER.size();
+        lastNanos = System.nanoTime() - start;
+        if (lastNanos > budgetNanos) {
+            overBudgetTicks++;
+        }
+    }
+
+    private static void decideAndApply(List<AgentEntity> agents) {
+        int count = agents.size();
+        if (count == 0) {
+            return;
+        }
+        // One table for the whole batch so a config reload mid-tick can't mismatch the roll slots
+        TransitionTable table = TransitionTable.current();
+        AgentDecisionSnapshot[] snapshots = new AgentDecisionSnapshot[count];
+        for (int i = 0; i < count; i++) {
+            snapshots[i] = table.snapshot(agents.get(i));
+        }
+
+        AgentState[] decisions = new AgentState[count];
+        if (count >= PARALLEL_DECISION_THRESHOLD) {
+            decisionPool().submit(() -> IntStream.range(0, count).parallel()
+                    .forEach(i -> decisions[i] = table.evaluate(snapshots[i]))).join();
+        } else {
+            for (int i = 0; i < count; i++) {
+                decisions[i] = table.evaluate(snapshots[i]);
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            AgentEntity agent = agents.get(i);
+            if (canRun(agent)) {
+                agent.applyTransition(decisions[i]);
+            }
+        }
+    }
+
+    private static synchronized ForkJoinPool decisionPool() {
+        if (decisionPool == null) {
+            decisionPool = new ForkJoinPool(Math.max(1, Config.decisionThreads));
+        }
+        return decisionPool;
+    }
+
+    @SubscribeEvent
+    public static void onEntityJoin(EntityJoinLevelEvent event) {
+        if (event.getEntity() instanceof AgentEntity agent && event.getLevel() instanceof ServerLevel) {
+            AGENTS.add(agent);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onEntityLeave(EntityLeaveLevelEvent event) {
+        if (event.getEntity() instanceof AgentEntity agent) {
+            AGENTS.remove(agent);
+            if (CARRIED_OVER_SET.remove(agent)) {
+                CARRIED_OVER.remove(agent);
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        AGENTS.clear();
+        CARRIED_OVER.clear();
+        CARRIED_OVER_SET.clear();
+        synchronized (AgentScheduler.class) {
+            if (decisionPool != null) {
+                decisionPool.shutdown();
+                decisionPool = null;
+            }
+        }
+        lastRun = 0;
+        lastCarriedOver = 0;
+        lastNanos = 0;
+        overBudgetTicks = 0;
+    }
+}
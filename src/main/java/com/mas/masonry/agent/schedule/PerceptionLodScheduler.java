@@ -0,0 +1,106 @@
+package com.mas.masonry.agent.schedule;
+
+import com.mas.masonry.AgentEntity;
+import com.mas.masonry.AgentEntity.AgentState;
+import com.mas.masonry.Config;
+import net.minecraft.world.entity.EntitySelector;
+import net.minecraft.world.entity.player.Player;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Decides how often each agent runs its perception and FSM logic. Agents that matter right now
+ * (fighting, fleeing, recently hurt or close to a player) think every tick; the rest drop to
+ * slower tiers. Agents in the same tier are spread over tick phases by their UUID so the work
+ * stays flat instead of spiking every N ticks.
+ */
+public final class PerceptionLodScheduler {
+
+    public enum Tier {
+        ACTIVE,  // Every tick
+        NEAR,    // Player nearby but nothing urgent going on
+        FAR,     // No player close, agent busy with a task
+        DORMANT  // No player close and idling
+    }
+
+    private static final int RECENTLY_HURT_TICKS = 40;
+
+    // Tier counts for the tick currently being counted and for the last completed tick
+    private static final int[] currentCounts = new int[Tier.values().length];
+    private static final int[] lastCounts = new int[Tier.values().length];
+    private static long countingTick = Long.MIN_VALUE;
+
+    private PerceptionLodScheduler() {}
+
+    /**
+     * Classifies the agent, records it in the tier counts and tells whether it should think this tick.
+     */
+    public static boolean isDue(AgentEntity agent, long gameTime) {
+        return isDue(agent, classify(agent), gameTime);
+    }
+
+    /**
+     * Same as {@link #isDue(AgentEntity, long)} for a tier the caller already classified.
+     */
+    public static boolean isDue(AgentEntity agent, Tier tier, long gameTime) {
+        record(tier, gameTime);
+        int interval = intervalFor(tier);
+        return interval <= 1 || Math.floorMod(gameTime, interval) == phaseFor(agent.getUUID(), interval);
+    }
+
+    public static Tier classify(AgentEntity agent) {
+        AgentState state = agent.getCurrentState();
+        if (state == AgentState.FLEE || state == AgentState.ATTACK
+                || agent.tickCount - agent.getLastHurtByMobTimestamp() < RECENTLY_HURT_TICKS) {
+            return Tier.ACTIVE;
+        }
+
+        boolean idle = state == AgentState.IDLE;
+        Player nearestPlayer = agent.level().getNearestPlayer(agent.getX(), agent.getY(), agent.getZ(),
+                Config.lodFarPlayerDistance, EntitySelector.NO_SPECTATORS);
+        if (nearestPlayer != null && agent.distanceToSqr(nearestPlayer) <= square(Config.lodNearPlayerDistance)) {
+            return idle ? Tier.NEAR : Tier.ACTIVE;
+        }
+        if (nearestPlayer != null) {
+            return idle ? Tier.FAR : Tier.NEAR;
+        }
+        return idle ? Tier.DORMANT : Tier.FAR;
+    }
+
+    public static int intervalFor(Tier tier) {
+        return switch (tier) {
+            case ACTIVE -> 1;
+            case NEAR -> Config.lodNearInterval;
+            case FAR -> Config.lodFarInterval;
+            case DORMANT -> Config.lodDormantInterval;
+        };
+    }
+
+    /**
+     * Stable phase in [0, interval) derived from the agent's UUID.
+     */
+    public static int phaseFor(UUID uuid, int interval) {
+        return Math.floorMod(uuid.hashCode(), interval);
+    }
+
+    /**
+     * Number of agents per tier during the last completed tick, indexed by {@link Tier#ordinal()}.
+     */
+    public static int[] getTierCounts() {
+        return lastCounts.clone();
+    }
+
+    private static void record(Tier tier, long gameTime) {
+        if (gameTime != countingTick) {
+            System.arraycopy(currentCounts, 0, lastCounts, 0, currentCounts.length);
+            Arrays.fill(currentCounts, 0);
+            countingTick = gameTime;
+        }
+        currentCounts[tier.ordinal()]++;
+    }
+
+    private static double square(double value) {
+        return value * value;
+    }
+}
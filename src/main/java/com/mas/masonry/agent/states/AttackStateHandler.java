@@ -9,16 +9,22 @@ import net.minecraft.world.entity.LivingEntity;
 // import com.mas.masonry.MASONRY; // Uncomment if MASONRY.LOGGER is used
 
 public class AttackStateHandler implements IAgentStateHandler {
+    private static final double REPATH_DISTANCE = 2.0; // Target has to move this far before re-pathing
 
     @Override
-    public void handle(AgentEntity agent) {
+    public void onEnter(AgentEntity agent) {
+        agent.getMemory().getAttackTarget().ifPresent(target -> agent.getMovement().moveTo(target, 1.0D, REPATH_DISTANCE));
+    }
+
+    @Override
+    public void onTick(AgentEntity agent) {
         AgentMemory memory = agent.getMemory();
         Optional<LivingEntity> target = memory.getAttackTarget();
 
         if (target.isPresent() && target.get().isAlive() && agent.hasLineOfSight(target.get())) {
             // MASONRY.LOGGER.info("{} is attacking {}.", agent.getName().getString(), target.getName().getString());
             agent.getLookControl().setLookAt(target.get(), 30.0F, 30.0F); // Look at the target
-            agent.getNavigation().moveTo(target.get(), 1.0D); // Move towards the target
+            agent.getMovement().moveTo(target.get(), 1.0D, REPATH_DISTANCE); // Move towards the target
 
             if (agent.distanceToSqr(target.get()) < agent.getAttackRangeSqr()) { // If close enough, attack
                 agent.swing(InteractionHand.MAIN_HAND);
@@ -31,4 +37,9 @@ public class AttackStateHandler implements IAgentStateHandler {
             // MASONRY.LOGGER.info("{} is no longer attacking, returning to IDLE.", agent.getName().getString());
         }
     }
+
+    @Override
+    public void onExit(AgentEntity agent) {
+        agent.getMovement().stop();
+    }
 }
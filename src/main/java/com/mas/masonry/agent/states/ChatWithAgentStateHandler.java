@@ -6,9 +6,13 @@ import com.mas.masonry.MASONRY;
 public class ChatWithAgentStateHandler implements IAgentStateHandler {
 
     @Override
-    public void handle(AgentEntity agent) {
-        // Logic for chatting with another agent will go here.
+    public void onEnter(AgentEntity agent) {
         MASONRY.LOGGER.info("{} is in CHAT_WITH_AGENT state.", agent.getName().getString());
+    }
+
+    @Override
+    public void onTick(AgentEntity agent) {
+        // Logic for chatting with another agent will go here.
 
         // TODO: Implement actual chatting logic:
         // 1. Identify a nearby friendly agent to chat with (could be the one just greeted).
@@ -2,16 +2,24 @@ package com.mas.masonry.agent.states;
 
 import com.mas.masonry.AgentEntity;
 import com.mas.masonry.AgentEntity.AgentState;
+import com.mas.masonry.Config;
+import com.mas.masonry.agent.world.AsyncBlockScanService;
+import com.mas.masonry.agent.world.ResourceBlackboard;
+import com.mas.masonry.agent.world.SectionBlockSearch;
+import com.mas.masonry.agent.world.WorldView;
 import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.level.block.Block;
-import net.minecraft.world.level.block.state.BlockState;
 
+import java.util.List;
 import java.util.Optional;
 
 public class FindTargetBlockStateHandler implements IAgentStateHandler {
+    // Spare hits cover blocks that change while a scan runs; the rest go to the resource blackboard
+    private static final int SCAN_RESULT_LIMIT = 4;
 
     @Override
-    public void handle(AgentEntity agent) {
+    public void onTick(AgentEntity agent) {
         // MASONRY.LOGGER.info("{} is finding target block: {}.", agent.getName().getString(), agent.getTargetBlockTypeToFind().toString());
         BlockPos currentTargetPos = agent.getTargetBlockPos();
         Block targetType = agent.getTargetBlockTypeToFind();
@@ -22,8 +30,35 @@ public class FindTargetBlockStateHandler implements IAgentStateHandler {
             return;
         }
 
-        if (currentTargetPos == null || !isBlockOfType(agent, currentTargetPos, targetType)) {
-            Optional<BlockPos> foundPos = findNearbyBlock(agent, targetType, agent.getFindBlockScanRadius());
+        if (currentTargetPos == null || !isBlockOfType(agent, currentTargetPos, targetType)
+                || agent.getUnreachableTargets().contains(currentTargetPos, agent.level().getGameTime())) {
+            Optional<BlockPos> foundPos;
+            AsyncBlockScanService.ScanTicket pendingScan = agent.getPendingBlockScan();
+            if (pendingScan != null) {
+                // Wide search running off-thread; check back next tick
+                if (!pendingScan.isDone()) {
+                    return;
+                }
+                agent.setPendingBlockScan(null);
+                // The scan saw the world as it was when it was submitted, so re-check against the live level
+                foundPos = pendingScan.getBlock() != targetType ? Optional.empty()
+                        : pickAndRecord(agent, targetType, pendingScan.takeResults());
+            } else {
+                // Somebody in the colony may already have seen one nearby
+                foundPos = takeFromBlackboard(agent, targetType);
+                if (foundPos.isEmpty()) {
+                    // Each failed attempt doubles the search radius up to the configured cap; sections already
+                    // searched are skipped via the negative cache
+                    int scanRadius = Math.min(Config.asyncBlockScanRadius,
+                            agent.getFindBlockScanRadius() << Math.min(agent.getFindBlockAttempts(), 4));
+                    if (scanRadius > Config.syncBlockScanRadius && agent.level() instanceof ServerLevel serverLevel) {
+                        agent.setPendingBlockScan(AsyncBlockScanService.submit(serverLevel, agent.blockPosition(),
+                                scanRadius, targetType, SCAN_RESULT_LIMIT));
+                        return;
+                    }
+                    foundPos = pickAndRecord(agent, targetType, findNearbyBlocks(agent, targetType, scanRadius));
+                }
+            }
             if (foundPos.isPresent()) {
                 agent.setTargetBlockPos(foundPos.get());
                 // MASONRY.LOGGER.info("{} found target block {} at {}.", agent.getName().getString(), targetType.toString(), foundPos.get().toString());
@@ -46,26 +81,61 @@ public class FindTargetBlockStateHandler implements IAgentStateHandler {
         }
     }
 
-    private static Optional<BlockPos> findNearbyBlock(AgentEntity agent, Block blockType, int radius) {
-        BlockPos agentPos = agent.blockPosition();
-        for (int y = -radius; y <= radius; y++) {
-            for (int x = -radius; x <= radius; x++) {
-                for (int z = -radius; z <= radius; z++) {
-                    BlockPos checkPos = agentPos.offset(x, y, z);
-                    if (isBlockOfType(agent, checkPos, blockType)) {
-                        // Check for air above to ensure it's accessible (simple check)
-                        if (agent.level().isEmptyBlock(checkPos.above())) {
-                           return Optional.of(checkPos);
-                        }
-                    }
-                }
+    @Override
+    public void onExit(AgentEntity agent) {
+        // A scan still in flight is useless once the agent stops looking for the block
+        AsyncBlockScanService.ScanTicket pendingScan = agent.getPendingBlockScan();
+        if (pendingScan != null) {
+            pendingScan.cancel();
+            agent.setPendingBlockScan(null);
+        }
+    }
+
+    private static List<BlockPos> findNearbyBlocks(AgentEntity agent, Block blockType, int radius) {
+        if (!(agent.level() instanceof ServerLevel serverLevel)) {
+            return List.of();
+        }
+        // Nearest matching blocks whose top face is free, so the agent can actually reach them (simple check)
+        long gameTime = serverLevel.getGameTime();
+        return SectionBlockSearch.findNearest(serverLevel, agent.blockPosition(), radius, blockType,
+                pos -> WorldView.isEmptyBlock(serverLevel, pos.above()) && !agent.getUnreachableTargets().contains(pos, gameTime),
+                SCAN_RESULT_LIMIT);
+    }
+
+    private static Optional<BlockPos> takeFromBlackboard(AgentEntity agent, Block blockType) {
+        if (!(agent.level() instanceof ServerLevel serverLevel)) {
+            return Optional.empty();
+        }
+        return ResourceBlackboard.get(serverLevel).take(blockType, agent.blockPosition(), Config.asyncBlockScanRadius,
+                serverLevel.getGameTime(), pos -> isUsable(agent, pos, blockType));
+    }
+
+    /**
+     * Picks the first candidate that is still usable as the target and remembers the other usable ones
+     * so the agent can share them later.
+     */
+    private static Optional<BlockPos> pickAndRecord(AgentEntity agent, Block blockType, List<BlockPos> candidates) {
+        BlockPos chosen = null;
+        for (BlockPos candidate : candidates) {
+            if (!isUsable(agent, candidate, blockType)) {
+                continue;
+            }
+            if (chosen == null) {
+                chosen = candidate;
+            } else {
+                agent.getMemory().recordDiscovery(blockType, candidate);
             }
         }
-        return Optional.empty();
+        return Optional.ofNullable(chosen);
+    }
+
+    private static boolean isUsable(AgentEntity agent, BlockPos pos, Block type) {
+        return isBlockOfType(agent, pos, type) && WorldView.isEmptyBlock(agent.level(), pos.above())
+                && !agent.getUnreachableTargets().contains(pos, agent.level().getGameTime());
     }
 
     private static boolean isBlockOfType(AgentEntity agent, BlockPos pos, Block type) {
-        BlockState state = agent.level().getBlockState(pos);
-        return state.is(type);
+        // Never loads a chunk; a target in an unloaded chunk counts as gone
+        return WorldView.isBlock(agent.level(), pos, type);
     }
 }
@@ -7,20 +7,31 @@ import com.mas.masonry.AgentEntity.AgentMemory;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.entity.ai.util.DefaultRandomPos;
 import net.minecraft.world.phys.Vec3;
-// import com.mas.masonry.MASONRY; // Uncomment if MASONRY.LOGGER is used
 
 public class FleeStateHandler implements IAgentStateHandler {
 
+    // The danger the current flee path runs from; a new one needs a new direction
+    private LivingEntity fleeingFrom;
+
+    @Override
+    public void onEnter(AgentEntity agent) {
+        MASONRY.LOGGER.info("{} is fleeing!", agent.getName().getString());
+        fleeingFrom = null;
+        LivingEntity danger = agent.getMemory().getNearestDanger();
+        if (danger != null) {
+            runFrom(agent, danger);
+        }
+    }
+
     @Override
-    public void handle(AgentEntity agent) {
+    public void onTick(AgentEntity agent) {
         AgentMemory memory = agent.getMemory();
         // Flee from the nearest danger
-        MASONRY.LOGGER.info("{} is fleeing!", agent.getName().getString());
         LivingEntity danger = memory.getNearestDanger();
         if (danger != null) {
-            Vec3 fleePos = DefaultRandomPos.getPosAway(agent, 16, 7, danger.position());
-            if (fleePos != null) {
-                agent.getNavigation().moveTo(fleePos.x, fleePos.y, fleePos.z, 1.2D); // Move faster when fleeing
+            // Keep running along the current path until it ends or something else becomes the main danger
+            if (danger != fleeingFrom || agent.getNavigation().isDone()) {
+                runFrom(agent, danger);
             }
         } else {
             // No danger perceived, transition back to IDLE
@@ -30,4 +41,17 @@ public class FleeStateHandler implements IAgentStateHandler {
         // Decrease fear over time when fleeing
         memory.setFearLevel(Math.max(0, memory.getFearLevel() - 1));
     }
+
+    @Override
+    public void onExit(AgentEntity agent) {
+        fleeingFrom = null;
+    }
+
+    private void runFrom(AgentEntity agent, LivingEntity danger) {
+        Vec3 fleePos = DefaultRandomPos.getPosAway(agent, 16, 7, danger.position());
+        if (fleePos != null) {
+            agent.getNavigation().moveTo(fleePos.x, fleePos.y, fleePos.z, 1.2D); // Move faster when fleeing
+            fleeingFrom = danger;
+        }
+    }
 }
@@ -6,10 +6,14 @@ import com.mas.masonry.MASONRY;
 public class GreetAgentStateHandler implements IAgentStateHandler {
 
     @Override
-    public void handle(AgentEntity agent) {
-        // Logic for greeting another agent will go here.
-        // For now, let's log and transition back to IDLE after a short time.
+    public void onEnter(AgentEntity agent) {
         MASONRY.LOGGER.info("{} is in GREET_AGENT state.", agent.getName().getString());
+    }
+
+    @Override
+    public void onTick(AgentEntity agent) {
+        // Logic for greeting another agent will go here.
+        // For now, transition back to IDLE after a short time.
 
         // TODO: Implement actual greeting logic:
         // 1. Identify a nearby friendly agent to greet.
@@ -2,6 +2,7 @@ package com.mas.masonry.agent.states;
 
 import com.mas.masonry.AgentEntity;
 import com.mas.masonry.AgentEntity.AgentState;
+import com.mas.masonry.agent.world.WorldView;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.item.ItemStack;
@@ -12,7 +13,7 @@ import java.util.List;
 public class HarvestBlockStateHandler implements IAgentStateHandler {
 
     @Override
-    public void handle(AgentEntity agent) {
+    public void onTick(AgentEntity agent) {
         BlockPos targetBlockPos = agent.getTargetBlockPos();
         AgentEntity.AgentMemory memory = agent.getMemory();
 
@@ -23,8 +24,9 @@ public class HarvestBlockStateHandler implements IAgentStateHandler {
             return;
         }
 
-        BlockState blockState = agent.level().getBlockState(targetBlockPos);
-        if (blockState.isAir()) {
+        // Null means the chunk is not loaded; treat it like a vanished block instead of loading it
+        BlockState blockState = WorldView.getBlockState(agent.level(), targetBlockPos);
+        if (blockState == null || blockState.isAir()) {
             // MASONRY.LOGGER.warn("{} target block at {} is air. Returning to IDLE.", agent.getName().getString(), targetBlockPos);
             agent.setTargetBlockPos(null);
             agent.setCurrentState(AgentState.IDLE);
@@ -7,21 +7,32 @@ import net.minecraft.world.entity.LivingEntity;
 import java.util.Optional;
 
 public class HelpAllyStateHandler implements IAgentStateHandler {
+    private static final double REPATH_DISTANCE = 2.0; // Ally has to move this far before re-pathing
 
     @Override
-    public void handle(AgentEntity agent) {
+    public void onEnter(AgentEntity agent) {
+        agent.getMemory().getTargetEntity().ifPresent(target -> agent.getMovement().moveTo(target, 1.0D, REPATH_DISTANCE));
+    }
+
+    @Override
+    public void onTick(AgentEntity agent) {
         AgentMemory memory = agent.getMemory();
         Optional<LivingEntity> targetOptional = memory.getTargetEntity();
 
         if (targetOptional.isPresent()) {
             LivingEntity target = targetOptional.get();
-            agent.getNavigation().moveTo(target, 1.0D);
-
             if (agent.distanceToSqr(target) < 25.0D) { // If close enough (5 blocks)
                 agent.setCurrentState(AgentState.IDLE);
+            } else {
+                agent.getMovement().moveTo(target, 1.0D, REPATH_DISTANCE);
             }
         } else {
             agent.setCurrentState(AgentState.IDLE);
         }
     }
+
+    @Override
+    public void onExit(AgentEntity agent) {
+        agent.getMovement().stop();
+    }
 }
@@ -4,11 +4,30 @@ import com.mas.masonry.AgentEntity;
 
 /**
  * Interface for classes that handle the logic for a specific agent state.
+ * <p>
+ * Each agent owns its own handler instances, so a handler may keep per-agent fields. The agent calls
+ * {@link #onEnter} once when it moves into the state, {@link #onTick} on every scheduled FSM tick while
+ * it stays there, and {@link #onExit} once when it leaves. Work that only needs doing once per visit
+ * (path requests, target selection, announcements) belongs in {@code onEnter}.
  */
 public interface IAgentStateHandler {
+    /**
+     * Called once when the agent enters this state, before its first {@link #onTick}.
+     * @param agent The agent entering the state.
+     */
+    default void onEnter(AgentEntity agent) {}
+
     /**
      * Executes the behavior associated with this state for the given agent.
+     * A state change requested here through {@link AgentEntity#setCurrentState} takes effect once this
+     * method returns.
      * @param agent The agent whose state is being handled.
      */
-    void handle(AgentEntity agent);
+    void onTick(AgentEntity agent);
+
+    /**
+     * Called once when the agent leaves this state, before the next state's {@link #onEnter}.
+     * @param agent The agent leaving the state.
+     */
+    default void onExit(AgentEntity agent) {}
 }
@@ -5,7 +5,7 @@ import com.mas.masonry.AgentEntity;
 public class IdleStateHandler implements IAgentStateHandler {
 
     @Override
-    public void handle(AgentEntity agent) {
+    public void onTick(AgentEntity agent) {
         // In idle state, the agent mostly just observes
         // Gradually reduce fear level while idle
         if (agent.getMemory().getFearLevel() > 0 && agent.getRandom().nextFloat() < 0.1f) {
@@ -2,59 +2,106 @@ package com.mas.masonry.agent.states;
 
 import com.mas.masonry.AgentEntity;
 import com.mas.masonry.AgentEntity.AgentState;
-import com.mas.masonry.AgentEntity.AgentMemory;
+import com.mas.masonry.agent.movement.MovementMonitor;
+import com.mas.masonry.agent.movement.StandingReservations;
 import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.phys.Vec3;
 
 
 public class MoveToTargetBlockStateHandler implements IAgentStateHandler {
+    private static final double DESTINATION_TOLERANCE = 1.0; // Targets are fixed blocks; only a new target re-plans
+
+    private final MovementMonitor monitor = new MovementMonitor();
+    private boolean replanned;
+
+    @Override
+    public void onEnter(AgentEntity agent) {
+        monitor.reset();
+        replanned = false;
+        Vec3 destination = destinationOf(agent);
+        if (destination != null) {
+            agent.getMovement().moveTo(destination, 1.0D, DESTINATION_TOLERANCE);
+        }
+    }
 
     @Override
-    public void handle(AgentEntity agent) {
-        AgentMemory memory = agent.getMemory();
+    public void onTick(AgentEntity agent) {
         Vec3 targetPosVec = agent.getTargetPos(); // Precise Vec3 for construction
         BlockPos targetBlock = agent.getTargetBlockPos(); // BlockPos for harvesting/general
 
-        boolean moved = false;
-
         if (targetPosVec != null) {
-            // MASONRY.LOGGER.info("{} moving to precise targetPos: {}", agent.getName().getString(), targetPosVec);
-            agent.getNavigation().moveTo(targetPosVec.x, targetPosVec.y, targetPosVec.z, 1.0D);
-            moved = true;
             if (agent.position().distanceToSqr(targetPosVec) < 2.25) { // 1.5 blocks squared
                 // MASONRY.LOGGER.info("{} reached precise targetPos. Transitioning to PLACE_CONSTRUCTION_BLOCK.", agent.getName().getString());
                 agent.setCurrentState(AgentState.PLACE_CONSTRUCTION_BLOCK);
                 agent.setTargetPos(null); // Clear after reaching
-                memory.resetTicksInState();
                 return;
             }
         } else if (targetBlock != null) {
-            // MASONRY.LOGGER.info("{} moving to targetBlockPos: {}", agent.getName().getString(), targetBlock);
-            agent.getNavigation().moveTo(targetBlock.getX() + 0.5D, targetBlock.getY(), targetBlock.getZ() + 0.5D, 1.0D);
-            moved = true;
             // Check if agent is close enough to the center of the block or adjacent
             if (agent.blockPosition().distSqr(targetBlock) < 2.25) { // Closer than 1.5 blocks to the block's center
                 // MASONRY.LOGGER.info("{} reached targetBlockPos. Transitioning to HARVEST_BLOCK.", agent.getName().getString());
                 agent.setCurrentState(AgentState.HARVEST_BLOCK); // Or other appropriate state like PLACE_CONSTRUCTION_BLOCK if that's the goal
                 // agent.setTargetBlockPos(null); // Clearing targetBlockPos might be premature if harvesting takes time
-                memory.resetTicksInState();
                 return;
             }
-        }
-
-        if (!moved) {
+        } else {
             // MASONRY.LOGGER.warn("{} is in MOVE_TO_TARGET_BLOCK state with no targetPos or targetBlockPos. Returning to IDLE.", agent.getName().getString());
             agent.setCurrentState(AgentState.IDLE);
-            memory.resetTicksInState();
             return;
         }
 
-        if (memory.getTicksInCurrentState() > agent.getMaxTicksToReachBlock()) {
-            // MASONRY.LOGGER.info("{} timed out moving to target. Returning to IDLE.", agent.getName().getString());
-            agent.setCurrentState(AgentState.IDLE);
-            agent.setTargetBlockPos(null); // Clear target
-            agent.setTargetPos(null);      // Clear target
-            memory.resetTicksInState();
+        Vec3 destination = destinationOf(agent);
+        MovementMonitor.Verdict verdict = monitor.update(agent.position(), destination, agent.level().getGameTime());
+        if (verdict == MovementMonitor.Verdict.PROGRESSING) {
+            if (replanned && monitor.isWindowFull()) {
+                // The fresh path got it moving again; a later stall gets its own re-plan
+                replanned = false;
+            }
+        } else {
+            if (replanned) {
+                // MASONRY.LOGGER.info("{} is not getting closer to its target. Returning to IDLE.", agent.getName().getString());
+                giveUp(agent);
+                return;
+            }
+            // One fresh path from where the agent stands now before the target is written off
+            replanned = true;
+            monitor.reset();
+            agent.getMovement().stop();
+        }
+
+        // Reuses the current path unless the target changed, the path got blocked or the agent is stuck
+        agent.getMovement().moveTo(destination, 1.0D, DESTINATION_TOLERANCE);
+    }
+
+    private static void giveUp(AgentEntity agent) {
+        BlockPos targetBlock = agent.getTargetBlockPos();
+        if (agent.getTargetPos() != null && agent.level() instanceof ServerLevel serverLevel) {
+            StandingReservations.get(serverLevel).release(agent);
+        }
+        if (agent.getTargetPos() == null && targetBlock != null) {
+            // Keeps the block search from handing the same block straight back
+            agent.getUnreachableTargets().mark(targetBlock, agent.level().getGameTime());
+        }
+        agent.setCurrentState(AgentState.IDLE);
+        agent.setTargetBlockPos(null); // Clear target
+        agent.setTargetPos(null);      // Clear target
+    }
+
+    @Override
+    public void onExit(AgentEntity agent) {
+        agent.getMovement().stop();
+        if (agent.getTargetPos() != null && agent.level() instanceof ServerLevel serverLevel) {
+            // Pulled away before reaching its work spot; arriving clears the target first and keeps the spot
+            StandingReservations.get(serverLevel).release(agent);
+        }
+    }
+
+    private static Vec3 destinationOf(AgentEntity agent) {
+        if (agent.getTargetPos() != null) {
+            return agent.getTargetPos();
         }
+        BlockPos targetBlock = agent.getTargetBlockPos();
+        return targetBlock == null ? null : new Vec3(targetBlock.getX() + 0.5D, targetBlock.getY(), targetBlock.getZ() + 0.5D);
     }
 }
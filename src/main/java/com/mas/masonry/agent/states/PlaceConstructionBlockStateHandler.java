@@ -2,80 +2,150 @@ package com.mas.masonry.agent.states;
 
 import com.mas.masonry.AgentEntity;
 import com.mas.masonry.AgentEntity.AgentState;
-import com.mas.masonry.MASONRY;
-import com.mas.masonry.MASONRY.BlueprintBlock;
+import com.mas.masonry.Config;
+import com.mas.masonry.agent.construction.BlueprintLoader;
+import com.mas.masonry.agent.construction.BlueprintVerifier;
+import com.mas.masonry.agent.construction.CompiledBlueprint;
+import com.mas.masonry.agent.construction.ConstructionProject;
+import com.mas.masonry.agent.construction.JobBoard;
+import com.mas.masonry.agent.construction.MaterialPlanner;
+import com.mas.masonry.agent.construction.MaterialTrip;
+import com.mas.masonry.agent.construction.PlacementQueue;
+import com.mas.masonry.agent.movement.HierarchicalPlanner;
+import com.mas.masonry.agent.movement.StandingReservations;
+import com.mas.masonry.agent.world.WorldView;
 import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.Items;
+import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.phys.Vec3;
 import net.minecraft.world.InteractionHand;
 
 public class PlaceConstructionBlockStateHandler implements IAgentStateHandler {
     private static final double MAX_PLACEMENT_DISTANCE_SQR = 3.5 * 3.5; // Max distance to place a block
+    private static final int CLAIM_LEASE_TICKS = 600; // Covers walking to the block; renewed while the agent works on it
 
     @Override
-    public void handle(AgentEntity agent) {
+    public void onTick(AgentEntity agent) {
         AgentEntity.AgentMemory memory = agent.getMemory();
         memory.incrementTicksSinceLastBlockPlace(); // Increment cooldown timer each tick in this state
+        if (!(agent.level() instanceof ServerLevel serverLevel)) {
+            return;
+        }
+        long gameTime = serverLevel.getGameTime();
 
-        if (agent.getConstructionOrigin() == null) {
-            // MASONRY.LOGGER.info("{} initializing construction origin to current position.", agent.getName().getString());
-            agent.setConstructionOrigin(agent.blockPosition());
+        ConstructionProject project = agent.getConstructionProject();
+        if (project != null && JobBoard.get(serverLevel).get(project.getId()) != project) {
+            // Dropped from the board while the agent was away (e.g. on a long gathering trip); its block
+            // statuses are no longer kept current, so pick the same site up again from a fresh check of
+            // the world rather than starting over wherever the agent happens to be standing
+            agent.setClaimedBlueprintIndex(-1);
+            project = JobBoard.get(serverLevel).joinOrCreate(serverLevel, project.getOrigin(), project.getBlueprint());
+            agent.setConstructionProject(project);
+        }
+        if (project == null) {
+            // Join a hut already going up nearby, or start one where the agent stands
+            // MASONRY.LOGGER.info("{} joining or starting a construction project.", agent.getName().getString());
+            CompiledBlueprint blueprint = BlueprintLoader.simpleHut();
+            if (blueprint.isEmpty()) {
+                // MASONRY.LOGGER.warn("{} cannot place construction block: Blueprint is empty. Transitioning to IDLE.", agent.getName().getString());
+                agent.setCurrentState(AgentState.IDLE);
+                memory.resetTicksInState();
+                return;
+            }
+            project = JobBoard.get(serverLevel).joinOrCreate(serverLevel, agent.blockPosition(), blueprint);
+            agent.setConstructionProject(project);
         }
 
-        if (MASONRY.SIMPLE_HUT_BLUEPRINT.isEmpty()) {
-            // MASONRY.LOGGER.warn("{} cannot place construction block: Blueprint is empty. Transitioning to IDLE.", agent.getName().getString());
-            agent.setCurrentState(AgentState.IDLE);
+        // Nothing left that can be placed: either the blueprint is finished or the rest is obstructed
+        if (!project.hasOpenWork()) {
+            // MASONRY.LOGGER.info("{} has no more blocks to place ({} obstructed). Transitioning to IDLE.", agent.getName().getString(), project.getVerifier().getObstructedCount());
+            releaseWorkSpot(agent);
+            agent.setConstructionProject(null);
+            agent.setClaimedBlueprintIndex(-1);
+            agent.setMaterialTrip(null);
+            agent.setCurrentState(AgentState.IDLE); // Or a new CELEBRATE state :)
             memory.resetTicksInState();
             return;
         }
 
-        int blueprintIndex = agent.getCurrentBlueprintIndex();
-        if (blueprintIndex >= MASONRY.SIMPLE_HUT_BLUEPRINT.size()) {
-            // MASONRY.LOGGER.info("{} has completed the blueprint! Transitioning to IDLE.", agent.getName().getString());
-            agent.setCurrentState(AgentState.IDLE); // Or a new CELEBRATE state :)
-            // agent.setConstructionOrigin(null); // Optionally reset for next construction
-            // agent.setCurrentBlueprintIndex(0);
-            memory.resetTicksInState();
+        // Back from harvesting one block of a gathering trip; head for the next before returning to the site
+        if (startGatheringLeg(agent, project)) {
             return;
         }
 
-        BlueprintBlock currentBlueprintBlock = MASONRY.SIMPLE_HUT_BLUEPRINT.get(blueprintIndex);
-        BlockPos targetPlacementPos = agent.getConstructionOrigin().offset(currentBlueprintBlock.relativePos);
+        int blueprintIndex = agent.getClaimedBlueprintIndex();
+        if (blueprintIndex < 0 || !project.renew(blueprintIndex, agent.getId(), gameTime, CLAIM_LEASE_TICKS)) {
+            blueprintIndex = project.claim(agent.getId(), gameTime, CLAIM_LEASE_TICKS);
+            agent.setClaimedBlueprintIndex(blueprintIndex);
+            if (blueprintIndex < 0) {
+                // Every block that can go up next is being placed by somebody else; wait for the next layer
+                return;
+            }
+        }
 
-        // Check if block is already there
-        BlockState existingBlockState = agent.level().getBlockState(targetPlacementPos);
-        if (existingBlockState.is(currentBlueprintBlock.blockType)) {
-            // MASONRY.LOGGER.info("{} found block {} already at {}. Moving to next blueprint item.", agent.getName().getString(), currentBlueprintBlock.blockType.getName().getString(), targetPlacementPos);
-            agent.incrementCurrentBlueprintIndex();
+        BlockState targetState = project.getState(blueprintIndex);
+        BlockPos targetPlacementPos = project.getWorldPos(blueprintIndex);
+        if (PlacementQueue.get(serverLevel).isQueued(targetPlacementPos)) {
+            // Already handed to the placement queue; the claim clears once the block is in
+            return;
+        }
+
+        // Far-off sites are reached in legs through the chunk graph rather than with one long path
+        if (HierarchicalPlanner.isLongRange(agent.blockPosition(), targetPlacementPos)) {
+            // The trip may outlast the lease; let others build meanwhile and claim afresh on arrival
+            releaseClaim(agent, project);
+            agent.travelTo(targetPlacementPos, AgentState.PLACE_CONSTRUCTION_BLOCK);
+            return;
+        }
+
+        // Check if block is already there. A null state means the chunk isn't loaded, and agents don't load
+        // chunks by walking up to them, so sending it over would just loop; hand the block back instead
+        BlockState existingBlockState = WorldView.getBlockState(agent.level(), targetPlacementPos);
+        if (existingBlockState == null) {
+            releaseClaim(agent, project);
+            releaseWorkSpot(agent);
+            agent.setCurrentState(AgentState.IDLE);
             memory.resetTicksInState();
             return;
         }
-        // If it's not air and not the target block, it's obstructed. For now, we can't handle this well.
-        if (!existingBlockState.isAir()) {
-            // MASONRY.LOGGER.warn("{} found obstruction {} at {}. Cannot place {}. Transitioning to IDLE.", 
-            //    agent.getName().getString(), existingBlockState.getBlock().getName().getString(), targetPlacementPos, currentBlueprintBlock.blockType.getName().getString());
-            agent.setCurrentState(AgentState.IDLE); // Or a new CANNOT_BUILD state
+        // The verifier may have last seen this block while its chunk was unloaded, so trust what is there now
+        BlueprintVerifier.Status found = BlueprintVerifier.classify(existingBlockState, targetState);
+        if (found != BlueprintVerifier.Status.MISSING) {
+            // Already built, or obstructed: either way it's off the work list and the agent picks the next block.
+            // MASONRY.LOGGER.info("{} found {} at {} ({}). Moving to next blueprint item.", agent.getName().getString(), existingBlockState.getBlock().getName().getString(), targetPlacementPos, found);
+            project.recordFound(blueprintIndex, found);
+            agent.setClaimedBlueprintIndex(-1);
             memory.resetTicksInState();
             return;
         }
 
-        // Check distance to placement position
-        if (agent.position().distanceToSqr(Vec3.atCenterOf(targetPlacementPos)) > MAX_PLACEMENT_DISTANCE_SQR) {
-            // MASONRY.LOGGER.info("{} is too far from {}. Moving to target block for placement.", agent.getName().getString(), targetPlacementPos);
-            agent.setTargetPos(Vec3.atCenterOf(targetPlacementPos));
-            agent.setCurrentState(AgentState.MOVE_TO_TARGET_BLOCK);
+        // Check inventory for the required block, before walking over to place it
+        ItemStack requiredItemStack = new ItemStack(targetState.getBlock().asItem());
+        if (!inventoryHasItem(agent.getInventory(), requiredItemStack)
+                && MaterialPlanner.craft(serverLevel, agent, requiredItemStack.getItem(),
+                        MaterialPlanner.remaining(project, requiredItemStack.getItem())) == 0) {
+            // Gather for as much of the rest of the build as one trip allows, not just this block
+            agent.setMaterialTrip(MaterialPlanner.planTrip(serverLevel, agent, project));
+            if (startGatheringLeg(agent, project)) {
+                return;
+            }
+            // MASONRY.LOGGER.info("{} does not have {}. Transitioning to FIND_TARGET_BLOCK.", agent.getName().getString(), targetState.getBlock().getName().getString());
+            // Gathering takes a while; another builder with the block in hand can place it meanwhile
+            releaseClaim(agent, project);
+            agent.setTargetBlockTypeToFind(targetState.getBlock());
+            agent.setCurrentState(AgentState.FIND_TARGET_BLOCK);
             memory.resetTicksInState();
             return;
         }
 
-        // Check inventory for the required block
-        ItemStack requiredItemStack = new ItemStack(currentBlueprintBlock.blockType.asItem());
-        if (!inventoryHasItem(agent.getInventory(), requiredItemStack)) {
-            // MASONRY.LOGGER.info("{} does not have {}. Transitioning to FIND_TARGET_BLOCK.", agent.getName().getString(), currentBlueprintBlock.blockType.getName().getString());
-            agent.setTargetBlockTypeToFind(currentBlueprintBlock.blockType);
-            agent.setCurrentState(AgentState.FIND_TARGET_BLOCK);
+        // Check distance to placement position
+        if (agent.position().distanceToSqr(Vec3.atCenterOf(targetPlacementPos)) > MAX_PLACEMENT_DISTANCE_SQR) {
+            // MASONRY.LOGGER.info("{} is too far from {}. Moving to target block for placement.", agent.getName().getString(), targetPlacementPos);
+            agent.setTargetPos(workSpotFor(agent, targetPlacementPos));
+            agent.setCurrentState(AgentState.MOVE_TO_TARGET_BLOCK);
             memory.resetTicksInState();
             return;
         }
@@ -87,27 +157,109 @@ public class PlaceConstructionBlockStateHandler implements IAgentStateHandler {
         }
 
         // Attempt to place the block
-        // MASONRY.LOGGER.info("{} attempting to place {} at {}.", agent.getName().getString(), currentBlueprintBlock.blockType.getName().getString(), targetPlacementPos);
+        // MASONRY.LOGGER.info("{} attempting to place {} at {}.", agent.getName().getString(), targetState.getBlock().getName().getString(), targetPlacementPos);
+        int slot = findSlotWithItem(agent.getInventory(), requiredItemStack);
+        if (slot < 0) {
+            // Nothing to pay with after all (e.g. the crafted block didn't fit and was dropped); the
+            // inventory check sorts it out next tick
+            memory.resetTicksInState();
+            return;
+        }
+        if (Config.batchedPlacement) {
+            // Placed with the tick's batch; the claim is kept so nobody else queues the same block meanwhile
+            ItemStack cost = agent.getInventory().removeItem(slot, 1);
+            if (!PlacementQueue.get(serverLevel).enqueue(targetPlacementPos, targetState, agent, cost)) {
+                // Someone queued this position first; the item never left for the queue, so it goes back
+                ItemStack leftover = agent.getInventory().addItem(cost);
+                if (!leftover.isEmpty()) {
+                    agent.spawnAtLocation(leftover, 0.5F);
+                }
+                memory.resetTicksInState();
+                return;
+            }
+            memory.resetTicksSinceLastBlockPlace();
+            memory.resetTicksInState();
+            return;
+        }
         // Simulate using the item. This is a simplified way to place a block.
         // A more robust way would involve using GameEvents, or specific item interaction logic.
         // For now, directly set the block state and remove from inventory.
-        boolean placed = agent.level().setBlock(targetPlacementPos, currentBlueprintBlock.blockType.defaultBlockState(), 3);
+        boolean placed = agent.level().setBlock(targetPlacementPos, targetState, 3);
 
         if (placed) {
-            // MASONRY.LOGGER.info("{} successfully placed {} at {}.", agent.getName().getString(), currentBlueprintBlock.blockType.getName().getString(), targetPlacementPos);
-            int slot = findSlotWithItem(agent.getInventory(), requiredItemStack);
-            if (slot != -1) {
-                agent.getInventory().removeItem(slot, 1); // Remove one item
-            }
-            agent.incrementCurrentBlueprintIndex();
+            // MASONRY.LOGGER.info("{} successfully placed {} at {}.", agent.getName().getString(), targetState.getBlock().getName().getString(), targetPlacementPos);
+            agent.getInventory().removeItem(slot, 1); // Remove one item
+            // The block change event has usually marked it already; this covers placements that don't notify
+            project.recordFound(blueprintIndex, BlueprintVerifier.Status.CORRECT);
+            agent.setClaimedBlueprintIndex(-1);
             memory.resetTicksSinceLastBlockPlace(); // Reset cooldown after successful placement
         } else {
-            // MASONRY.LOGGER.warn("{} failed to place {} at {}. Transitioning to IDLE.", agent.getName().getString(), currentBlueprintBlock.blockType.getName().getString(), targetPlacementPos);
+            // MASONRY.LOGGER.warn("{} failed to place {} at {}. Transitioning to IDLE.", agent.getName().getString(), targetState.getBlock().getName().getString(), targetPlacementPos);
+            releaseClaim(agent, project);
+            releaseWorkSpot(agent);
             agent.setCurrentState(AgentState.IDLE); // Or retry logic
         }
         memory.resetTicksInState();
     }
 
+    /**
+     * Sends the agent to harvest the next block of its gathering trip, if any is left.
+     */
+    private static boolean startGatheringLeg(AgentEntity agent, ConstructionProject project) {
+        MaterialTrip trip = agent.getMaterialTrip();
+        if (trip == null) {
+            return false;
+        }
+        Block next = trip.nextLeg(agent.getInventory());
+        if (next == null) {
+            agent.setMaterialTrip(null);
+            return false;
+        }
+        // MASONRY.LOGGER.info("{} gathering {} for construction. Transitioning to FIND_TARGET_BLOCK.", agent.getName().getString(), next.getName().getString());
+        releaseClaim(agent, project);
+        releaseWorkSpot(agent);
+        agent.setTargetBlockTypeToFind(next);
+        agent.setCurrentState(AgentState.FIND_TARGET_BLOCK);
+        agent.getMemory().resetTicksInState();
+        return true;
+    }
+
+    private static void releaseClaim(AgentEntity agent, ConstructionProject project) {
+        if (agent.getClaimedBlueprintIndex() >= 0) {
+            project.release(agent.getClaimedBlueprintIndex(), agent.getId());
+            agent.setClaimedBlueprintIndex(-1);
+        }
+    }
+
+    @Override
+    public void onExit(AgentEntity agent) {
+        // A target position is only set on the way out when the agent is walking over to its work spot;
+        // leaving for anything else (fleeing, a long trip) hands the spot back now instead of at the lapse
+        if (agent.getTargetPos() == null) {
+            releaseWorkSpot(agent);
+        }
+    }
+
+    /**
+     * A standing cell next to the target that no other builder has claimed, so agents sharing a site
+     * spread out around it. Falls back to the target itself when every cell around it is taken.
+     */
+    private static Vec3 workSpotFor(AgentEntity agent, BlockPos target) {
+        if (agent.level() instanceof ServerLevel serverLevel) {
+            BlockPos cell = StandingReservations.get(serverLevel).reserve(serverLevel, agent, target);
+            if (cell != null) {
+                return Vec3.atBottomCenterOf(cell);
+            }
+        }
+        return Vec3.atCenterOf(target);
+    }
+
+    private static void releaseWorkSpot(AgentEntity agent) {
+        if (agent.level() instanceof ServerLevel serverLevel) {
+            StandingReservations.get(serverLevel).release(agent);
+        }
+    }
+
     private static boolean inventoryHasItem(net.minecraft.world.SimpleContainer inventory, ItemStack itemStack) {
         for (int i = 0; i < inventory.getContainerSize(); ++i) {
             ItemStack slotStack = inventory.getItem(i);
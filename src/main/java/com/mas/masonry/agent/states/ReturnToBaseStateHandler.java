@@ -0,0 +1,34 @@
+package com.mas.masonry.agent.states;
+
+import com.mas.masonry.AgentEntity;
+import com.mas.masonry.AgentEntity.AgentState;
+import com.mas.masonry.agent.movement.RouteFollower;
+import net.minecraft.core.BlockPos;
+
+public class ReturnToBaseStateHandler implements IAgentStateHandler {
+    private final RouteFollower route = new RouteFollower();
+
+    @Override
+    public void onEnter(AgentEntity agent) {
+        BlockPos home = agent.getHomePos();
+        if (home != null) {
+            route.start(home);
+        } else {
+            route.clear();
+        }
+    }
+
+    @Override
+    public void onTick(AgentEntity agent) {
+        if (route.tick(agent, 1.0D) != RouteFollower.Status.TRAVELLING) {
+            // Home, or no way home right now; either way there's nothing more to do here
+            agent.setCurrentState(AgentState.IDLE);
+        }
+    }
+
+    @Override
+    public void onExit(AgentEntity agent) {
+        route.clear();
+        agent.getMovement().stop();
+    }
+}
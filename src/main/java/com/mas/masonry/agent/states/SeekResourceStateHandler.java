@@ -6,7 +6,7 @@ import com.mas.masonry.AgentEntity;
 public class SeekResourceStateHandler implements IAgentStateHandler {
 
     @Override
-    public void handle(AgentEntity agent) {
+    public void onTick(AgentEntity agent) {
         // Placeholder: In a real scenario, this would involve pathfinding to a known resource
         // or actively searching for one if not known.
         // For now, just log and stop moving if no specific target.
@@ -0,0 +1,51 @@
+package com.mas.masonry.agent.states;
+
+import com.mas.masonry.AgentEntity;
+import com.mas.masonry.AgentEntity.AgentState;
+import com.mas.masonry.agent.world.ResourceBlackboard;
+import com.mas.masonry.agent.world.WorldView;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.Block;
+
+import java.util.List;
+import java.util.Map;
+
+public class ShareResourceLocationStateHandler implements IAgentStateHandler {
+    private static final int SHARE_DURATION_TICKS = 40; // Agent talks for 2 seconds (40 ticks)
+
+    @Override
+    public void onTick(AgentEntity agent) {
+        if (!(agent.level() instanceof ServerLevel serverLevel)) {
+            agent.setCurrentState(AgentState.IDLE);
+            return;
+        }
+
+        AgentEntity.AgentMemory memory = agent.getMemory();
+        if (memory.hasUnsharedDiscoveries()) {
+            // Only publish what is still there, so the board doesn't start out with stale notes
+            ResourceBlackboard blackboard = ResourceBlackboard.get(serverLevel);
+            long gameTime = serverLevel.getGameTime();
+            int shared = 0;
+            for (Map.Entry<BlockPos, Block> discovery : memory.drainDiscoveries().entrySet()) {
+                if (WorldView.isBlock(serverLevel, discovery.getKey(), discovery.getValue())) {
+                    blackboard.publish(discovery.getValue(), discovery.getKey(), gameTime);
+                    shared++;
+                }
+            }
+
+            // Face whoever is around to hear it
+            List<AgentEntity> allies = memory.getPerception().allies();
+            if (!allies.isEmpty()) {
+                agent.getLookControl().setLookAt(allies.get(0), 30.0F, 30.0F);
+            }
+            if (shared > 0) {
+                memory.increaseSocialMeter(2);
+            }
+        }
+
+        if (memory.getTicksInCurrentState() > SHARE_DURATION_TICKS) {
+            agent.setCurrentState(AgentState.IDLE);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.mas.masonry.agent.states;
+
+import com.mas.masonry.AgentEntity;
+import com.mas.masonry.AgentEntity.AgentState;
+import com.mas.masonry.agent.movement.RouteFollower;
+import net.minecraft.core.BlockPos;
+
+public class TravelToTaskLocationStateHandler implements IAgentStateHandler {
+    private final RouteFollower route = new RouteFollower();
+
+    @Override
+    public void onEnter(AgentEntity agent) {
+        BlockPos taskLocation = agent.getTaskLocation();
+        if (taskLocation != null) {
+            route.start(taskLocation);
+        } else {
+            route.clear();
+        }
+    }
+
+    @Override
+    public void onTick(AgentEntity agent) {
+        switch (route.tick(agent, 1.0D)) {
+            case ARRIVED -> agent.setCurrentState(agent.getTaskArrivalState());
+            // No way there over the loaded world; give up rather than wander off
+            case FAILED -> agent.setCurrentState(AgentState.IDLE);
+            case TRAVELLING -> { }
+        }
+    }
+
+    @Override
+    public void onExit(AgentEntity agent) {
+        route.clear();
+        agent.getMovement().stop();
+    }
+}
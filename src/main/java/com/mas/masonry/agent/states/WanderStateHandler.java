@@ -7,14 +7,23 @@ import net.minecraft.world.phys.Vec3;
 public class WanderStateHandler implements IAgentStateHandler {
 
     @Override
-    public void handle(AgentEntity agent) {
-        // Simple wander: pick a random direction and move a bit
+    public void onEnter(AgentEntity agent) {
+        pickDestination(agent);
+    }
+
+    @Override
+    public void onTick(AgentEntity agent) {
+        // Simple wander: walk to a random spot, then pick the next one once it's reached
         // This is often better handled by a Goal, but can be a simple state behavior too
-        if (agent.getNavigation().isDone() || agent.getRandom().nextFloat() < 0.05f) { // If path complete or randomly
-            Vec3 randomTarget = DefaultRandomPos.getPos(agent, 10, 7);
-            if (randomTarget != null) {
-                agent.getNavigation().moveTo(randomTarget.x, randomTarget.y, randomTarget.z, 1.0D);
-            }
+        if (agent.getNavigation().isDone()) {
+            pickDestination(agent);
+        }
+    }
+
+    private static void pickDestination(AgentEntity agent) {
+        Vec3 randomTarget = DefaultRandomPos.getPos(agent, 10, 7);
+        if (randomTarget != null) {
+            agent.getNavigation().moveTo(randomTarget.x, randomTarget.y, randomTarget.z, 1.0D);
         }
     }
 }
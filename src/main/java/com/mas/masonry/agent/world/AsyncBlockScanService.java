@@ -0,0 +1,194 @@
+package com.mas.masonry.agent.world;
+
+import com.mas.masonry.Config;
+import com.mas.masonry.MASONRY;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Runs large-radius block searches on a worker pool. The relevant chunk sections are copied on the
+ * server thread when the scan is submitted, the search runs against that copy, and the result is
+ * handed back at the end of a later server tick. Callers poll their {@link ScanTicket} instead of
+ * blocking the tick.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public final class AsyncBlockScanService {
+    private static final List<ScanTicket> PENDING = new ArrayList<>();
+    private static ExecutorService executor;
+
+    private static long submitted = 0;
+    private static long delivered = 0;
+
+    private AsyncBlockScanService() {}
+
+    private record ScanResult(List<BlockPos> found, LongList emptySections) {}
+
+    /**
+     * Handle for one submitted scan. Only touched on the server thread.
+     */
+    public static final class ScanTicket {
+        private final ResourceKey<Level> dimension;
+        private final Block block;
+        private final CompletableFuture<ScanResult> future;
+        // Sections that changed after the snapshot was taken; their empty results are stale
+        private final LongOpenHashSet changedSections = new LongOpenHashSet();
+        private List<BlockPos> results = List.of();
+        private boolean done = false;
+
+        private ScanTicket(ResourceKey<Level> dimension, Block block, CompletableFuture<ScanResult> future) {
+            this.dimension = dimension;
+            this.block = block;
+            this.future = future;
+        }
+
+        public Block getBlock() { return block; }
+
+        /**
+         * True once the result has been delivered on the server thread.
+         */
+        public boolean isDone() { return done; }
+
+        /**
+         * Hands the matches found at snapshot time, nearest first, to the agent that asked; only results
+         * taken this way count as delivered. Callers should re-check them against the live world.
+         */
+        public List<BlockPos> takeResults() {
+            delivered++;
+            return results;
+        }
+
+        public void cancel() { future.cancel(false); }
+    }
+
+    /**
+     * Snapshots the search area and queues the search of up to {@code limit} blocks of the given type
+     * with a free block above them. Must be called on the server thread.
+     */
+    public static ScanTicket submit(ServerLevel level, BlockPos center, int radius, Block block, int limit) {
+        NegativeSearchCache negativeCache = NegativeSearchCache.get(level);
+        long gameTime = level.getGameTime();
+        Predicate<BlockState> matcher = state -> state.is(block);
+        ChunkSectionSnapshot snapshot = ChunkSectionSnapshot.capture(level, center, radius, matcher,
+                sectionKey -> negativeCache.isKnownEmpty(sectionKey, block, gameTime));
+
+        CompletableFuture<ScanResult> future = CompletableFuture.supplyAsync(() -> {
+            LongList emptySections = new LongArrayList();
+            List<BlockPos> found = SectionBlockSearch.search(snapshot, center, radius,
+                    snapshot.getMinBuildY(), snapshot.getMaxBuildY(), matcher,
+                    pos -> {
+                        BlockState above = snapshot.getBlockState(pos.above());
+                        return above != null && above.isAir();
+                    },
+                    limit, null, emptySections::add);
+            return new ScanResult(found, emptySections);
+        }, executor());
+
+        ScanTicket ticket = new ScanTicket(level.dimension(), block, future);
+        PENDING.add(ticket);
+        submitted++;
+        return ticket;
+    }
+
+    public static int getPendingCount() { return PENDING.size(); }
+
+    public static long getSubmittedCount() { return submitted; }
+
+    /**
+     * Scans whose results reached the agent that asked; cancelled scans and those whose agent is gone don't count.
+     */
+    public static long getDeliveredCount() { return delivered; }
+
+    private static synchronized ExecutorService executor() {
+        if (executor == null) {
+            AtomicInteger threadId = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(Math.max(1, Config.asyncScanThreads), runnable -> {
+                Thread thread = new Thread(runnable, "MASONRY Block Scan #" + threadId.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Block change hook, registered with {@link BlockChangeTracker} during common setup.
+     */
+    public static void handleBlockChange(ServerLevel level, BlockPos pos, BlockState newState) {
+        if (PENDING.isEmpty()) {
+            return;
+        }
+        long sectionKey = SectionPos.blockToSection(pos.asLong());
+        long belowKey = SectionPos.blockToSection(pos.below().asLong());
+        for (ScanTicket ticket : PENDING) {
+            if (ticket.dimension == level.dimension()) {
+                ticket.changedSections.add(sectionKey);
+                ticket.changedSections.add(belowKey);
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || PENDING.isEmpty()) {
+            return;
+        }
+        Iterator<ScanTicket> it = PENDING.iterator();
+        while (it.hasNext()) {
+            ScanTicket ticket = it.next();
+            if (!ticket.future.isDone()) {
+                continue;
+            }
+            it.remove();
+            ticket.done = true;
+            if (ticket.future.isCancelled() || ticket.future.isCompletedExceptionally()) {
+                continue;
+            }
+
+            ScanResult result = ticket.future.join();
+            ticket.results = result.found();
+
+            ServerLevel level = event.getServer().getLevel(ticket.dimension);
+            if (level != null) {
+                NegativeSearchCache negativeCache = NegativeSearchCache.get(level);
+                long gameTime = level.getGameTime();
+                for (long sectionKey : result.emptySections()) {
+                    if (!ticket.changedSections.contains(sectionKey)) {
+                        negativeCache.markEmpty(sectionKey, ticket.block, gameTime);
+                    }
+                }
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static synchronized void onServerStopped(ServerStoppedEvent event) {
+        PENDING.clear();
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        submitted = 0;
+        delivered = 0;
+    }
+}
@@ -0,0 +1,61 @@
+package com.mas.masonry.agent.world;
+
+import com.mas.masonry.MASONRY;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraftforge.event.level.BlockEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Single entry point for server-side block changes. Forge block events are funnelled here and
+ * fanned out to the agent world indices, so each index does not need its own event handlers.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public final class BlockChangeTracker {
+
+    /**
+     * Callback for a block that changed to {@code newState} at {@code pos}.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onBlockChanged(ServerLevel level, BlockPos pos, BlockState newState);
+    }
+
+    private static final List<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private BlockChangeTracker() {}
+
+    public static void addListener(Listener listener) {
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * Lets agent code report a change it made with flags that do not notify neighbours.
+     */
+    public static void notifyChanged(ServerLevel level, BlockPos pos, BlockState newState) {
+        for (Listener listener : LISTENERS) {
+            listener.onBlockChanged(level, pos, newState);
+        }
+    }
+
+    // Fired for every setBlock that updates neighbours: player and agent placement, breaking, pistons, explosions
+    @SubscribeEvent
+    public static void onNeighborNotify(BlockEvent.NeighborNotifyEvent event) {
+        if (event.getLevel() instanceof ServerLevel level) {
+            notifyChanged(level, event.getPos(), event.getState());
+        }
+    }
+
+    // Crop growth sets the block without a neighbour update, so it needs its own hook
+    @SubscribeEvent
+    public static void onCropGrow(BlockEvent.CropGrowEvent.Post event) {
+        if (event.getLevel() instanceof ServerLevel level) {
+            notifyChanged(level, event.getPos(), event.getState());
+        }
+    }
+}
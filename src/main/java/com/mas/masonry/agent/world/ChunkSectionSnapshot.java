@@ -0,0 +1,149 @@
+package com.mas.masonry.agent.world;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Private copy of the chunk section data a block search needs, taken on the server thread so the
+ * search itself can run on a worker thread. Only sections whose palette may contain the target are
+ * copied, plus the section above each of them for the "free block above" check. Anything not
+ * captured reads as unknown.
+ */
+public final class ChunkSectionSnapshot implements SectionBlockSearch.SectionSource {
+    private final Long2ObjectOpenHashMap<PalettedContainer<BlockState>> sections = new Long2ObjectOpenHashMap<>();
+    private final LongOpenHashSet airSections = new LongOpenHashSet();
+    private final int minBuildY;
+    private final int maxBuildY;
+
+    private ChunkSectionSnapshot(int minBuildY, int maxBuildY) {
+        this.minBuildY = minBuildY;
+        this.maxBuildY = maxBuildY;
+    }
+
+    /**
+     * Copies the sections of the search cube that may hold a match. Must be called on the server thread.
+     * @param skipSection Sections to leave out entirely (e.g. known empty), may be null.
+     */
+    public static ChunkSectionSnapshot capture(ServerLevel level, BlockPos center, int radius,
+                                               Predicate<BlockState> matcher, @Nullable LongPredicate skipSection) {
+        ChunkSectionSnapshot snapshot = new ChunkSectionSnapshot(level.getMinBuildHeight(), level.getMaxBuildHeight() - 1);
+        int minSectionY = SectionPos.blockToSectionCoord(Math.max(snapshot.minBuildY, center.getY() - radius));
+        int maxSectionY = SectionPos.blockToSectionCoord(Math.min(snapshot.maxBuildY, center.getY() + radius));
+        int minSectionX = SectionPos.blockToSectionCoord(center.getX() - radius);
+        int maxSectionX = SectionPos.blockToSectionCoord(center.getX() + radius);
+        int minSectionZ = SectionPos.blockToSectionCoord(center.getZ() - radius);
+        int maxSectionZ = SectionPos.blockToSectionCoord(center.getZ() + radius);
+
+        for (int sx = minSectionX; sx <= maxSectionX; sx++) {
+            for (int sz = minSectionZ; sz <= maxSectionZ; sz++) {
+                LevelChunk chunk = WorldView.getChunkIfLoaded(level, sx, sz);
+                if (chunk == null) {
+                    continue;
+                }
+                for (int sy = minSectionY; sy <= maxSectionY; sy++) {
+                    long sectionKey = SectionPos.asLong(sx, sy, sz);
+                    if (skipSection != null && skipSection.test(sectionKey)) {
+                        continue;
+                    }
+                    LevelChunkSection section = sectionAt(chunk, sy);
+                    if (section == null || section.hasOnlyAir() || !section.maybeHas(matcher)) {
+                        continue;
+                    }
+                    // May already be there as the "above" copy of the section below
+                    if (!snapshot.sections.containsKey(sectionKey)) {
+                        snapshot.copy(sectionKey, section);
+                    }
+                    long aboveKey = SectionPos.asLong(sx, sy + 1, sz);
+                    LevelChunkSection above = sectionAt(chunk, sy + 1);
+                    if (above != null && !snapshot.sections.containsKey(aboveKey)) {
+                        snapshot.copy(aboveKey, above);
+                    }
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Copies every loaded section overlapping the box between {@code min} and {@code max}, for searches
+     * that need to see all blocks rather than a few types. Must be called on the server thread.
+     */
+    public static ChunkSectionSnapshot captureBox(ServerLevel level, BlockPos min, BlockPos max) {
+        ChunkSectionSnapshot snapshot = new ChunkSectionSnapshot(level.getMinBuildHeight(), level.getMaxBuildHeight() - 1);
+        int minSectionY = SectionPos.blockToSectionCoord(Math.max(snapshot.minBuildY, min.getY()));
+        int maxSectionY = SectionPos.blockToSectionCoord(Math.min(snapshot.maxBuildY, max.getY()));
+        for (int sx = SectionPos.blockToSectionCoord(min.getX()); sx <= SectionPos.blockToSectionCoord(max.getX()); sx++) {
+            for (int sz = SectionPos.blockToSectionCoord(min.getZ()); sz <= SectionPos.blockToSectionCoord(max.getZ()); sz++) {
+                LevelChunk chunk = WorldView.getChunkIfLoaded(level, sx, sz);
+                if (chunk == null) {
+                    continue;
+                }
+                for (int sy = minSectionY; sy <= maxSectionY; sy++) {
+                    LevelChunkSection section = sectionAt(chunk, sy);
+                    if (section != null) {
+                        snapshot.copy(SectionPos.asLong(sx, sy, sz), section);
+                    }
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    @Nullable
+    private static LevelChunkSection sectionAt(LevelChunk chunk, int sectionY) {
+        int sectionIndex = chunk.getSectionIndexFromSectionY(sectionY);
+        if (sectionIndex < 0 || sectionIndex >= chunk.getSectionsCount()) {
+            return null;
+        }
+        return chunk.getSection(sectionIndex);
+    }
+
+    private void copy(long sectionKey, LevelChunkSection section) {
+        if (section.hasOnlyAir()) {
+            airSections.add(sectionKey);
+        } else {
+            sections.put(sectionKey, section.getStates().copy());
+        }
+    }
+
+    @Override
+    @Nullable
+    public PalettedContainer<BlockState> getStates(int sectionX, int sectionY, int sectionZ) {
+        return sections.get(SectionPos.asLong(sectionX, sectionY, sectionZ));
+    }
+
+    /**
+     * Block state at the position, or null if that section was not captured.
+     */
+    @Nullable
+    public BlockState getBlockState(BlockPos pos) {
+        long sectionKey = SectionPos.blockToSection(pos.asLong());
+        if (airSections.contains(sectionKey)) {
+            return Blocks.AIR.defaultBlockState();
+        }
+        PalettedContainer<BlockState> states = sections.get(sectionKey);
+        if (states == null) {
+            return null;
+        }
+        return states.get(SectionPos.sectionRelative(pos.getX()), SectionPos.sectionRelative(pos.getY()),
+                SectionPos.sectionRelative(pos.getZ()));
+    }
+
+    public int getMinBuildY() { return minBuildY; }
+
+    public int getMaxBuildY() { return maxBuildY; }
+
+    public int getCopiedSectionCount() { return sections.size(); }
+}
@@ -0,0 +1,181 @@
+package com.mas.masonry.agent.world;
+
+import com.mas.masonry.AgentGoals;
+import com.mas.masonry.MASONRY;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import net.minecraftforge.event.level.ChunkEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Per-level index of food-providing blocks (crops, berry bushes, hay), bucketed by chunk section.
+ * Sections are indexed when their chunk loads and kept current through {@link BlockChangeTracker},
+ * so "is food nearby" and "nearest food" never touch the world.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public final class FoodBlockIndex {
+    private static final Map<ResourceKey<Level>, FoodBlockIndex> INDICES = new HashMap<>();
+
+    // Section key -> packed positions of food blocks in that section. Only non-empty sections are stored.
+    private final Long2ObjectOpenHashMap<LongOpenHashSet> sections = new Long2ObjectOpenHashMap<>();
+
+    private FoodBlockIndex() {}
+
+    public static FoodBlockIndex get(ServerLevel level) {
+        return INDICES.computeIfAbsent(level.dimension(), key -> new FoodBlockIndex());
+    }
+
+    /**
+     * Finds the closest indexed food block inside the box of the given half-extents around the center.
+     */
+    public Optional<BlockPos> findNearest(BlockPos center, int horizontalRadius, int verticalRadius) {
+        int minX = SectionPos.blockToSectionCoord(center.getX() - horizontalRadius);
+        int minY = SectionPos.blockToSectionCoord(center.getY() - verticalRadius);
+        int minZ = SectionPos.blockToSectionCoord(center.getZ() - horizontalRadius);
+        int maxX = SectionPos.blockToSectionCoord(center.getX() + horizontalRadius);
+        int maxY = SectionPos.blockToSectionCoord(center.getY() + verticalRadius);
+        int maxZ = SectionPos.blockToSectionCoord(center.getZ() + horizontalRadius);
+
+        long nearest = 0L;
+        double nearestDistSqr = Double.MAX_VALUE;
+        for (int sx = minX; sx <= maxX; sx++) {
+            for (int sy = minY; sy <= maxY; sy++) {
+                for (int sz = minZ; sz <= maxZ; sz++) {
+                    LongOpenHashSet positions = sections.get(SectionPos.asLong(sx, sy, sz));
+                    if (positions == null) {
+                        continue;
+                    }
+                    LongIterator it = positions.iterator();
+                    while (it.hasNext()) {
+                        long packed = it.nextLong();
+                        int dx = BlockPos.getX(packed) - center.getX();
+                        int dy = BlockPos.getY(packed) - center.getY();
+                        int dz = BlockPos.getZ(packed) - center.getZ();
+                        if (Math.abs(dx) > horizontalRadius || Math.abs(dy) > verticalRadius || Math.abs(dz) > horizontalRadius) {
+                            continue;
+                        }
+                        double distSqr = dx * dx + dy * dy + dz * dz;
+                        if (distSqr < nearestDistSqr) {
+                            nearestDistSqr = distSqr;
+                            nearest = packed;
+                        }
+                    }
+                }
+            }
+        }
+        return nearestDistSqr == Double.MAX_VALUE ? Optional.empty() : Optional.of(BlockPos.of(nearest));
+    }
+
+    public int getIndexedSectionCount() { return sections.size(); }
+
+    private void indexChunk(LevelChunk chunk) {
+        ChunkPos chunkPos = chunk.getPos();
+        LevelChunkSection[] chunkSections = chunk.getSections();
+        for (int i = 0; i < chunkSections.length; i++) {
+            int sectionY = chunk.getSectionYFromSectionIndex(i);
+            long sectionKey = SectionPos.asLong(chunkPos.x, sectionY, chunkPos.z);
+            sections.remove(sectionKey);
+
+            LevelChunkSection section = chunkSections[i];
+            // The palette tells us up front whether a food block can be in this section at all
+            if (section.hasOnlyAir() || !section.maybeHas(AgentGoals::isFoodBlock)) {
+                continue;
+            }
+
+            PalettedContainer<BlockState> states = section.getStates();
+            int baseX = chunkPos.getMinBlockX();
+            int baseY = SectionPos.sectionToBlockCoord(sectionY);
+            int baseZ = chunkPos.getMinBlockZ();
+            LongOpenHashSet positions = null;
+            for (int y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        if (AgentGoals.isFoodBlock(states.get(x, y, z))) {
+                            if (positions == null) {
+                                positions = new LongOpenHashSet();
+                            }
+                            positions.add(BlockPos.asLong(baseX + x, baseY + y, baseZ + z));
+                        }
+                    }
+                }
+            }
+            if (positions != null) {
+                sections.put(sectionKey, positions);
+            }
+        }
+    }
+
+    private void unindexChunk(ChunkPos chunkPos, int minSection, int maxSection) {
+        for (int sectionY = minSection; sectionY < maxSection; sectionY++) {
+            sections.remove(SectionPos.asLong(chunkPos.x, sectionY, chunkPos.z));
+        }
+    }
+
+    private void onBlockChanged(BlockPos pos, BlockState newState) {
+        long sectionKey = SectionPos.blockToSection(pos.asLong());
+        long packed = pos.asLong();
+        if (AgentGoals.isFoodBlock(newState)) {
+            sections.computeIfAbsent(sectionKey, key -> new LongOpenHashSet()).add(packed);
+        } else {
+            LongOpenHashSet positions = sections.get(sectionKey);
+            if (positions != null && positions.remove(packed) && positions.isEmpty()) {
+                sections.remove(sectionKey);
+            }
+        }
+    }
+
+    /**
+     * Block change hook, registered with {@link BlockChangeTracker} during common setup.
+     */
+    public static void handleBlockChange(ServerLevel level, BlockPos pos, BlockState newState) {
+        get(level).onBlockChanged(pos, newState);
+    }
+
+    @SubscribeEvent
+    public static void onChunkLoad(ChunkEvent.Load event) {
+        if (event.getLevel() instanceof ServerLevel level && event.getChunk() instanceof LevelChunk chunk) {
+            // Chunk loads can be reported from worker threads; the index is only touched on the server thread
+            if (level.getServer().isSameThread()) {
+                get(level).indexChunk(chunk);
+            } else {
+                level.getServer().execute(() -> {
+                    // Unloaded again before the task ran: its unload event has already gone by, so indexing
+                    // it now would leave entries nothing ever clears. A reload brings its own load event.
+                    ChunkPos pos = chunk.getPos();
+                    if (WorldView.getChunkIfLoaded(level, pos.x, pos.z) == chunk) {
+                        get(level).indexChunk(chunk);
+                    }
+                });
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onChunkUnload(ChunkEvent.Unload event) {
+        if (event.getLevel() instanceof ServerLevel level) {
+            get(level).unindexChunk(event.getChunk().getPos(), level.getMinSection(), level.getMaxSection());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        INDICES.clear();
+    }
+}
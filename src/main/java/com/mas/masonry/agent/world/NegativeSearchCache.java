@@ -0,0 +1,111 @@
+package com.mas.masonry.agent.world;
+
+import com.mas.masonry.Config;
+import com.mas.masonry.MASONRY;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2LongOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shared memory of "searched this section for this block, nothing usable there". Entries expire after
+ * a configurable number of ticks and are dropped as soon as a block in the section changes, so any
+ * agent searching the same area can skip sections somebody else already came up empty in.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public final class NegativeSearchCache {
+    private static final Map<ResourceKey<Level>, NegativeSearchCache> CACHES = new HashMap<>();
+
+    private static final int PURGE_EVERY_STORES = 256;
+
+    private static long hits = 0;
+    private static long stores = 0;
+
+    // Section key -> (block -> game time at which the entry expires)
+    private final Long2ObjectOpenHashMap<Reference2LongOpenHashMap<Block>> sections = new Long2ObjectOpenHashMap<>();
+
+    private NegativeSearchCache() {}
+
+    public static NegativeSearchCache get(ServerLevel level) {
+        return CACHES.computeIfAbsent(level.dimension(), key -> new NegativeSearchCache());
+    }
+
+    public boolean isKnownEmpty(long sectionKey, Block block, long gameTime) {
+        Reference2LongOpenHashMap<Block> entries = sections.get(sectionKey);
+        if (entries == null) {
+            return false;
+        }
+        long expiresAt = entries.getLong(block);
+        if (expiresAt == 0L) {
+            return false;
+        }
+        if (expiresAt <= gameTime) {
+            entries.removeLong(block);
+            if (entries.isEmpty()) {
+                sections.remove(sectionKey);
+            }
+            return false;
+        }
+        hits++;
+        return true;
+    }
+
+    public void markEmpty(long sectionKey, Block block, long gameTime) {
+        sections.computeIfAbsent(sectionKey, key -> new Reference2LongOpenHashMap<>())
+                .put(block, gameTime + Config.negativeSearchCacheTicks);
+        // Sections nobody asks about again would otherwise keep their entries forever
+        if (++stores % PURGE_EVERY_STORES == 0) {
+            purgeExpired(gameTime);
+        }
+    }
+
+    private void purgeExpired(long gameTime) {
+        sections.values().removeIf(entries -> {
+            entries.reference2LongEntrySet().removeIf(entry -> entry.getLongValue() <= gameTime);
+            return entries.isEmpty();
+        });
+    }
+
+    public int getSectionCount() { return sections.size(); }
+
+    public static long getHits() { return hits; }
+
+    public static long getStores() { return stores; }
+
+    private void invalidate(BlockPos pos) {
+        sections.remove(SectionPos.blockToSection(pos.asLong()));
+        // Searches also look at the block above a hit, so a change on a section's bottom layer
+        // can make the section below usable again
+        if (SectionPos.sectionRelative(pos.getY()) == 0) {
+            sections.remove(SectionPos.blockToSection(pos.below().asLong()));
+        }
+    }
+
+    /**
+     * Block change hook, registered with {@link BlockChangeTracker} during common setup.
+     */
+    public static void handleBlockChange(ServerLevel level, BlockPos pos, BlockState newState) {
+        NegativeSearchCache cache = CACHES.get(level.dimension());
+        if (cache != null) {
+            cache.invalidate(pos);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        CACHES.clear();
+        hits = 0;
+        stores = 0;
+    }
+}
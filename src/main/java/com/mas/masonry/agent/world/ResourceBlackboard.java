@@ -0,0 +1,195 @@
+package com.mas.masonry.agent.world;
+
+import com.mas.masonry.Config;
+import com.mas.masonry.MASONRY;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Colony-wide notes of where resource blocks were seen, per block type and indexed by chunk section.
+ * Entries expire after a configurable time, are dropped when the block changes, and are verified by
+ * whoever takes them, so the board only ever saves a search and never sends an agent to a stale spot
+ * without checking.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public final class ResourceBlackboard {
+    private static final Map<ResourceKey<Level>, ResourceBlackboard> BOARDS = new HashMap<>();
+
+    private static final int PURGE_EVERY_PUBLISHES = 256;
+
+    private static long published = 0;
+    private static long taken = 0;
+    private static long rejected = 0;
+
+    private final Map<Block, Entries> entriesByBlock = new IdentityHashMap<>();
+
+    private static final class Entries {
+        // Block position -> game time at which the note expires
+        final Long2LongOpenHashMap expiry = new Long2LongOpenHashMap();
+        // Section key -> block positions noted in that section
+        final Long2ObjectOpenHashMap<LongOpenHashSet> bySection = new Long2ObjectOpenHashMap<>();
+
+        void put(long pos, long expiresAt) {
+            expiry.put(pos, expiresAt);
+            bySection.computeIfAbsent(SectionPos.blockToSection(pos), key -> new LongOpenHashSet()).add(pos);
+        }
+
+        boolean remove(long pos) {
+            if (expiry.remove(pos) == 0L) {
+                return false;
+            }
+            long sectionKey = SectionPos.blockToSection(pos);
+            LongOpenHashSet positions = bySection.get(sectionKey);
+            if (positions != null && positions.remove(pos) && positions.isEmpty()) {
+                bySection.remove(sectionKey);
+            }
+            return true;
+        }
+
+        void purgeExpired(long gameTime) {
+            LongArrayList expired = new LongArrayList();
+            for (Long2LongMap.Entry entry : expiry.long2LongEntrySet()) {
+                if (entry.getLongValue() <= gameTime) {
+                    expired.add(entry.getLongKey());
+                }
+            }
+            for (int i = 0; i < expired.size(); i++) {
+                remove(expired.getLong(i));
+            }
+        }
+    }
+
+    private ResourceBlackboard() {}
+
+    public static ResourceBlackboard get(ServerLevel level) {
+        return BOARDS.computeIfAbsent(level.dimension(), key -> new ResourceBlackboard());
+    }
+
+    /**
+     * Notes a block of the given type at the position, or refreshes the note if it is already there.
+     */
+    public void publish(Block block, BlockPos pos, long gameTime) {
+        entriesByBlock.computeIfAbsent(block, key -> new Entries())
+                .put(pos.asLong(), gameTime + Config.resourceBlackboardTicks);
+        // Notes in places nobody searches again would otherwise stay forever
+        if (++published % PURGE_EVERY_PUBLISHES == 0) {
+            for (Entries entries : entriesByBlock.values()) {
+                entries.purgeExpired(gameTime);
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the nearest noted block of the given type within a cube of the given radius.
+     * Notes that have expired or fail {@code verify} are dropped along the way.
+     */
+    public Optional<BlockPos> take(Block block, BlockPos center, int radius, long gameTime, Predicate<BlockPos> verify) {
+        Entries entries = entriesByBlock.get(block);
+        if (entries == null || entries.expiry.isEmpty()) {
+            return Optional.empty();
+        }
+        int minX = center.getX() - radius, maxX = center.getX() + radius;
+        int minY = center.getY() - radius, maxY = center.getY() + radius;
+        int minZ = center.getZ() - radius, maxZ = center.getZ() + radius;
+
+        BlockPos best = null;
+        long bestDistSqr = Long.MAX_VALUE;
+        for (SectionPos sectionPos : SectionBlockSearch.sectionsNearestFirst(center, minX, minY, minZ, maxX, maxY, maxZ)) {
+            if (SectionBlockSearch.minDistSqr(sectionPos, center) > bestDistSqr) {
+                break;
+            }
+            LongOpenHashSet positions = entries.bySection.get(sectionPos.asLong());
+            if (positions == null) {
+                continue;
+            }
+            LongIterator it = positions.iterator();
+            while (it.hasNext()) {
+                long packed = it.nextLong();
+                BlockPos pos = BlockPos.of(packed);
+                if (pos.getX() < minX || pos.getX() > maxX || pos.getY() < minY || pos.getY() > maxY
+                        || pos.getZ() < minZ || pos.getZ() > maxZ) {
+                    continue;
+                }
+                if (entries.expiry.get(packed) <= gameTime || !verify.test(pos)) {
+                    // Dropping here keeps the board from handing the same bad spot to the next agent
+                    it.remove();
+                    entries.expiry.remove(packed);
+                    rejected++;
+                    continue;
+                }
+                long distSqr = (long) pos.distSqr(center);
+                if (distSqr < bestDistSqr) {
+                    best = pos;
+                    bestDistSqr = distSqr;
+                }
+            }
+            if (positions.isEmpty()) {
+                entries.bySection.remove(sectionPos.asLong());
+            }
+        }
+        if (best == null) {
+            return Optional.empty();
+        }
+        entries.remove(best.asLong());
+        taken++;
+        return Optional.of(best);
+    }
+
+    public int getEntryCount() {
+        int count = 0;
+        for (Entries entries : entriesByBlock.values()) {
+            count += entries.expiry.size();
+        }
+        return count;
+    }
+
+    public static long getPublishedCount() { return published; }
+
+    public static long getTakenCount() { return taken; }
+
+    public static long getRejectedCount() { return rejected; }
+
+    /**
+     * Block change hook, registered with {@link BlockChangeTracker} during common setup.
+     */
+    public static void handleBlockChange(ServerLevel level, BlockPos pos, BlockState newState) {
+        ResourceBlackboard board = BOARDS.get(level.dimension());
+        if (board == null) {
+            return;
+        }
+        long packed = pos.asLong();
+        for (Map.Entry<Block, Entries> entry : board.entriesByBlock.entrySet()) {
+            if (!newState.is(entry.getKey())) {
+                entry.getValue().remove(packed);
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        BOARDS.clear();
+        published = 0;
+        taken = 0;
+        rejected = 0;
+    }
+}
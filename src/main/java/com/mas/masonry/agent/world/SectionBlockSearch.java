@@ -0,0 +1,233 @@
+package com.mas.masonry.agent.world;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Block search that works section by section on the chunk palettes instead of calling
+ * getBlockState per cell. Sections whose palette cannot hold a matching state are skipped
+ * without reading a single block, and sections are visited nearest-first so the search can
+ * stop as soon as no remaining section can beat the results already found.
+ */
+public final class SectionBlockSearch {
+
+    /**
+     * Where the search reads section data from: the live level, or a copied {@link ChunkSectionSnapshot}.
+     */
+    public interface SectionSource {
+        /**
+         * Block states of the section, or null if it is unloaded, outside the world or only air.
+         */
+        @Nullable
+        PalettedContainer<BlockState> getStates(int sectionX, int sectionY, int sectionZ);
+    }
+
+    private SectionBlockSearch() {}
+
+    /**
+     * Finds the matching block closest to {@code center} within a cube of the given radius.
+     * @param accept Extra check on a matching position (e.g. accessibility), may be {@code pos -> true}.
+     */
+    public static Optional<BlockPos> findNearest(ServerLevel level, BlockPos center, int radius,
+                                                 Predicate<BlockState> matcher, Predicate<BlockPos> accept) {
+        List<BlockPos> found = findNearest(level, center, radius, matcher, accept, 1);
+        return found.isEmpty() ? Optional.empty() : Optional.of(found.get(0));
+    }
+
+    /**
+     * Finds the closest block of the given type, skipping sections the {@link NegativeSearchCache}
+     * already knows hold no usable block of that type, and recording the ones that come up empty.
+     */
+    public static Optional<BlockPos> findNearest(ServerLevel level, BlockPos center, int radius,
+                                                 Block block, Predicate<BlockPos> accept) {
+        List<BlockPos> found = findNearest(level, center, radius, block, accept, 1);
+        return found.isEmpty() ? Optional.empty() : Optional.of(found.get(0));
+    }
+
+    public static List<BlockPos> findNearest(ServerLevel level, BlockPos center, int radius,
+                                             Block block, Predicate<BlockPos> accept, int limit) {
+        NegativeSearchCache negativeCache = NegativeSearchCache.get(level);
+        long gameTime = level.getGameTime();
+        return search(liveSource(level), center, radius, level.getMinBuildHeight(), level.getMaxBuildHeight() - 1,
+                state -> state.is(block), accept, limit,
+                sectionKey -> negativeCache.isKnownEmpty(sectionKey, block, gameTime),
+                sectionKey -> negativeCache.markEmpty(sectionKey, block, gameTime));
+    }
+
+    /**
+     * Finds up to {@code limit} matching blocks within a cube of the given radius, nearest first.
+     */
+    public static List<BlockPos> findNearest(ServerLevel level, BlockPos center, int radius,
+                                             Predicate<BlockState> matcher, Predicate<BlockPos> accept, int limit) {
+        return search(liveSource(level), center, radius, level.getMinBuildHeight(), level.getMaxBuildHeight() - 1,
+                matcher, accept, limit, null, null);
+    }
+
+    /**
+     * Reads sections straight from loaded chunks. Never forces a chunk load.
+     */
+    public static SectionSource liveSource(ServerLevel level) {
+        return (sectionX, sectionY, sectionZ) -> {
+            LevelChunk chunk = WorldView.getChunkIfLoaded(level, sectionX, sectionZ);
+            if (chunk == null) {
+                return null;
+            }
+            int sectionIndex = chunk.getSectionIndexFromSectionY(sectionY);
+            if (sectionIndex < 0 || sectionIndex >= chunk.getSectionsCount()) {
+                return null;
+            }
+            LevelChunkSection section = chunk.getSection(sectionIndex);
+            return section.hasOnlyAir() ? null : section.getStates();
+        };
+    }
+
+    /**
+     * Core search over any section source. Safe to run off the server thread when the source,
+     * matcher and accept checks are.
+     * @param skipSection    Sections to skip without reading (e.g. known empty), may be null.
+     * @param onEmptySection Told about every section that was read in full and held no accepted match,
+     *                       may be null. When set, sections are read in full rather than clipped to the cube.
+     */
+    public static List<BlockPos> search(SectionSource source, BlockPos center, int radius, int minBuildY, int maxBuildY,
+                                        Predicate<BlockState> matcher, Predicate<BlockPos> accept, int limit,
+                                        @Nullable LongPredicate skipSection, @Nullable LongConsumer onEmptySection) {
+        int minX = center.getX() - radius, maxX = center.getX() + radius;
+        int minY = Math.max(minBuildY, center.getY() - radius);
+        int maxY = Math.min(maxBuildY, center.getY() + radius);
+        int minZ = center.getZ() - radius, maxZ = center.getZ() + radius;
+        if (minY > maxY || limit <= 0) {
+            return List.of();
+        }
+
+        List<BlockPos> results = new ArrayList<>();
+        List<Long> resultDistances = new ArrayList<>();
+        BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+
+        for (SectionPos sectionPos : sectionsNearestFirst(center, minX, minY, minZ, maxX, maxY, maxZ)) {
+            // Once we have enough hits, a section that starts further away than the worst hit cannot help
+            if (results.size() >= limit && minDistSqr(sectionPos, center) > resultDistances.get(results.size() - 1)) {
+                break;
+            }
+
+            long sectionKey = sectionPos.asLong();
+            if (skipSection != null && skipSection.test(sectionKey)) {
+                continue;
+            }
+
+            PalettedContainer<BlockState> states = source.getStates(sectionPos.x(), sectionPos.y(), sectionPos.z());
+            if (states == null || !states.maybeHas(matcher)) {
+                continue;
+            }
+
+            int baseX = sectionPos.minBlockX(), baseY = sectionPos.minBlockY(), baseZ = sectionPos.minBlockZ();
+            // A cached search reads the whole section so an empty result holds for the entire section
+            boolean wholeSection = onEmptySection != null;
+            int fromX = wholeSection ? 0 : Math.max(minX, baseX) - baseX, toX = wholeSection ? 15 : Math.min(maxX, baseX + 15) - baseX;
+            int fromY = wholeSection ? 0 : Math.max(minY, baseY) - baseY, toY = wholeSection ? 15 : Math.min(maxY, baseY + 15) - baseY;
+            int fromZ = wholeSection ? 0 : Math.max(minZ, baseZ) - baseZ, toZ = wholeSection ? 15 : Math.min(maxZ, baseZ + 15) - baseZ;
+            boolean sectionHasCandidate = false;
+
+            // y-z-x order walks the packed storage sequentially
+            for (int y = fromY; y <= toY; y++) {
+                for (int z = fromZ; z <= toZ; z++) {
+                    for (int x = fromX; x <= toX; x++) {
+                        if (!matcher.test(states.get(x, y, z))) {
+                            continue;
+                        }
+                        cursor.set(baseX + x, baseY + y, baseZ + z);
+                        long distSqr = distSqr(cursor, center);
+                        boolean inCube = cursor.getX() >= minX && cursor.getX() <= maxX
+                                && cursor.getY() >= minY && cursor.getY() <= maxY
+                                && cursor.getZ() >= minZ && cursor.getZ() <= maxZ;
+                        boolean canImprove = inCube
+                                && (results.size() < limit || distSqr < resultDistances.get(results.size() - 1));
+                        if (!canImprove && (onEmptySection == null || sectionHasCandidate)) {
+                            continue;
+                        }
+                        if (!accept.test(cursor)) {
+                            continue;
+                        }
+                        sectionHasCandidate = true;
+                        if (canImprove) {
+                            insertSorted(results, resultDistances, cursor.immutable(), distSqr, limit);
+                        }
+                    }
+                }
+            }
+
+            if (onEmptySection != null && !sectionHasCandidate) {
+                onEmptySection.accept(sectionKey);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * All sections overlapping the given block box, ordered by their distance to the center.
+     */
+    static List<SectionPos> sectionsNearestFirst(BlockPos center, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        List<SectionPos> sections = new ArrayList<>();
+        for (int sx = SectionPos.blockToSectionCoord(minX); sx <= SectionPos.blockToSectionCoord(maxX); sx++) {
+            for (int sy = SectionPos.blockToSectionCoord(minY); sy <= SectionPos.blockToSectionCoord(maxY); sy++) {
+                for (int sz = SectionPos.blockToSectionCoord(minZ); sz <= SectionPos.blockToSectionCoord(maxZ); sz++) {
+                    sections.add(SectionPos.of(sx, sy, sz));
+                }
+            }
+        }
+        sections.sort(Comparator.comparingLong(section -> minDistSqr(section, center)));
+        return sections;
+    }
+
+    private static void insertSorted(List<BlockPos> results, List<Long> distances, BlockPos pos, long distSqr, int limit) {
+        int index = 0;
+        while (index < distances.size() && distances.get(index) <= distSqr) {
+            index++;
+        }
+        results.add(index, pos);
+        distances.add(index, distSqr);
+        if (results.size() > limit) {
+            results.remove(results.size() - 1);
+            distances.remove(distances.size() - 1);
+        }
+    }
+
+    private static long distSqr(BlockPos a, BlockPos b) {
+        long dx = a.getX() - b.getX(), dy = a.getY() - b.getY(), dz = a.getZ() - b.getZ();
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Squared distance from a block position to the closest cell of a section.
+     */
+    static long minDistSqr(SectionPos section, BlockPos pos) {
+        long dx = axisGap(pos.getX(), section.minBlockX());
+        long dy = axisGap(pos.getY(), section.minBlockY());
+        long dz = axisGap(pos.getZ(), section.minBlockZ());
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static long axisGap(int coord, int sectionMin) {
+        if (coord < sectionMin) {
+            return sectionMin - coord;
+        }
+        if (coord > sectionMin + 15) {
+            return coord - (sectionMin + 15);
+        }
+        return 0;
+    }
+}
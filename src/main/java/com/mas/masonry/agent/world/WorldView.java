@@ -0,0 +1,91 @@
+package com.mas.masonry.agent.world;
+
+import com.mas.masonry.MASONRY;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Block reads for agent code that never load or generate a chunk. {@code Level.getBlockState} on a
+ * chunk that isn't loaded blocks the server thread until it is, which is what caused the hitches when
+ * agents wandered to the edge of the loaded area. Here an unloaded chunk is simply unknown: reads
+ * return null and the boolean checks answer false.
+ */
+@Mod.EventBusSubscriber(modid = MASONRY.MODID)
+public final class WorldView {
+    // Chunks found unloaded this tick; a scan reading hundreds of blocks in one such chunk avoided one load, not hundreds
+    private static final LongOpenHashSet MISSED_THIS_TICK = new LongOpenHashSet();
+
+    private static long avoidedLoads = 0;
+
+    private WorldView() {}
+
+    /**
+     * The chunk if it is already loaded, otherwise null. Must be called on the level's own thread.
+     */
+    @Nullable
+    public static LevelChunk getChunkIfLoaded(Level level, int chunkX, int chunkZ) {
+        LevelChunk chunk = level.getChunkSource().getChunkNow(chunkX, chunkZ);
+        if (chunk == null && MISSED_THIS_TICK.add(ChunkPos.asLong(chunkX, chunkZ))) {
+            avoidedLoads++;
+        }
+        return chunk;
+    }
+
+    public static boolean isLoaded(Level level, BlockPos pos) {
+        return getChunkIfLoaded(level, SectionPos.blockToSectionCoord(pos.getX()), SectionPos.blockToSectionCoord(pos.getZ())) != null;
+    }
+
+    /**
+     * The block state at the position, or null if its chunk is not loaded.
+     */
+    @Nullable
+    public static BlockState getBlockState(Level level, BlockPos pos) {
+        LevelChunk chunk = getChunkIfLoaded(level, SectionPos.blockToSectionCoord(pos.getX()), SectionPos.blockToSectionCoord(pos.getZ()));
+        return chunk == null ? null : chunk.getBlockState(pos);
+    }
+
+    /**
+     * True only if the chunk is loaded and the block there is of the given type.
+     */
+    public static boolean isBlock(Level level, BlockPos pos, Block block) {
+        BlockState state = getBlockState(level, pos);
+        return state != null && state.is(block);
+    }
+
+    /**
+     * True only if the chunk is loaded and the block there is air.
+     */
+    public static boolean isEmptyBlock(Level level, BlockPos pos) {
+        BlockState state = getBlockState(level, pos);
+        return state != null && state.isAir();
+    }
+
+    /**
+     * Number of chunk loads agent reads would otherwise have caused, counting each unloaded chunk once per tick.
+     */
+    public static long getAvoidedLoads() { return avoidedLoads; }
+
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.END) {
+            MISSED_THIS_TICK.clear();
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        MISSED_THIS_TICK.clear();
+        avoidedLoads = 0;
+    }
+}